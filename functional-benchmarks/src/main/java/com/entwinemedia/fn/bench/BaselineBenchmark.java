@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares typical stream pipelines against the same computation expressed with
+ * {@link java.util.stream.Stream} and with plain loops.
+ * <p/>
+ * Each pipeline exists in three flavours suffixed with <code>Fn</code>, <code>Jdk</code> and <code>Loop</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaselineBenchmark {
+  // -- map, filter, fold
+
+  @Benchmark
+  public long mapFilterSumFn(Sources src) {
+    return src.stream().fmap(BenchFns.inc).filter(BenchFns.even).foldl(0L, BenchFns.sum);
+  }
+
+  @Benchmark
+  public long mapFilterSumJdk(Sources src) {
+    return jdk(src).map(a -> a + 1).filter(a -> (a & 1) == 0).mapToLong(a -> a).sum();
+  }
+
+  @Benchmark
+  public long mapFilterSumLoop(Sources src) {
+    long sum = 0;
+    if (src.kind == Sources.Kind.ARRAY) {
+      for (Integer a : src.array) {
+        final int b = a + 1;
+        if ((b & 1) == 0) sum += b;
+      }
+    } else {
+      for (Integer a : src.list()) {
+        final int b = a + 1;
+        if ((b & 1) == 0) sum += b;
+      }
+    }
+    return sum;
+  }
+
+  // -- map, filter, take, collect
+
+  @Benchmark
+  public List<Integer> mapFilterTakeToListFn(Sources src) {
+    return src.stream().fmap(BenchFns.twice).filter(BenchFns.lt(src.size)).take(src.size / 4).toList();
+  }
+
+  @Benchmark
+  public List<Integer> mapFilterTakeToListJdk(Sources src) {
+    final int size = src.size;
+    return jdk(src).map(a -> a * 2).filter(a -> a < size).limit(size / 4).collect(Collectors.<Integer>toList());
+  }
+
+  @Benchmark
+  public List<Integer> mapFilterTakeToListLoop(Sources src) {
+    final int limit = src.size / 4;
+    final List<Integer> r = new ArrayList<Integer>();
+    for (Integer a : src.list()) {
+      if (r.size() == limit) break;
+      final int b = a * 2;
+      if (b < src.size) r.add(b);
+    }
+    return r;
+  }
+
+  // -- bind
+
+  @Benchmark
+  public long bindSumFn(Sources src) {
+    return src.stream().bind(BenchFns.dupList).foldl(0L, BenchFns.sum);
+  }
+
+  @Benchmark
+  public long bindSumJdk(Sources src) {
+    return jdk(src).flatMap(a -> Arrays.asList(a, a).stream()).mapToLong(a -> a).sum();
+  }
+
+  @Benchmark
+  public long bindSumLoop(Sources src) {
+    long sum = 0;
+    for (Integer a : src.list()) {
+      for (Integer b : Arrays.asList(a, a)) {
+        sum += b;
+      }
+    }
+    return sum;
+  }
+
+  // -- sort, take
+
+  @Benchmark
+  public List<Integer> sortTakeFn(Sources src) {
+    return src.stream().sort(BenchFns.descending).take(10).toList();
+  }
+
+  @Benchmark
+  public List<Integer> sortTakeJdk(Sources src) {
+    return jdk(src).sorted(BenchFns.descending).limit(10).collect(Collectors.<Integer>toList());
+  }
+
+  // --
+
+  private static java.util.stream.Stream<Integer> jdk(Sources src) {
+    return src.kind == Sources.Kind.ARRAY ? Arrays.stream(src.array) : src.list().stream();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.bench;
+
+import static com.entwinemedia.fn.Stream.$;
+
+import com.entwinemedia.fn.Fn;
+import com.entwinemedia.fn.Fn2;
+import com.entwinemedia.fn.Fx;
+import com.entwinemedia.fn.Pred;
+import com.entwinemedia.fn.Stream;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.List;
+
+/** Functions shared by the benchmarks. They are deliberately cheap so that the stream overhead dominates. */
+final class BenchFns {
+  private BenchFns() {
+  }
+
+  static final Fn<Integer, Integer> inc = new Fn<Integer, Integer>() {
+    @Override public Integer apply(Integer a) {
+      return a + 1;
+    }
+  };
+
+  static final Fn<Integer, Integer> twice = new Fn<Integer, Integer>() {
+    @Override public Integer apply(Integer a) {
+      return a * 2;
+    }
+  };
+
+  static final Pred<Integer> even = new Pred<Integer>() {
+    @Override public Boolean apply(Integer a) {
+      return (a & 1) == 0;
+    }
+  };
+
+  static final Fn<Integer, Integer> mod16 = new Fn<Integer, Integer>() {
+    @Override public Integer apply(Integer a) {
+      return a & 15;
+    }
+  };
+
+  static final Fn2<Long, Integer, Long> sum = new Fn2<Long, Integer, Long>() {
+    @Override public Long apply(Long sum, Integer a) {
+      return sum + a;
+    }
+  };
+
+  static final Fn<Integer, Stream<Integer>> dup = new Fn<Integer, Stream<Integer>>() {
+    @Override public Stream<Integer> apply(Integer a) {
+      return $(a, a);
+    }
+  };
+
+  static final Fn<Integer, List<Integer>> dupList = new Fn<Integer, List<Integer>>() {
+    @Override public List<Integer> apply(Integer a) {
+      return java.util.Arrays.asList(a, a);
+    }
+  };
+
+  static final Fx<Integer> nop = new Fx<Integer>() {
+    @Override public void apply(Integer a) {
+    }
+  };
+
+  static final Comparator<Integer> descending = new Comparator<Integer>() {
+    @Override public int compare(Integer a, Integer b) {
+      return b.compareTo(a);
+    }
+  };
+
+  /** Create a predicate that yields true for all elements less than <code>n</code>. */
+  static Pred<Integer> lt(final int n) {
+    return new Pred<Integer>() {
+      @Override public Boolean apply(Integer a) {
+        return a < n;
+      }
+    };
+  }
+
+  /** Pull all elements of <code>s</code> into the black hole. */
+  static <A> void drain(Stream<A> s, Blackhole bh) {
+    for (A a : s) {
+      bh.consume(a);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.bench;
+
+import static com.entwinemedia.fn.bench.BenchFns.drain;
+
+import com.entwinemedia.fn.P1;
+import com.entwinemedia.fn.P1Lazy;
+import com.entwinemedia.fn.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks of infinite streams created with {@link Stream#cont(P1)}. All of them are bounded by a take. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContBenchmark {
+  @Param({"1000", "1000000"})
+  public int size;
+
+  /** A product yielding an increasing counter. */
+  private static P1<Integer> counter() {
+    return new P1Lazy<Integer>() {
+      private int i = 0;
+
+      @Override public Integer get1() {
+        return i++;
+      }
+    };
+  }
+
+  @Benchmark
+  public void take(Blackhole bh) {
+    drain(Stream.cont(counter()).take(size), bh);
+  }
+
+  @Benchmark
+  public void mapTake(Blackhole bh) {
+    drain(Stream.cont(counter()).fmap(BenchFns.inc).take(size), bh);
+  }
+
+  @Benchmark
+  public void filterTake(Blackhole bh) {
+    drain(Stream.cont(counter()).filter(BenchFns.even).take(size), bh);
+  }
+
+  @Benchmark
+  public void takeWhile(Blackhole bh) {
+    drain(Stream.cont(counter()).takeWhile(BenchFns.lt(size)), bh);
+  }
+
+  @Benchmark
+  public Long takeFoldl() {
+    return Stream.cont(counter()).take(size).foldl(0L, BenchFns.sum);
+  }
+
+  @Benchmark
+  public Object takeToList() {
+    return Stream.cont(counter()).take(size).toList();
+  }
+
+  @Benchmark
+  public boolean exists() {
+    return Stream.cont(counter()).exists(BenchFns.lt(size).not());
+  }
+}
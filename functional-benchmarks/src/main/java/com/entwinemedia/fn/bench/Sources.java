@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.bench;
+
+import com.entwinemedia.fn.Stream;
+import com.entwinemedia.fn.data.ListBuilders;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark state providing the same integer data in each of the source shapes a {@link Stream} can be created from.
+ * <ul>
+ * <li>{@link Kind#ARRAY} -- {@link Stream#mk(Object[])}</li>
+ * <li>{@link Kind#IMMUTABLE} -- {@link Stream#mk(Iterable)} of an {@link com.entwinemedia.fn.data.Immutable} list</li>
+ * <li>{@link Kind#MUTABLE} -- {@link Stream#mk(Iterable)} of a mutable list which gets wrapped by
+ * {@link com.entwinemedia.fn.data.ImmutableIterators#mk(java.util.Iterator)} on each iteration</li>
+ * </ul>
+ * Infinite sources created by {@link Stream#cont(com.entwinemedia.fn.P1)} are covered by {@link ContBenchmark}.
+ */
+@State(Scope.Benchmark)
+public class Sources {
+  public enum Kind {
+    ARRAY, IMMUTABLE, MUTABLE
+  }
+
+  @Param({"1000", "1000000"})
+  public int size;
+
+  @Param({"ARRAY", "IMMUTABLE", "MUTABLE"})
+  public Kind kind;
+
+  /** The raw data. Element <code>i</code> has the value <code>i</code>. */
+  public Integer[] array;
+
+  /** The raw data as an immutable list. */
+  public List<Integer> immutable;
+
+  /** The raw data as a mutable list. */
+  public List<Integer> mutable;
+
+  /** A small second source used by the zip and append benchmarks. */
+  public List<Integer> small;
+
+  @Setup
+  public void setup() {
+    array = new Integer[size];
+    mutable = new ArrayList<Integer>(size);
+    for (int i = 0; i < size; i++) {
+      array[i] = i;
+      mutable.add(i);
+    }
+    immutable = ListBuilders.SIA.mk(mutable);
+    small = ListBuilders.SIA.mk(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+  }
+
+  /** Create a fresh stream of the configured kind. */
+  public Stream<Integer> stream() {
+    switch (kind) {
+      case ARRAY:
+        return Stream.mk(array);
+      case IMMUTABLE:
+        return Stream.mk(immutable);
+      case MUTABLE:
+        return Stream.mk(mutable);
+      default:
+        throw new IllegalStateException("Unknown kind " + kind);
+    }
+  }
+
+  /** Return the data as a list for the plain loop and java.util.stream baselines. */
+  public List<Integer> list() {
+    return kind == Kind.MUTABLE ? mutable : immutable;
+  }
+}
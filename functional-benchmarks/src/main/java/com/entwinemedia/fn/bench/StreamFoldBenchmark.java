@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.bench;
+
+import com.entwinemedia.fn.Fn;
+import com.entwinemedia.fn.Monoid;
+import com.entwinemedia.fn.Monoids;
+import com.entwinemedia.fn.StreamFold;
+import com.entwinemedia.fn.ToIntFn;
+import com.entwinemedia.fn.data.ImmutableArrayListFactory;
+import com.entwinemedia.fn.data.ListBuilders;
+import com.entwinemedia.fn.data.Opt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** One benchmark per public {@link StreamFold} operation plus the evaluating methods of the stream. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamFoldBenchmark {
+  private static final Monoid<Integer> intAddition = Monoids.intAddition;
+
+  private static final ToIntFn<Integer> unbox = new ToIntFn<Integer>() {
+    @Override public int apply(Integer a) {
+      return a;
+    }
+  };
+
+  private static final Fn<Integer, Opt<Integer>> lastToSome = new Fn<Integer, Opt<Integer>>() {
+    @Override public Opt<Integer> apply(Integer a) {
+      return a == Integer.MAX_VALUE ? Opt.some(a) : Opt.<Integer>none();
+    }
+  };
+
+  @Benchmark
+  public Long foldl(Sources src) {
+    return src.stream().foldl(0L, BenchFns.sum);
+  }
+
+  @Benchmark
+  public Integer sum(Sources src) {
+    return src.stream().sum(intAddition);
+  }
+
+  /** Like {@link #sum(Sources)} but without boxing the intermediate sums. */
+  @Benchmark
+  public int sumInt(Sources src) {
+    return src.stream().mapToInt(unbox).sum();
+  }
+
+  /** Predicate never matches so the whole stream is traversed. */
+  @Benchmark
+  public boolean exists(Sources src) {
+    return src.stream().exists(BenchFns.lt(-1));
+  }
+
+  /** Predicate never matches so the whole stream is traversed. */
+  @Benchmark
+  public Opt<Integer> find(Sources src) {
+    return src.stream().find(BenchFns.lt(-1));
+  }
+
+  @Benchmark
+  public Opt<Integer> findMap(Sources src) {
+    return src.stream().findMap(lastToSome);
+  }
+
+  @Benchmark
+  public Opt<Integer> head(Sources src) {
+    return src.stream().head();
+  }
+
+  @Benchmark
+  public Integer head2(Sources src) {
+    return src.stream().head2();
+  }
+
+  @Benchmark
+  public String mkString(Sources src) {
+    return src.stream().mkString(",");
+  }
+
+  @Benchmark
+  public Map<Integer, Integer> group(Sources src) {
+    return src.stream().group(BenchFns.mod16);
+  }
+
+  @Benchmark
+  public Map<Integer, Integer> groupKeyValue(Sources src) {
+    return src.stream().group(BenchFns.mod16, BenchFns.inc);
+  }
+
+  @Benchmark
+  public Map<Integer, List<Integer>> groupMulti(Sources src) {
+    return StreamFold.groupMulti(ImmutableArrayListFactory.I, BenchFns.mod16, src.stream());
+  }
+
+  @Benchmark
+  public List<Integer> toList(Sources src) {
+    return src.stream().toList();
+  }
+
+  /** The list is built from the mapped stream so that it cannot be returned as is. */
+  @Benchmark
+  public List<Integer> fmapToList(Sources src) {
+    return src.stream().fmap(BenchFns.inc).toList();
+  }
+
+  @Benchmark
+  public List<Integer> filterToList(Sources src) {
+    return src.stream().filter(BenchFns.even).toList();
+  }
+
+  @Benchmark
+  public List<Integer> toListStrict(Sources src) {
+    return src.stream().toList(ListBuilders.SIA);
+  }
+
+  @Benchmark
+  public Set<Integer> toSet(Sources src) {
+    return src.stream().toSet();
+  }
+
+  @Benchmark
+  public void run(Sources src) {
+    src.stream().fmap(BenchFns.inc).run();
+  }
+}
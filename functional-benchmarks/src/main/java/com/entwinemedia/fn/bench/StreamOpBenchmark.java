@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.bench;
+
+import static com.entwinemedia.fn.Stream.$;
+import static com.entwinemedia.fn.bench.BenchFns.drain;
+
+import com.entwinemedia.fn.Stream;
+import com.entwinemedia.fn.StreamOp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One benchmark per public {@link StreamOp} operation. Each benchmark applies the operation to a fresh stream
+ * of the configured {@link Sources.Kind} and pulls all resulting elements through the iterator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamOpBenchmark {
+  /** A reusable ten stage pipeline, built once and applied to many streams. */
+  private StreamOp<Integer, Integer> pipeline10;
+
+  /** The same ten stages applied one by one to the stream. */
+  private static Stream<Integer> stages10(Stream<Integer> s) {
+    return s.fmap(BenchFns.inc).filter(BenchFns.even).fmap(BenchFns.twice).fmap(BenchFns.inc).filter(BenchFns.even.not())
+        .fmap(BenchFns.inc).fmap(BenchFns.twice).filter(BenchFns.even).fmap(BenchFns.inc).fmap(BenchFns.twice);
+  }
+
+  @Setup
+  public void setup() {
+    pipeline10 = StreamOp.<Integer>id().fmap(BenchFns.inc).filter(BenchFns.even).fmap(BenchFns.twice).fmap(BenchFns.inc)
+        .filter(BenchFns.even.not()).fmap(BenchFns.inc).fmap(BenchFns.twice).filter(BenchFns.even).fmap(BenchFns.inc)
+        .fmap(BenchFns.twice);
+  }
+
+  @Benchmark
+  public void source(Sources src, Blackhole bh) {
+    drain(src.stream(), bh);
+  }
+
+  @Benchmark
+  public void id(Sources src, Blackhole bh) {
+    drain(StreamOp.<Integer>id().apply(src.stream()), bh);
+  }
+
+  @Benchmark
+  public void fmap(Sources src, Blackhole bh) {
+    drain(src.stream().fmap(BenchFns.inc), bh);
+  }
+
+  @Benchmark
+  public void filter(Sources src, Blackhole bh) {
+    drain(src.stream().filter(BenchFns.even), bh);
+  }
+
+  @Benchmark
+  public void bind(Sources src, Blackhole bh) {
+    drain(src.stream().bind(BenchFns.dup), bh);
+  }
+
+  @Benchmark
+  public void bindList(Sources src, Blackhole bh) {
+    drain(src.stream().bind(BenchFns.dupList), bh);
+  }
+
+  @Benchmark
+  public void take(Sources src, Blackhole bh) {
+    drain(src.stream().take(src.size / 2), bh);
+  }
+
+  @Benchmark
+  public void drop(Sources src, Blackhole bh) {
+    drain(src.stream().drop(src.size / 2), bh);
+  }
+
+  @Benchmark
+  public void takeWhile(Sources src, Blackhole bh) {
+    drain(src.stream().takeWhile(BenchFns.lt(src.size / 2)), bh);
+  }
+
+  @Benchmark
+  public void dropWhile(Sources src, Blackhole bh) {
+    drain(src.stream().dropWhile(BenchFns.lt(src.size / 2)), bh);
+  }
+
+  @Benchmark
+  public void zipWithIndex(Sources src, Blackhole bh) {
+    drain(src.stream().zipWithIndex(), bh);
+  }
+
+  @Benchmark
+  public void zip(Sources src, Blackhole bh) {
+    drain(src.stream().zip(src.list()), bh);
+  }
+
+  @Benchmark
+  public void appendStream(Sources src, Blackhole bh) {
+    drain(src.stream().append($(src.small)), bh);
+  }
+
+  @Benchmark
+  public void appendIterable(Sources src, Blackhole bh) {
+    drain(src.stream().append(src.small), bh);
+  }
+
+  /** Left deep chain of many small appends. */
+  @Benchmark
+  public void appendChain(Sources src, Blackhole bh) {
+    Stream<Integer> s = src.stream();
+    for (int i = 0; i < 100; i++) {
+      s = s.append($(src.small));
+    }
+    drain(s, bh);
+  }
+
+  @Benchmark
+  public void inject(Sources src, Blackhole bh) {
+    drain(src.stream().inject(-1), bh);
+  }
+
+  @Benchmark
+  public void wrap(Sources src, Blackhole bh) {
+    drain(src.stream().wrap(-1, -2), bh);
+  }
+
+  @Benchmark
+  public void each(Sources src, Blackhole bh) {
+    drain(src.stream().each(BenchFns.nop), bh);
+  }
+
+  @Benchmark
+  public void group(Sources src, Blackhole bh) {
+    drain(StreamOp.group(BenchFns.mod16, src.stream()), bh);
+  }
+
+  @Benchmark
+  public void partition(Sources src, Blackhole bh) {
+    drain(src.stream().partition(100), bh);
+  }
+
+  @Benchmark
+  public void repeat(Sources src, Blackhole bh) {
+    drain(src.stream().repeat(2), bh);
+  }
+
+  @Benchmark
+  public void reverse(Sources src, Blackhole bh) {
+    drain(src.stream().reverse(), bh);
+  }
+
+  @Benchmark
+  public void sort(Sources src, Blackhole bh) {
+    drain(src.stream().sort(BenchFns.descending), bh);
+  }
+
+  /** The common leaderboard pattern. */
+  @Benchmark
+  public void sortTake10(Sources src, Blackhole bh) {
+    drain(src.stream().sort(BenchFns.descending).take(10), bh);
+  }
+
+  @Benchmark
+  public void stages10(Sources src, Blackhole bh) {
+    drain(stages10(src.stream()), bh);
+  }
+
+  @Benchmark
+  public void pipeline10(Sources src, Blackhole bh) {
+    drain(pipeline10.apply(src.stream()), bh);
+  }
+
+  @Benchmark
+  public void compose(Sources src, Blackhole bh) {
+    final StreamOp<Integer, Integer> f = StreamOp.<Integer>id().fmap(BenchFns.inc);
+    final StreamOp<Integer, Integer> g = StreamOp.<Integer>id().filter(BenchFns.even);
+    drain(g.compose(f).apply(src.stream()), bh);
+  }
+}
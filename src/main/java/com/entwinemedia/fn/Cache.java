@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent bounded cache backing memoized functions.
+ * <p/>
+ * Keys are spread over a number of segments, each an access ordered {@link LinkedHashMap} guarded by its own lock,
+ * so lookups of different keys rarely contend. Eviction is least recently used per segment.
+ * Values are computed outside of the lock. Two threads missing the same key at the same time may
+ * therefore both compute it. The memoized function is expected to be pure.
+ */
+final class Cache<K, V> {
+  /** Stands in for null keys and values. */
+  private static final Object NULL = new Object();
+  /** Caches smaller than this use a single segment to keep the eviction order exact. */
+  private static final int MIN_SEGMENTED_SIZE = 64;
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  Cache(CacheSpec spec) {
+    final int segmentCount = spec.getMaxSize() < MIN_SEGMENTED_SIZE ? 1 : SEGMENTS;
+    final int segmentSize = (spec.getMaxSize() + segmentCount - 1) / segmentCount;
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(segmentSize, spec.getExpireAfterWriteNanos(), evictions);
+    }
+  }
+
+  /** Get the value of <code>key</code> computing it with <code>f</code> if it is not cached. */
+  @SuppressWarnings("unchecked")
+  <A extends K> V get(A key, Fn<? super A, ? extends V> f) {
+    final Object k = key != null ? key : NULL;
+    final Segment segment = segmentFor(k);
+    final Object cached = segment.get(k);
+    if (cached != null) {
+      hits.increment();
+      return cached == NULL ? null : (V) cached;
+    }
+    misses.increment();
+    final V v = f.apply(key);
+    segment.put(k, v != null ? v : NULL);
+    return v;
+  }
+
+  CacheStats stats() {
+    return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  private Segment segmentFor(Object key) {
+    if (segments.length == 1) {
+      return segments[0];
+    }
+    // spread the hash since the segment is picked by the lower bits
+    final int h = key.hashCode();
+    return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+  }
+
+  private static final class Entry {
+    private final Object value;
+    private final long written;
+
+    private Entry(Object value, long written) {
+      this.value = value;
+      this.written = written;
+    }
+  }
+
+  private static final class Segment {
+    private final int maxSize;
+    private final long expireAfterWriteNanos;
+    /** Eviction counter of the cache. */
+    private final LongAdder evictions;
+    private final LinkedHashMap<Object, Entry> map = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+
+    private Segment(int maxSize, long expireAfterWriteNanos, LongAdder evictions) {
+      this.maxSize = maxSize;
+      this.expireAfterWriteNanos = expireAfterWriteNanos;
+      this.evictions = evictions;
+    }
+
+    /** Return the cached value or null if there is none. */
+    private synchronized Object get(Object key) {
+      final Entry e = map.get(key);
+      if (e == null) {
+        return null;
+      }
+      if (isExpired(e, System.nanoTime())) {
+        map.remove(key);
+        evictions.increment();
+        return null;
+      }
+      return e.value;
+    }
+
+    private synchronized void put(Object key, Object value) {
+      final long now = System.nanoTime();
+      map.put(key, new Entry(value, now));
+      if (map.size() > maxSize) {
+        if (expireAfterWriteNanos > 0) {
+          removeExpired(now);
+        }
+        // entries are in access order, so the eldest one is the least recently used
+        final Iterator<Map.Entry<Object, Entry>> it = map.entrySet().iterator();
+        while (map.size() > maxSize) {
+          it.next();
+          it.remove();
+          evictions.increment();
+        }
+      }
+    }
+
+    private synchronized void clear() {
+      map.clear();
+    }
+
+    private void removeExpired(long now) {
+      final Iterator<Entry> it = map.values().iterator();
+      while (it.hasNext()) {
+        if (isExpired(it.next(), now)) {
+          it.remove();
+          evictions.increment();
+        }
+      }
+    }
+
+    private boolean isExpired(Entry e, long now) {
+      return expireAfterWriteNanos > 0 && now - e.written >= expireAfterWriteNanos;
+    }
+  }
+}
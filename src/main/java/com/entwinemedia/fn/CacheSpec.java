@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration of a memoization cache.
+ *
+ * @see Fns#memo(Fn, CacheSpec)
+ * @see Fns#memo(Fn2, CacheSpec)
+ */
+public final class CacheSpec {
+  private final int maxSize;
+  private final long expireAfterWriteNanos;
+
+  private CacheSpec(int maxSize, long expireAfterWriteNanos) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be greater than 0");
+    }
+    if (expireAfterWriteNanos < 0) {
+      throw new IllegalArgumentException("expiry must not be negative");
+    }
+    this.maxSize = maxSize;
+    this.expireAfterWriteNanos = expireAfterWriteNanos;
+  }
+
+  /** A cache holding at most <code>maxSize</code> entries. The least recently used entries are evicted first. */
+  public static CacheSpec lru(int maxSize) {
+    return new CacheSpec(maxSize, 0);
+  }
+
+  /** Return a copy of this spec whose entries expire <code>duration</code> after they have been computed. */
+  public CacheSpec expireAfterWrite(long duration, TimeUnit unit) {
+    return new CacheSpec(maxSize, unit.toNanos(duration));
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** Return the expiry in nanoseconds or 0 if entries never expire. */
+  public long getExpireAfterWriteNanos() {
+    return expireAfterWriteNanos;
+  }
+
+  @Override public String toString() {
+    return "CacheSpec(" + maxSize + ", " + expireAfterWriteNanos + "ns)";
+  }
+}
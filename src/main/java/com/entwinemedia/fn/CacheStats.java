@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+/** Snapshot of the counters of a memoization cache. */
+public final class CacheStats {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+
+  CacheStats(long hits, long misses, long evictions) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+  }
+
+  /** Number of lookups answered from the cache. */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Number of lookups that had to call the memoized function. */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Number of entries removed because the cache was full or the entry expired. */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /** Ratio of hits to all lookups. 0 if there have been no lookups yet. */
+  public double getHitRate() {
+    final long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  @Override public String toString() {
+    return "CacheStats(hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ")";
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoding of values of type A.
+ *
+ * @see Codecs
+ * @see ExternalSort
+ */
+public abstract class Codec<A> {
+  /** Write <code>a</code> to <code>out</code>. */
+  public abstract void write(DataOutput out, A a) throws IOException;
+
+  /** Read a value previously written by {@link #write(DataOutput, Object)}. */
+  public abstract A read(DataInput in) throws IOException;
+}
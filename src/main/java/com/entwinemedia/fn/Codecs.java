@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/** Collection of {@link Codec}s. */
+public final class Codecs {
+  private Codecs() {
+  }
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  public static final Codec<Integer> int32 = new Codec<Integer>() {
+    @Override public void write(DataOutput out, Integer a) throws IOException {
+      out.writeInt(a);
+    }
+
+    @Override public Integer read(DataInput in) throws IOException {
+      return in.readInt();
+    }
+  };
+
+  public static final Codec<Long> int64 = new Codec<Long>() {
+    @Override public void write(DataOutput out, Long a) throws IOException {
+      out.writeLong(a);
+    }
+
+    @Override public Long read(DataInput in) throws IOException {
+      return in.readLong();
+    }
+  };
+
+  public static final Codec<Double> float64 = new Codec<Double>() {
+    @Override public void write(DataOutput out, Double a) throws IOException {
+      out.writeDouble(a);
+    }
+
+    @Override public Double read(DataInput in) throws IOException {
+      return in.readDouble();
+    }
+  };
+
+  /** UTF-8 encoded, length prefixed strings. Unlike {@link DataOutput#writeUTF(String)} the length is not limited. */
+  public static final Codec<String> string = new Codec<String>() {
+    @Override public void write(DataOutput out, String a) throws IOException {
+      final byte[] bytes = a.getBytes(UTF8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    @Override public String read(DataInput in) throws IOException {
+      final byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return new String(bytes, UTF8);
+    }
+  };
+
+  /** Codec for products of arity 2. */
+  public static <A, B> Codec<P2<A, B>> p2(final Codec<A> a, final Codec<B> b) {
+    return new Codec<P2<A, B>>() {
+      @Override public void write(DataOutput out, P2<A, B> p) throws IOException {
+        a.write(out, p.get1());
+        b.write(out, p.get2());
+      }
+
+      @Override public P2<A, B> read(DataInput in) throws IOException {
+        return Products.E.p2(a.read(in), b.read(in));
+      }
+    };
+  }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+/** Binary function on <code>double</code>. Primitive specialization of <code>Fn2&lt;Double, Double, Double&gt;</code>. */
+public abstract class DoubleFn2 {
+  /** Function application. */
+  public abstract double apply(double a, double b);
+}
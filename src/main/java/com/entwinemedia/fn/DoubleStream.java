@@ -0,0 +1,351 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+import com.entwinemedia.fn.data.DoubleList;
+import com.entwinemedia.fn.data.DoubleListBuilder;
+import com.entwinemedia.fn.data.ImmutableIteratorBase;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A stream of primitive <code>double</code> values. Unlike a <code>Stream&lt;Double&gt;</code> it does not box its elements.
+ * <p/>
+ * Like a {@link Stream} it is lazy. Operations get evaluated by pushing the values of the source
+ * through all operations in a single loop once an evaluating operation like {@link #sum()} or
+ * {@link #toArray()} is called.
+ *
+ * @see Stream#mapToDouble(ToDoubleFn)
+ */
+public abstract class DoubleStream {
+  private final SizeHint sizeHint;
+
+  DoubleStream(SizeHint sizeHint) {
+    this.sizeHint = sizeHint;
+  }
+
+  /** Return a value >= 0. */
+  public int getSizeHint() {
+    return sizeHint.getSize();
+  }
+
+  /** Check if there is a size hint. */
+  public boolean hasSizeHint() {
+    return sizeHint.isKnown();
+  }
+
+  /** Return the full description of the size of the stream. */
+  public SizeHint getSizeInfo() {
+    return sizeHint;
+  }
+
+  /** Iterate the values of the stream one by one without boxing them. */
+  public abstract PrimitiveIterator.OfDouble iterator();
+
+  /**
+   * Push the values of the stream into <code>sink</code> until either the stream is exhausted
+   * or the sink refuses to take any more values.
+   * Return false if the sink stopped the iteration, true otherwise.
+   * <p/>
+   * The default implementation pulls from the iterator. Streams override it to drive their source in a single loop.
+   */
+  boolean push(DoubleSink sink) {
+    for (final PrimitiveIterator.OfDouble it = iterator(); it.hasNext(); ) {
+      if (!sink.push(it.nextDouble())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Create a stream from an array. If <code>as</code> is null create an empty stream. */
+  public static DoubleStream mk(final double... as) {
+    if (as != null && as.length > 0) {
+      return new DoubleStream(SizeHint.exact(as.length)) {
+        @Override public PrimitiveIterator.OfDouble iterator() {
+          return new ArrayIterator(as);
+        }
+
+        @Override boolean push(DoubleSink sink) {
+          for (double a : as) {
+            if (!sink.push(a)) {
+              return false;
+            }
+          }
+          return true;
+        }
+      };
+    } else {
+      return empty();
+    }
+  }
+
+  public static DoubleStream empty() {
+    return EMPTY;
+  }
+
+  private static final DoubleStream EMPTY = new DoubleStream(SizeHint.ZERO) {
+    @Override public PrimitiveIterator.OfDouble iterator() {
+      return new ArrayIterator(new double[0]);
+    }
+
+    @Override boolean push(DoubleSink sink) {
+      return true;
+    }
+  };
+
+  /** Map function <code>f</code> over the values of the stream. */
+  public final DoubleStream fmap(final DoubleFn f) {
+    return new DoubleStream(sizeHint) {
+      @Override public PrimitiveIterator.OfDouble iterator() {
+        final PrimitiveIterator.OfDouble it = DoubleStream.this.iterator();
+        return new PrimitiveIterator.OfDouble() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public double nextDouble() {
+            return f.apply(it.nextDouble());
+          }
+        };
+      }
+
+      @Override boolean push(final DoubleSink sink) {
+        return DoubleStream.this.push(new DoubleSink() {
+          @Override boolean push(double a) {
+            return sink.push(f.apply(a));
+          }
+        });
+      }
+    };
+  }
+
+  /** @see #fmap(DoubleFn) */
+  public final DoubleStream map(DoubleFn f) {
+    return fmap(f);
+  }
+
+  /** Keep all values that match predicate <code>p</code>. */
+  public final DoubleStream filter(final DoublePred p) {
+    return new DoubleStream(sizeHint.filtered()) {
+      @Override public PrimitiveIterator.OfDouble iterator() {
+        return new FilterIterator(DoubleStream.this.iterator(), p);
+      }
+
+      @Override boolean push(final DoubleSink sink) {
+        return DoubleStream.this.push(new DoubleSink() {
+          @Override boolean push(double a) {
+            return !p.apply(a) || sink.push(a);
+          }
+        });
+      }
+    };
+  }
+
+  /** Sort the values of the stream in ascending order. */
+  public final DoubleStream sort() {
+    return new DoubleStream(sizeHint) {
+      @Override public PrimitiveIterator.OfDouble iterator() {
+        final double[] as = DoubleStream.this.toArray();
+        Arrays.sort(as);
+        return new ArrayIterator(as);
+      }
+
+      @Override boolean push(DoubleSink sink) {
+        final double[] as = DoubleStream.this.toArray();
+        Arrays.sort(as);
+        for (double a : as) {
+          if (!sink.push(a)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  public final double foldl(double zero, DoubleFn2 f) {
+    final Fold fold = new Fold(zero, f);
+    push(fold);
+    return fold.sum;
+  }
+
+  /** Sum up all values. */
+  public final double sum() {
+    final Sum sum = new Sum();
+    push(sum);
+    return sum.sum;
+  }
+
+  /** Evaluate to an array. */
+  public final double[] toArray() {
+    checkFinite();
+    final ToArray buf = new ToArray(sizeHint.isExact() ? sizeHint.getSize() : 16);
+    push(buf);
+    return buf.size == buf.as.length ? buf.as : Arrays.copyOf(buf.as, buf.size);
+  }
+
+  /** Evaluate to an immutable list without boxing the values. */
+  public final DoubleList toList() {
+    checkFinite();
+    final DoubleListBuilder buf = sizeHint.isExact() ? new DoubleListBuilder(sizeHint.getSize()) : new DoubleListBuilder();
+    push(new DoubleSink() {
+      @Override boolean push(double a) {
+        buf.add(a);
+        return true;
+      }
+    });
+    return buf.build();
+  }
+
+  /** Box the values of the stream. The boxed stream pulls the values one by one when iterated. */
+  public final Stream<Double> boxed() {
+    return new Stream<Double>(sizeHint) {
+      @Override public Iterator<Double> iterator() {
+        final PrimitiveIterator.OfDouble it = DoubleStream.this.iterator();
+        return new ImmutableIteratorBase<Double>() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public Double next() {
+            return it.nextDouble();
+          }
+        };
+      }
+
+      @Override boolean push(final Sink<? super Double> sink) {
+        return DoubleStream.this.push(new DoubleSink() {
+          @Override boolean push(double a) {
+            return sink.push(a);
+          }
+        });
+      }
+    };
+  }
+
+  /** Fail fast instead of running out of memory when trying to collect an infinite stream. */
+  private void checkFinite() {
+    if (sizeHint.isInfinite()) {
+      throw new IllegalStateException("Cannot collect the values of an infinite stream");
+    }
+  }
+
+  /** Push based consumer of <code>double</code> values. */
+  abstract static class DoubleSink {
+    /** Consume value <code>a</code>. Return false to stop the stream from pushing any further values. */
+    abstract boolean push(double a);
+  }
+
+  private static final class Fold extends DoubleSink {
+    private final DoubleFn2 f;
+    private double sum;
+
+    private Fold(double zero, DoubleFn2 f) {
+      this.sum = zero;
+      this.f = f;
+    }
+
+    @Override boolean push(double a) {
+      sum = f.apply(sum, a);
+      return true;
+    }
+  }
+
+  private static final class Sum extends DoubleSink {
+    private double sum;
+
+    @Override boolean push(double a) {
+      sum += a;
+      return true;
+    }
+  }
+
+  private static final class ToArray extends DoubleSink {
+    private double[] as;
+    private int size;
+
+    private ToArray(int capacity) {
+      this.as = new double[Math.max(capacity, 1)];
+    }
+
+    @Override boolean push(double a) {
+      if (size == as.length) {
+        as = Arrays.copyOf(as, size + (size >> 1) + 1);
+      }
+      as[size++] = a;
+      return true;
+    }
+  }
+
+  private static final class ArrayIterator implements PrimitiveIterator.OfDouble {
+    private final double[] as;
+    private int i;
+
+    private ArrayIterator(double[] as) {
+      this.as = as;
+    }
+
+    @Override public boolean hasNext() {
+      return i < as.length;
+    }
+
+    @Override public double nextDouble() {
+      if (hasNext()) {
+        return as[i++];
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  /** Iterator skipping the values that do not match a predicate. Looks ahead one value. */
+  private static final class FilterIterator implements PrimitiveIterator.OfDouble {
+    private final PrimitiveIterator.OfDouble it;
+    private final DoublePred p;
+    private boolean ready;
+    private double next;
+
+    private FilterIterator(PrimitiveIterator.OfDouble it, DoublePred p) {
+      this.it = it;
+      this.p = p;
+    }
+
+    @Override public boolean hasNext() {
+      while (!ready && it.hasNext()) {
+        final double a = it.nextDouble();
+        if (p.apply(a)) {
+          next = a;
+          ready = true;
+        }
+      }
+      return ready;
+    }
+
+    @Override public double nextDouble() {
+      if (hasNext()) {
+        ready = false;
+        return next;
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+import static com.entwinemedia.fn.Prelude.chuck;
+
+import com.entwinemedia.fn.data.ImmutableIteratorBase;
+import com.entwinemedia.fn.data.ImmutableIterators;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * External merge sort for streams that do not fit into memory.
+ * <p/>
+ * The stream is cut into runs of at most <code>runSize</code> elements. Each run is sorted in memory
+ * and spilled to a temporary file using a {@link Codec}. The sorted stream is then merged lazily from the
+ * run files. A file is deleted as soon as it has been read completely or if the sort fails.
+ * Evaluating operations like <code>take(k).toList()</code> or <code>head()</code> that stop early
+ * close the merge and delete the remaining files right away. Iterators of the sorted stream that are
+ * not read to the end hold their files open until the {@link SortedStream} is {@linkplain SortedStream#close() closed}.
+ * As a last resort the files are deleted when the JVM exits.
+ * Streams that fit into a single run are sorted in memory without touching the disk.
+ * <p/>
+ * Note that the memory budget is given as the number of elements of a run, not in bytes.
+ * <p/>
+ * The sort is stable. Each iteration of the sorted stream evaluates and sorts the source stream again.
+ *
+ * @see Stream#externalSort(Comparator, ExternalSort)
+ */
+public final class ExternalSort<A> {
+  /** Maximum number of runs that are merged at once. More runs are merged in multiple passes. */
+  private static final int MAX_MERGE = 64;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Codec<A> codec;
+  private final int runSize;
+  private final File tmpDir;
+
+  private ExternalSort(Codec<A> codec, int runSize, File tmpDir) {
+    if (runSize < 1) {
+      throw new IllegalArgumentException("runSize must be greater than 0");
+    }
+    this.codec = codec;
+    this.runSize = runSize;
+    this.tmpDir = tmpDir;
+  }
+
+  /**
+   * Create an external sort keeping at most <code>runSize</code> elements in memory.
+   * Runs are stored in the default temporary-file directory.
+   */
+  public static <A> ExternalSort<A> mk(Codec<A> codec, int runSize) {
+    return new ExternalSort<A>(codec, runSize, null);
+  }
+
+  /**
+   * Create an external sort keeping at most <code>runSize</code> elements in memory.
+   * Runs are stored in directory <code>tmpDir</code>.
+   */
+  public static <A> ExternalSort<A> mk(Codec<A> codec, int runSize, File tmpDir) {
+    return new ExternalSort<A>(codec, runSize, tmpDir);
+  }
+
+  /** Sort stream <code>s</code>. */
+  public SortedStream<A> sort(Comparator<? super A> order, Stream<A> s) {
+    return new SortedStream<A>(this, order, s);
+  }
+
+  /** Sort <code>s</code>. A merge of run files is added to <code>open</code>. */
+  private Iterator<A> iterator(Comparator<? super A> order, Stream<A> s, List<Merge> open) {
+    final Spill spill = new Spill(order);
+    List<Run> runs = spill.runs;
+    boolean done = false;
+    try {
+      s.push(spill);
+      final Iterator<A> sorted;
+      if (spill.runs.isEmpty()) {
+        Collections.sort(spill.buf, order);
+        sorted = ImmutableIterators.mk(spill.buf);
+      } else {
+        if (!spill.buf.isEmpty()) {
+          spill.spill();
+        }
+        while (runs.size() > MAX_MERGE) {
+          runs = mergePass(runs, order);
+        }
+        final Merge merge = new Merge(runs, order);
+        synchronized (open) {
+          open.add(merge);
+        }
+        sorted = merge;
+      }
+      done = true;
+      return sorted;
+    } finally {
+      if (!done) {
+        delete(runs);
+      }
+    }
+  }
+
+  /**
+   * Merge groups of adjacent runs. Merging adjacent runs only keeps the sort stable.
+   * If the pass fails the merged runs are deleted. The caller still owns the input runs.
+   */
+  private List<Run> mergePass(List<Run> runs, Comparator<? super A> order) {
+    final List<Run> merged = new ArrayList<Run>();
+    boolean done = false;
+    try {
+      for (int i = 0; i < runs.size(); i += MAX_MERGE) {
+        final Merge merge = new Merge(runs.subList(i, Math.min(i + MAX_MERGE, runs.size())), order);
+        try {
+          merged.add(write(merge));
+        } finally {
+          merge.close();
+        }
+      }
+      done = true;
+      return merged;
+    } finally {
+      if (!done) {
+        delete(merged);
+      }
+    }
+  }
+
+  private static void delete(List<Run> runs) {
+    for (Run run : runs) {
+      run.delete();
+    }
+  }
+
+  /** Write all elements of <code>as</code> to a new run file. */
+  private Run write(Iterator<A> as) {
+    File file = null;
+    boolean done = false;
+    try {
+      file = File.createTempFile("fn-sort-", ".run", tmpDir);
+      file.deleteOnExit();
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+      long size = 0;
+      try {
+        while (as.hasNext()) {
+          codec.write(out, as.next());
+          size++;
+        }
+      } finally {
+        out.close();
+      }
+      done = true;
+      return new Run(file, size);
+    } catch (IOException e) {
+      return chuck(e);
+    } finally {
+      if (!done && file != null) {
+        file.delete();
+      }
+    }
+  }
+
+  /** A sorted run of <code>size</code> elements stored in <code>file</code>. */
+  private static final class Run {
+    private final File file;
+    private final long size;
+
+    private Run(File file, long size) {
+      this.file = file;
+      this.size = size;
+    }
+
+    private void delete() {
+      file.delete();
+    }
+  }
+
+  /** Sink collecting the elements of the stream into sorted runs. */
+  private final class Spill extends Sink<A> {
+    private final Comparator<? super A> order;
+    private final List<A> buf = new ArrayList<A>();
+    private final List<Run> runs = new ArrayList<Run>();
+
+    private Spill(Comparator<? super A> order) {
+      this.order = order;
+    }
+
+    @Override boolean push(A a) {
+      buf.add(a);
+      if (buf.size() >= runSize) {
+        spill();
+      }
+      return true;
+    }
+
+    private void spill() {
+      Collections.sort(buf, order);
+      runs.add(write(buf.iterator()));
+      buf.clear();
+    }
+  }
+
+  /** Reads the elements of a run one by one. */
+  private final class Reader {
+    private final Run run;
+    /** Position of the run. Used to keep the merge stable. */
+    private final int index;
+    private DataInputStream in;
+    private long remaining;
+    private A head;
+
+    private Reader(Run run, int index) {
+      this.run = run;
+      this.index = index;
+      this.remaining = run.size;
+    }
+
+    /**
+     * Read the next element into <code>head</code>.
+     * Return false and delete the run if it is exhausted. The run is also deleted if reading fails.
+     */
+    private boolean advance() {
+      boolean read = false;
+      try {
+        if (remaining > 0) {
+          if (in == null) {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file), BUFFER_SIZE));
+          }
+          head = codec.read(in);
+          remaining--;
+          read = true;
+        }
+        return read;
+      } catch (IOException e) {
+        return chuck(e);
+      } finally {
+        if (!read) {
+          close();
+        }
+      }
+    }
+
+    /** Close the file and delete the run. Closing a closed reader does nothing. */
+    private void close() {
+      head = null;
+      try {
+        if (in != null) {
+          in.close();
+        }
+      } catch (IOException ignore) {
+      } finally {
+        in = null;
+      }
+      run.delete();
+    }
+  }
+
+  /**
+   * Lazy k-way merge of sorted runs. The merge owns the runs and deletes them when it is exhausted,
+   * when it fails or when it is closed.
+   */
+  private final class Merge extends ImmutableIteratorBase<A> implements Closeable {
+    private final PriorityQueue<Reader> queue;
+
+    private Merge(List<Run> runs, final Comparator<? super A> order) {
+      this.queue = new PriorityQueue<Reader>(Math.max(runs.size(), 1), new Comparator<Reader>() {
+        @Override public int compare(Reader a, Reader b) {
+          final int c = order.compare(a.head, b.head);
+          return c != 0 ? c : a.index - b.index;
+        }
+      });
+      boolean done = false;
+      try {
+        for (int i = 0; i < runs.size(); i++) {
+          final Reader reader = new Reader(runs.get(i), i);
+          if (reader.advance()) {
+            queue.add(reader);
+          }
+        }
+        done = true;
+      } finally {
+        if (!done) {
+          close();
+        }
+      }
+    }
+
+    @Override public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override public A next() {
+      final Reader reader = queue.poll();
+      if (reader != null) {
+        final A a = reader.head;
+        boolean done = false;
+        try {
+          if (reader.advance()) {
+            queue.add(reader);
+          }
+          done = true;
+        } finally {
+          if (!done) {
+            reader.close();
+            close();
+          }
+        }
+        return a;
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+
+    /** Close all files and delete the runs that have not been read yet. */
+    @Override public void close() {
+      for (Reader reader : queue) {
+        reader.close();
+      }
+      queue.clear();
+    }
+  }
+
+  /**
+   * The sorted stream. Evaluating operations close their merge when they return.
+   * Call {@link #close()} to release the files of iterators that have not been read to the end, e.g.
+   * <pre>
+   *   try (ExternalSort.SortedStream&lt;Rec&gt; sorted = recs.externalSort(order, sort)) {
+   *     final Iterator&lt;Rec&gt; it = sorted.iterator();
+   *     ...
+   *   }
+   * </pre>
+   */
+  public static final class SortedStream<A> extends Stream<A> implements Closeable {
+    private final ExternalSort<A> sort;
+    private final Comparator<? super A> order;
+    private final Stream<A> s;
+    /** Merges of the iterators handed out. Guarded by itself. */
+    private final List<ExternalSort<A>.Merge> open = new ArrayList<ExternalSort<A>.Merge>();
+
+    private SortedStream(ExternalSort<A> sort, Comparator<? super A> order, Stream<A> s) {
+      super(s.getSizeInfo());
+      this.sort = sort;
+      this.order = order;
+      this.s = s;
+    }
+
+    @Override public Iterator<A> iterator() {
+      synchronized (open) {
+        // forget the merges that have been read to the end
+        for (final Iterator<ExternalSort<A>.Merge> it = open.iterator(); it.hasNext(); ) {
+          if (!it.next().hasNext()) {
+            it.remove();
+          }
+        }
+      }
+      return sort.iterator(order, s, open);
+    }
+
+    @Override boolean push(Sink<? super A> sink) {
+      final Iterator<A> it = iterator();
+      try {
+        while (it.hasNext()) {
+          if (!sink.push(it.next())) {
+            return false;
+          }
+        }
+        return true;
+      } finally {
+        close(it);
+      }
+    }
+
+    /** Close all iterators of the stream and delete their remaining run files. The stream can still be evaluated again. */
+    @Override public void close() {
+      synchronized (open) {
+        for (ExternalSort<A>.Merge merge : open) {
+          merge.close();
+        }
+        open.clear();
+      }
+    }
+
+    private void close(Iterator<A> it) {
+      synchronized (open) {
+        for (final Iterator<ExternalSort<A>.Merge> ms = open.iterator(); ms.hasNext(); ) {
+          final ExternalSort<A>.Merge merge = ms.next();
+          if (merge == it) {
+            merge.close();
+            ms.remove();
+          }
+        }
+      }
+    }
+  }
+}
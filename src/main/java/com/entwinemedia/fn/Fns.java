@@ -242,6 +242,22 @@ public final class Fns {
     };
   }
 
+  /**
+   * Memoize function <code>f</code> in a bounded cache configured by <code>spec</code>.
+   * The returned function may be shared between threads.
+   */
+  public static <A, B> MemoFn<A, B> memo(Fn<? super A, ? extends B> f, CacheSpec spec) {
+    return new MemoFn<A, B>(f, spec);
+  }
+
+  /**
+   * Memoize function <code>f</code> in a bounded cache configured by <code>spec</code>.
+   * The returned function may be shared between threads.
+   */
+  public static <A, B, C> MemoFn2<A, B, C> memo(Fn2<? super A, ? super B, ? extends C> f, CacheSpec spec) {
+    return new MemoFn2<A, B, C>(f, spec);
+  }
+
 //  /**
 //   * Create a new Fun from <code>f</code> decorated with an exception transformer. Any exception that occurs during
 //   * application of <code>f</code> is passed to <code>transformer</code> whose return value is then being thrown.
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+import com.entwinemedia.fn.data.ImmutableIteratorBase;
+import com.entwinemedia.fn.data.IntList;
+import com.entwinemedia.fn.data.IntListBuilder;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A stream of primitive <code>int</code> values. Unlike a <code>Stream&lt;Integer&gt;</code> it does not box its elements.
+ * <p/>
+ * Like a {@link Stream} it is lazy. Operations get evaluated by pushing the values of the source
+ * through all operations in a single loop once an evaluating operation like {@link #sum()} or
+ * {@link #toArray()} is called.
+ *
+ * @see Stream#mapToInt(ToIntFn)
+ */
+public abstract class IntStream {
+  private final SizeHint sizeHint;
+
+  IntStream(SizeHint sizeHint) {
+    this.sizeHint = sizeHint;
+  }
+
+  /** Return a value >= 0. */
+  public int getSizeHint() {
+    return sizeHint.getSize();
+  }
+
+  /** Check if there is a size hint. */
+  public boolean hasSizeHint() {
+    return sizeHint.isKnown();
+  }
+
+  /** Return the full description of the size of the stream. */
+  public SizeHint getSizeInfo() {
+    return sizeHint;
+  }
+
+  /** Iterate the values of the stream one by one without boxing them. */
+  public abstract PrimitiveIterator.OfInt iterator();
+
+  /**
+   * Push the values of the stream into <code>sink</code> until either the stream is exhausted
+   * or the sink refuses to take any more values.
+   * Return false if the sink stopped the iteration, true otherwise.
+   * <p/>
+   * The default implementation pulls from the iterator. Streams override it to drive their source in a single loop.
+   */
+  boolean push(IntSink sink) {
+    for (final PrimitiveIterator.OfInt it = iterator(); it.hasNext(); ) {
+      if (!sink.push(it.nextInt())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Create a stream from an array. If <code>as</code> is null create an empty stream. */
+  public static IntStream mk(final int... as) {
+    if (as != null && as.length > 0) {
+      return new IntStream(SizeHint.exact(as.length)) {
+        @Override public PrimitiveIterator.OfInt iterator() {
+          return new ArrayIterator(as);
+        }
+
+        @Override boolean push(IntSink sink) {
+          for (int a : as) {
+            if (!sink.push(a)) {
+              return false;
+            }
+          }
+          return true;
+        }
+      };
+    } else {
+      return empty();
+    }
+  }
+
+  /** Create a stream of the values from <code>from</code> (inclusive) to <code>to</code> (exclusive). */
+  public static IntStream range(final int from, final int to) {
+    return new IntStream(rangeSizeHint(from, to)) {
+      @Override public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+          private int a = from;
+
+          @Override public boolean hasNext() {
+            return a < to;
+          }
+
+          @Override public int nextInt() {
+            if (hasNext()) {
+              return a++;
+            } else {
+              throw new NoSuchElementException();
+            }
+          }
+        };
+      }
+
+      @Override boolean push(IntSink sink) {
+        for (int a = from; a < to; a++) {
+          if (!sink.push(a)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  private static SizeHint rangeSizeHint(int from, int to) {
+    final long size = (long) to - from;
+    if (from >= to) {
+      return SizeHint.ZERO;
+    } else {
+      return size > 0 && size <= Integer.MAX_VALUE ? SizeHint.exact((int) size) : SizeHint.UNKNOWN;
+    }
+  }
+
+  public static IntStream empty() {
+    return EMPTY;
+  }
+
+  private static final IntStream EMPTY = new IntStream(SizeHint.ZERO) {
+    @Override public PrimitiveIterator.OfInt iterator() {
+      return new ArrayIterator(new int[0]);
+    }
+
+    @Override boolean push(IntSink sink) {
+      return true;
+    }
+  };
+
+  /** Map function <code>f</code> over the values of the stream. */
+  public final IntStream fmap(final IntFn f) {
+    return new IntStream(sizeHint) {
+      @Override public PrimitiveIterator.OfInt iterator() {
+        final PrimitiveIterator.OfInt it = IntStream.this.iterator();
+        return new PrimitiveIterator.OfInt() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public int nextInt() {
+            return f.apply(it.nextInt());
+          }
+        };
+      }
+
+      @Override boolean push(final IntSink sink) {
+        return IntStream.this.push(new IntSink() {
+          @Override boolean push(int a) {
+            return sink.push(f.apply(a));
+          }
+        });
+      }
+    };
+  }
+
+  /** @see #fmap(IntFn) */
+  public final IntStream map(IntFn f) {
+    return fmap(f);
+  }
+
+  /** Keep all values that match predicate <code>p</code>. */
+  public final IntStream filter(final IntPred p) {
+    return new IntStream(sizeHint.filtered()) {
+      @Override public PrimitiveIterator.OfInt iterator() {
+        return new FilterIterator(IntStream.this.iterator(), p);
+      }
+
+      @Override boolean push(final IntSink sink) {
+        return IntStream.this.push(new IntSink() {
+          @Override boolean push(int a) {
+            return !p.apply(a) || sink.push(a);
+          }
+        });
+      }
+    };
+  }
+
+  /** Sort the values of the stream in ascending order. */
+  public final IntStream sort() {
+    return new IntStream(sizeHint) {
+      @Override public PrimitiveIterator.OfInt iterator() {
+        final int[] as = IntStream.this.toArray();
+        Arrays.sort(as);
+        return new ArrayIterator(as);
+      }
+
+      @Override boolean push(IntSink sink) {
+        final int[] as = IntStream.this.toArray();
+        Arrays.sort(as);
+        for (int a : as) {
+          if (!sink.push(a)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  public final int foldl(int zero, IntFn2 f) {
+    final Fold fold = new Fold(zero, f);
+    push(fold);
+    return fold.sum;
+  }
+
+  /** Sum up all values. */
+  public final int sum() {
+    final Sum sum = new Sum();
+    push(sum);
+    return sum.sum;
+  }
+
+  /** Evaluate to an array. */
+  public final int[] toArray() {
+    checkFinite();
+    final ToArray buf = new ToArray(sizeHint.isExact() ? sizeHint.getSize() : 16);
+    push(buf);
+    return buf.size == buf.as.length ? buf.as : Arrays.copyOf(buf.as, buf.size);
+  }
+
+  /** Evaluate to an immutable list without boxing the values. */
+  public final IntList toList() {
+    checkFinite();
+    final IntListBuilder buf = sizeHint.isExact() ? new IntListBuilder(sizeHint.getSize()) : new IntListBuilder();
+    push(new IntSink() {
+      @Override boolean push(int a) {
+        buf.add(a);
+        return true;
+      }
+    });
+    return buf.build();
+  }
+
+  /** Box the values of the stream. The boxed stream pulls the values one by one when iterated. */
+  public final Stream<Integer> boxed() {
+    return new Stream<Integer>(sizeHint) {
+      @Override public Iterator<Integer> iterator() {
+        final PrimitiveIterator.OfInt it = IntStream.this.iterator();
+        return new ImmutableIteratorBase<Integer>() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public Integer next() {
+            return it.nextInt();
+          }
+        };
+      }
+
+      @Override boolean push(final Sink<? super Integer> sink) {
+        return IntStream.this.push(new IntSink() {
+          @Override boolean push(int a) {
+            return sink.push(a);
+          }
+        });
+      }
+    };
+  }
+
+  /** Fail fast instead of running out of memory when trying to collect an infinite stream. */
+  private void checkFinite() {
+    if (sizeHint.isInfinite()) {
+      throw new IllegalStateException("Cannot collect the values of an infinite stream");
+    }
+  }
+
+  /** Push based consumer of <code>int</code> values. */
+  abstract static class IntSink {
+    /** Consume value <code>a</code>. Return false to stop the stream from pushing any further values. */
+    abstract boolean push(int a);
+  }
+
+  private static final class Fold extends IntSink {
+    private final IntFn2 f;
+    private int sum;
+
+    private Fold(int zero, IntFn2 f) {
+      this.sum = zero;
+      this.f = f;
+    }
+
+    @Override boolean push(int a) {
+      sum = f.apply(sum, a);
+      return true;
+    }
+  }
+
+  private static final class Sum extends IntSink {
+    private int sum;
+
+    @Override boolean push(int a) {
+      sum += a;
+      return true;
+    }
+  }
+
+  private static final class ToArray extends IntSink {
+    private int[] as;
+    private int size;
+
+    private ToArray(int capacity) {
+      this.as = new int[Math.max(capacity, 1)];
+    }
+
+    @Override boolean push(int a) {
+      if (size == as.length) {
+        as = Arrays.copyOf(as, size + (size >> 1) + 1);
+      }
+      as[size++] = a;
+      return true;
+    }
+  }
+
+  private static final class ArrayIterator implements PrimitiveIterator.OfInt {
+    private final int[] as;
+    private int i;
+
+    private ArrayIterator(int[] as) {
+      this.as = as;
+    }
+
+    @Override public boolean hasNext() {
+      return i < as.length;
+    }
+
+    @Override public int nextInt() {
+      if (hasNext()) {
+        return as[i++];
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  /** Iterator skipping the values that do not match a predicate. Looks ahead one value. */
+  private static final class FilterIterator implements PrimitiveIterator.OfInt {
+    private final PrimitiveIterator.OfInt it;
+    private final IntPred p;
+    private boolean ready;
+    private int next;
+
+    private FilterIterator(PrimitiveIterator.OfInt it, IntPred p) {
+      this.it = it;
+      this.p = p;
+    }
+
+    @Override public boolean hasNext() {
+      while (!ready && it.hasNext()) {
+        final int a = it.nextInt();
+        if (p.apply(a)) {
+          next = a;
+          ready = true;
+        }
+      }
+      return ready;
+    }
+
+    @Override public int nextInt() {
+      if (hasNext()) {
+        ready = false;
+        return next;
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+}
@@ -21,6 +21,14 @@ public class LazyProductBuilder extends EagerProductBuilder {
     return P1Lazy.p(a);
   }
 
+  /**
+   * Create a product whose value is computed from <code>p</code> on first access.
+   * The value is computed only once, even if accessed concurrently.
+   */
+  public <A> P1<A> lazy(P1<? extends A> p) {
+    return P1Memo.memo(p);
+  }
+
   @Override public <A, B> P2<A, B> p2(A a, B b) {
     return new P2Eager<A, B>(a, b);
   }
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+import com.entwinemedia.fn.data.ImmutableIteratorBase;
+import com.entwinemedia.fn.data.LongList;
+import com.entwinemedia.fn.data.LongListBuilder;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A stream of primitive <code>long</code> values. Unlike a <code>Stream&lt;Long&gt;</code> it does not box its elements.
+ * <p/>
+ * Like a {@link Stream} it is lazy. Operations get evaluated by pushing the values of the source
+ * through all operations in a single loop once an evaluating operation like {@link #sum()} or
+ * {@link #toArray()} is called.
+ *
+ * @see Stream#mapToLong(ToLongFn)
+ */
+public abstract class LongStream {
+  private final SizeHint sizeHint;
+
+  LongStream(SizeHint sizeHint) {
+    this.sizeHint = sizeHint;
+  }
+
+  /** Return a value >= 0. */
+  public int getSizeHint() {
+    return sizeHint.getSize();
+  }
+
+  /** Check if there is a size hint. */
+  public boolean hasSizeHint() {
+    return sizeHint.isKnown();
+  }
+
+  /** Return the full description of the size of the stream. */
+  public SizeHint getSizeInfo() {
+    return sizeHint;
+  }
+
+  /** Iterate the values of the stream one by one without boxing them. */
+  public abstract PrimitiveIterator.OfLong iterator();
+
+  /**
+   * Push the values of the stream into <code>sink</code> until either the stream is exhausted
+   * or the sink refuses to take any more values.
+   * Return false if the sink stopped the iteration, true otherwise.
+   * <p/>
+   * The default implementation pulls from the iterator. Streams override it to drive their source in a single loop.
+   */
+  boolean push(LongSink sink) {
+    for (final PrimitiveIterator.OfLong it = iterator(); it.hasNext(); ) {
+      if (!sink.push(it.nextLong())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Create a stream from an array. If <code>as</code> is null create an empty stream. */
+  public static LongStream mk(final long... as) {
+    if (as != null && as.length > 0) {
+      return new LongStream(SizeHint.exact(as.length)) {
+        @Override public PrimitiveIterator.OfLong iterator() {
+          return new ArrayIterator(as);
+        }
+
+        @Override boolean push(LongSink sink) {
+          for (long a : as) {
+            if (!sink.push(a)) {
+              return false;
+            }
+          }
+          return true;
+        }
+      };
+    } else {
+      return empty();
+    }
+  }
+
+  /** Create a stream of the values from <code>from</code> (inclusive) to <code>to</code> (exclusive). */
+  public static LongStream range(final long from, final long to) {
+    return new LongStream(rangeSizeHint(from, to)) {
+      @Override public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+          private long a = from;
+
+          @Override public boolean hasNext() {
+            return a < to;
+          }
+
+          @Override public long nextLong() {
+            if (hasNext()) {
+              return a++;
+            } else {
+              throw new NoSuchElementException();
+            }
+          }
+        };
+      }
+
+      @Override boolean push(LongSink sink) {
+        for (long a = from; a < to; a++) {
+          if (!sink.push(a)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  private static SizeHint rangeSizeHint(long from, long to) {
+    final long size = to - from;
+    if (from >= to) {
+      return SizeHint.ZERO;
+    } else {
+      return size > 0 && size <= Integer.MAX_VALUE ? SizeHint.exact((int) size) : SizeHint.UNKNOWN;
+    }
+  }
+
+  public static LongStream empty() {
+    return EMPTY;
+  }
+
+  private static final LongStream EMPTY = new LongStream(SizeHint.ZERO) {
+    @Override public PrimitiveIterator.OfLong iterator() {
+      return new ArrayIterator(new long[0]);
+    }
+
+    @Override boolean push(LongSink sink) {
+      return true;
+    }
+  };
+
+  /** Map function <code>f</code> over the values of the stream. */
+  public final LongStream fmap(final LongFn f) {
+    return new LongStream(sizeHint) {
+      @Override public PrimitiveIterator.OfLong iterator() {
+        final PrimitiveIterator.OfLong it = LongStream.this.iterator();
+        return new PrimitiveIterator.OfLong() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public long nextLong() {
+            return f.apply(it.nextLong());
+          }
+        };
+      }
+
+      @Override boolean push(final LongSink sink) {
+        return LongStream.this.push(new LongSink() {
+          @Override boolean push(long a) {
+            return sink.push(f.apply(a));
+          }
+        });
+      }
+    };
+  }
+
+  /** @see #fmap(LongFn) */
+  public final LongStream map(LongFn f) {
+    return fmap(f);
+  }
+
+  /** Keep all values that match predicate <code>p</code>. */
+  public final LongStream filter(final LongPred p) {
+    return new LongStream(sizeHint.filtered()) {
+      @Override public PrimitiveIterator.OfLong iterator() {
+        return new FilterIterator(LongStream.this.iterator(), p);
+      }
+
+      @Override boolean push(final LongSink sink) {
+        return LongStream.this.push(new LongSink() {
+          @Override boolean push(long a) {
+            return !p.apply(a) || sink.push(a);
+          }
+        });
+      }
+    };
+  }
+
+  /** Sort the values of the stream in ascending order. */
+  public final LongStream sort() {
+    return new LongStream(sizeHint) {
+      @Override public PrimitiveIterator.OfLong iterator() {
+        final long[] as = LongStream.this.toArray();
+        Arrays.sort(as);
+        return new ArrayIterator(as);
+      }
+
+      @Override boolean push(LongSink sink) {
+        final long[] as = LongStream.this.toArray();
+        Arrays.sort(as);
+        for (long a : as) {
+          if (!sink.push(a)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  public final long foldl(long zero, LongFn2 f) {
+    final Fold fold = new Fold(zero, f);
+    push(fold);
+    return fold.sum;
+  }
+
+  /** Sum up all values. */
+  public final long sum() {
+    final Sum sum = new Sum();
+    push(sum);
+    return sum.sum;
+  }
+
+  /** Evaluate to an array. */
+  public final long[] toArray() {
+    checkFinite();
+    final ToArray buf = new ToArray(sizeHint.isExact() ? sizeHint.getSize() : 16);
+    push(buf);
+    return buf.size == buf.as.length ? buf.as : Arrays.copyOf(buf.as, buf.size);
+  }
+
+  /** Evaluate to an immutable list without boxing the values. */
+  public final LongList toList() {
+    checkFinite();
+    final LongListBuilder buf = sizeHint.isExact() ? new LongListBuilder(sizeHint.getSize()) : new LongListBuilder();
+    push(new LongSink() {
+      @Override boolean push(long a) {
+        buf.add(a);
+        return true;
+      }
+    });
+    return buf.build();
+  }
+
+  /** Box the values of the stream. The boxed stream pulls the values one by one when iterated. */
+  public final Stream<Long> boxed() {
+    return new Stream<Long>(sizeHint) {
+      @Override public Iterator<Long> iterator() {
+        final PrimitiveIterator.OfLong it = LongStream.this.iterator();
+        return new ImmutableIteratorBase<Long>() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public Long next() {
+            return it.nextLong();
+          }
+        };
+      }
+
+      @Override boolean push(final Sink<? super Long> sink) {
+        return LongStream.this.push(new LongSink() {
+          @Override boolean push(long a) {
+            return sink.push(a);
+          }
+        });
+      }
+    };
+  }
+
+  /** Fail fast instead of running out of memory when trying to collect an infinite stream. */
+  private void checkFinite() {
+    if (sizeHint.isInfinite()) {
+      throw new IllegalStateException("Cannot collect the values of an infinite stream");
+    }
+  }
+
+  /** Push based consumer of <code>long</code> values. */
+  abstract static class LongSink {
+    /** Consume value <code>a</code>. Return false to stop the stream from pushing any further values. */
+    abstract boolean push(long a);
+  }
+
+  private static final class Fold extends LongSink {
+    private final LongFn2 f;
+    private long sum;
+
+    private Fold(long zero, LongFn2 f) {
+      this.sum = zero;
+      this.f = f;
+    }
+
+    @Override boolean push(long a) {
+      sum = f.apply(sum, a);
+      return true;
+    }
+  }
+
+  private static final class Sum extends LongSink {
+    private long sum;
+
+    @Override boolean push(long a) {
+      sum += a;
+      return true;
+    }
+  }
+
+  private static final class ToArray extends LongSink {
+    private long[] as;
+    private int size;
+
+    private ToArray(int capacity) {
+      this.as = new long[Math.max(capacity, 1)];
+    }
+
+    @Override boolean push(long a) {
+      if (size == as.length) {
+        as = Arrays.copyOf(as, size + (size >> 1) + 1);
+      }
+      as[size++] = a;
+      return true;
+    }
+  }
+
+  private static final class ArrayIterator implements PrimitiveIterator.OfLong {
+    private final long[] as;
+    private int i;
+
+    private ArrayIterator(long[] as) {
+      this.as = as;
+    }
+
+    @Override public boolean hasNext() {
+      return i < as.length;
+    }
+
+    @Override public long nextLong() {
+      if (hasNext()) {
+        return as[i++];
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  /** Iterator skipping the values that do not match a predicate. Looks ahead one value. */
+  private static final class FilterIterator implements PrimitiveIterator.OfLong {
+    private final PrimitiveIterator.OfLong it;
+    private final LongPred p;
+    private boolean ready;
+    private long next;
+
+    private FilterIterator(PrimitiveIterator.OfLong it, LongPred p) {
+      this.it = it;
+      this.p = p;
+    }
+
+    @Override public boolean hasNext() {
+      while (!ready && it.hasNext()) {
+        final long a = it.nextLong();
+        if (p.apply(a)) {
+          next = a;
+          ready = true;
+        }
+      }
+      return ready;
+    }
+
+    @Override public long nextLong() {
+      if (hasNext()) {
+        ready = false;
+        return next;
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+}
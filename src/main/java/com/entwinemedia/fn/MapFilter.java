@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+/**
+ * A chain of maps and filters evaluated in a single step.
+ * Elements mapping to null are skipped, just like the fmap and filter stages the chain replaces.
+ */
+final class MapFilter {
+  static final MapFilter EMPTY = new MapFilter(new Fn<?, ?>[0], new boolean[0]);
+
+  private final Fn<?, ?>[] fs;
+  /** Marks the functions of <code>fs</code> that are predicates, i.e. instances of {@link Pred}. */
+  private final boolean[] filter;
+
+  private MapFilter(Fn<?, ?>[] fs, boolean[] filter) {
+    this.fs = fs;
+    this.filter = filter;
+  }
+
+  static MapFilter map(Fn<?, ?> f) {
+    return new MapFilter(new Fn<?, ?>[]{f}, new boolean[]{false});
+  }
+
+  static <A> MapFilter filter(Fn<? super A, Boolean> p) {
+    return new MapFilter(new Fn<?, ?>[]{Pred.<A>mk(p)}, new boolean[]{true});
+  }
+
+  boolean isEmpty() {
+    return fs.length == 0;
+  }
+
+  /** Check if the chain contains a filter, i.e. if it may remove elements other than nulls. */
+  boolean hasFilter() {
+    for (boolean f : filter) {
+      if (f) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Append chain <code>next</code> to this chain. */
+  MapFilter append(MapFilter next) {
+    final Fn<?, ?>[] fs = new Fn<?, ?>[this.fs.length + next.fs.length];
+    final boolean[] filter = new boolean[fs.length];
+    System.arraycopy(this.fs, 0, fs, 0, this.fs.length);
+    System.arraycopy(next.fs, 0, fs, this.fs.length, next.fs.length);
+    System.arraycopy(this.filter, 0, filter, 0, this.filter.length);
+    System.arraycopy(next.filter, 0, filter, this.filter.length, next.filter.length);
+    return new MapFilter(fs, filter);
+  }
+
+  /**
+   * Run <code>a</code> through the chain. Return null if the element is to be skipped.
+   * <p/>
+   * The functions of the chain have different types, so they are stored with their types erased and cast back
+   * here. The casts are safe since stream operations only append functions that accept the output of the
+   * previous one.
+   */
+  @SuppressWarnings("unchecked")
+  Object apply(Object a) {
+    Object x = a;
+    for (int i = 0; i < fs.length; i++) {
+      if (filter[i]) {
+        if (!((Pred<Object>) fs[i]).test(x)) {
+          return null;
+        }
+      } else {
+        x = ((Fn<Object, ?>) fs[i]).apply(x);
+      }
+      if (x == null) {
+        return null;
+      }
+    }
+    return x;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+/**
+ * A function whose results are kept in a bounded cache.
+ *
+ * @see Fns#memo(Fn, CacheSpec)
+ */
+public final class MemoFn<A, B> extends Fn<A, B> {
+  private final Fn<? super A, ? extends B> f;
+  private final Cache<A, B> cache;
+
+  MemoFn(Fn<? super A, ? extends B> f, CacheSpec spec) {
+    this.f = f;
+    this.cache = new Cache<A, B>(spec);
+  }
+
+  @Override public B apply(A a) {
+    return cache.get(a, f);
+  }
+
+  /** Return a snapshot of the cache counters. */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /** Remove all cached results. */
+  public void clear() {
+    cache.clear();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+/**
+ * A function of arity 2 whose results are kept in a bounded cache.
+ * Arguments are cached as pairs, so they need to implement {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ *
+ * @see Fns#memo(Fn2, CacheSpec)
+ */
+public final class MemoFn2<A, B, C> extends Fn2<A, B, C> {
+  private final Fn<P2<A, B>, C> f;
+  private final Cache<P2<A, B>, C> cache;
+
+  MemoFn2(final Fn2<? super A, ? super B, ? extends C> f, CacheSpec spec) {
+    this.f = new Fn<P2<A, B>, C>() {
+      @Override public C apply(P2<A, B> p) {
+        return f.apply(p.get1(), p.get2());
+      }
+    };
+    this.cache = new Cache<P2<A, B>, C>(spec);
+  }
+
+  @Override public C apply(A a, B b) {
+    return cache.get(Products.E.p2(a, b), f);
+  }
+
+  /** Return a snapshot of the cache counters. */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /** Remove all cached results. */
+  public void clear() {
+    cache.clear();
+  }
+}
@@ -17,6 +17,7 @@
 package com.entwinemedia.fn;
 
 import com.entwinemedia.fn.data.ListBuilder;
+import com.entwinemedia.fn.data.PersistentVector;
 import com.entwinemedia.fn.data.SetBuilder;
 import com.entwinemedia.fn.fns.Numbers;
 import com.entwinemedia.fn.fns.Strings;
@@ -48,6 +49,22 @@ public final class Monoids {
     });
   }
 
+  /**
+   * List monoid based on {@link PersistentVector}. The operation appends the elements of the right operand
+   * to the left one without copying the left one if it is a vector already.
+   */
+  public static <A> Monoid<List<A>> vector() {
+    return new Monoid<List<A>>(PersistentVector.<A>empty(), new Fn2<List<A>, List<A>, List<A>>() {
+      @Override public List<A> apply(List<A> a, List<A> b) {
+        return PersistentVector.mk(a).appendedAll(b);
+      }
+    });
+  }
+
+  /**
+   * Set monoid. The operation concatenates both sets using <code>builder</code>. Use
+   * {@link com.entwinemedia.fn.data.SetB#PH} to add the smaller set to the larger one instead of copying both.
+   */
   public static <A> Monoid<Set<A>> set(final SetBuilder builder) {
     return new Monoid<Set<A>>(builder.<A>empty(), new Fn2<Set<A>, Set<A>, Set<A>>() {
       @Override
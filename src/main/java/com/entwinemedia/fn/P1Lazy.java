@@ -49,14 +49,22 @@ public abstract class P1Lazy<A> extends P1<A> {
     };
   }
 
-  /** Evaluate {@link #get1()} and memoize it. */
+  /**
+   * Memoize this product. {@link #get1()} is evaluated lazily on first access and then cached.
+   *
+   * @see P1Memo#memo(P1)
+   */
   public P1<A> memo() {
-    final A a = get1();
-    return new P1Lazy<A>() {
-      @Override public A get1() {
-        return a;
-      }
-    };
+    return P1Memo.memo(this);
+  }
+
+  /**
+   * Like {@link #memo()} but an evaluation that throws an exception is not cached and tried again on the next access.
+   *
+   * @see P1Memo#memoRetry(P1)
+   */
+  public P1<A> memoRetry() {
+    return P1Memo.memoRetry(this);
   }
 
   @Override public int hashCode() {
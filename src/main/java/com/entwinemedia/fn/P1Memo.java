@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+import static com.entwinemedia.fn.Prelude.chuck;
+
+/**
+ * Lazy {@link P1} that evaluates the wrapped product at most once and caches its value.
+ * <p/>
+ * Evaluation is thread safe. Concurrent callers of {@link #get1()} wait for a single evaluation
+ * and all see the same value. Once evaluated, the value is returned without locking.
+ * <p/>
+ * If the evaluation throws an exception a memo created with {@link #memo(P1)} caches and rethrows
+ * the exception on each call while a memo created with {@link #memoRetry(P1)} evaluates again on
+ * the next call.
+ */
+public final class P1Memo<A> extends P1Lazy<A> {
+  /** Marks a memo whose value has not been evaluated yet. */
+  private static final Object NONE = new Object();
+
+  private final boolean retry;
+  /** The product to evaluate. Released after a successful evaluation. */
+  private P1<? extends A> p;
+  private volatile Object value = NONE;
+  /** Exception thrown by the evaluation. Only set if not retrying. */
+  private Throwable failure;
+
+  private P1Memo(P1<? extends A> p, boolean retry) {
+    this.p = p;
+    this.retry = retry;
+  }
+
+  /** Memoize <code>p</code>. An exception thrown by its evaluation is memoized, too. */
+  @SuppressWarnings("unchecked") // a memo only returns its value, so a memo of a subtype can be used as is
+  public static <A> P1Memo<A> memo(P1<? extends A> p) {
+    return p instanceof P1Memo && !((P1Memo<?>) p).retry ? (P1Memo<A>) p : new P1Memo<A>(p, false);
+  }
+
+  /** Memoize <code>p</code>. If the evaluation throws an exception it is tried again on the next call. */
+  public static <A> P1Memo<A> memoRetry(P1<? extends A> p) {
+    return new P1Memo<A>(p, true);
+  }
+
+  /** Return true if the value has already been evaluated. */
+  public boolean isEvaluated() {
+    return value != NONE;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override public A get1() {
+    Object v = value;
+    if (v == NONE) {
+      synchronized (this) {
+        v = value;
+        if (v == NONE) {
+          if (failure != null) {
+            return chuck(failure);
+          }
+          try {
+            v = p.get1();
+          } catch (Throwable t) {
+            if (!retry) {
+              failure = t;
+              p = null;
+            }
+            return chuck(t);
+          }
+          value = v;
+          p = null;
+        }
+      }
+    }
+    return (A) v;
+  }
+
+  @Override public P1<A> memo() {
+    return retry ? super.memo() : this;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+import com.entwinemedia.fn.data.ArrayBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A stream that evaluates its maps and filters in parallel on the common {@link ForkJoinPool}.
+ * <p/>
+ * The source list is split into index ranges that are processed by the workers of the pool.
+ * Partial results are combined in the order of the source so the order of the stream is preserved.
+ * A parallel stream whose source cannot be split is evaluated sequentially.
+ * <p/>
+ * Functions passed to a parallel stream are called from multiple threads at once
+ * and must not rely on any shared mutable state.
+ *
+ * @see Stream#par()
+ */
+public final class ParStream<A> {
+  /** The stream to evaluate sequentially. */
+  private final Stream<?> seq;
+  /** The random access source of <code>seq</code> or null if it cannot be split. */
+  private final List<?> src;
+  private final MapFilter chain;
+
+  private ParStream(Stream<?> seq, List<?> src, MapFilter chain) {
+    this.seq = seq;
+    this.src = src;
+    this.chain = chain;
+  }
+
+  /** Create a parallel stream from stream <code>s</code>. */
+  static <A> ParStream<A> mk(Stream<A> s) {
+    if (s instanceof StreamOp.MapFilterStream) {
+      // maps and filters already applied to the source get evaluated in parallel, too
+      final StreamOp.MapFilterStream<A> m = (StreamOp.MapFilterStream<A>) s;
+      return new ParStream<A>(m.src, m.src.getRandomAccessSrc(), m.chain);
+    } else {
+      return new ParStream<A>(s, s.getRandomAccessSrc(), MapFilter.EMPTY);
+    }
+  }
+
+  /** Map function <code>f</code> over the elements of the stream. */
+  public <B> ParStream<B> fmap(Fn<? super A, ? extends B> f) {
+    return new ParStream<B>(seq, src, chain.append(MapFilter.map(f)));
+  }
+
+  /** @see #fmap(Fn) */
+  public <B> ParStream<B> map(Fn<? super A, ? extends B> f) {
+    return fmap(f);
+  }
+
+  /** Keep all elements of the stream that match predicate <code>p</code>. */
+  public ParStream<A> filter(Fn<? super A, Boolean> p) {
+    return new ParStream<A>(seq, src, chain.append(MapFilter.filter(p)));
+  }
+
+  /**
+   * Fold the stream. Each split of the stream is folded separately starting with <code>zero</code>
+   * and the results are then merged from left to right using <code>combiner</code>.
+   * Therefore <code>zero</code> has to be an identity of <code>combiner</code>.
+   */
+  public <B> B foldl(final B zero,
+                     final Fn2<? super B, ? super A, ? extends B> f,
+                     final Fn2<? super B, ? super B, ? extends B> combiner) {
+    if (isSplittable()) {
+      return eval(new Eval<B>() {
+        @Override B leaf(int from, int to) {
+          final Fold<B> fold = new Fold<B>(zero, f);
+          push(from, to, fold);
+          return fold.sum;
+        }
+
+        @Override B combine(B left, B right) {
+          return combiner.apply(left, right);
+        }
+      });
+    } else {
+      return seq().foldl(zero, f);
+    }
+  }
+
+  /** Sum up all elements using monoid <code>m</code>. */
+  public A sum(Monoid<A> m) {
+    return foldl(m.identity(), m.op(), m.op());
+  }
+
+  /**
+   * Evaluate to an immutable list keeping the order of the stream.
+   * Each split writes its elements into its own range of a single array. The ranges are then
+   * moved together so that the array is copied at most once, to trim it if elements have been filtered.
+   */
+  public List<A> toList() {
+    if (isSplittable()) {
+      final Object[] buf = new Object[src.size()];
+      final List<Fill> fills = eval(new Eval<List<Fill>>() {
+        @Override List<Fill> leaf(int from, int to) {
+          final Fill fill = new Fill(buf, from);
+          push(from, to, fill);
+          final List<Fill> fills = new ArrayList<Fill>();
+          fills.add(fill);
+          return fills;
+        }
+
+        @Override List<Fill> combine(List<Fill> left, List<Fill> right) {
+          left.addAll(right);
+          return left;
+        }
+      });
+      int size = 0;
+      for (Fill fill : fills) {
+        final int n = fill.pos - fill.from;
+        if (fill.from != size) {
+          System.arraycopy(buf, fill.from, buf, size, n);
+        }
+        size += n;
+      }
+      return ArrayBuffer.<A>wrap(buf, size).toList();
+    } else {
+      return seq().toList();
+    }
+  }
+
+  /** Turn the parallel stream back into a sequential stream. */
+  @SuppressWarnings("unchecked")
+  public Stream<A> seq() {
+    return chain.isEmpty() ? (Stream<A>) seq : StreamOp.<A>mapFilter(chain, seq);
+  }
+
+  private boolean isSplittable() {
+    return src != null && src.size() > 1 && ForkJoinPool.getCommonPoolParallelism() > 1;
+  }
+
+  /** Push the elements of the source range <code>[from, to)</code> into <code>sink</code>. */
+  @SuppressWarnings("unchecked")
+  private void push(int from, int to, Sink<? super A> sink) {
+    if (chain.isEmpty()) {
+      for (int i = from; i < to; i++) {
+        sink.push((A) src.get(i));
+      }
+    } else {
+      for (int i = from; i < to; i++) {
+        final Object b = chain.apply(src.get(i));
+        if (b != null) {
+          sink.push((A) b);
+        }
+      }
+    }
+  }
+
+  private <R> R eval(Eval<R> eval) {
+    final int size = src.size();
+    // create a couple of splits per worker to balance uneven work loads
+    final int leafSize = Math.max(1, size / (ForkJoinPool.getCommonPoolParallelism() * 4));
+    return ForkJoinPool.commonPool().invoke(new Split<R>(eval, 0, size, leafSize));
+  }
+
+  /** Evaluation of a range of the source and the merge of two adjacent results. */
+  private abstract static class Eval<R> {
+    abstract R leaf(int from, int to);
+
+    /** Combine the results of two adjacent ranges. <code>left</code> precedes <code>right</code>. */
+    abstract R combine(R left, R right);
+  }
+
+  /** Recursively split the range <code>[from, to)</code> until it is small enough to be evaluated. */
+  private static final class Split<R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+
+    private final Eval<R> eval;
+    private final int from;
+    private final int to;
+    private final int leafSize;
+
+    private Split(Eval<R> eval, int from, int to, int leafSize) {
+      this.eval = eval;
+      this.from = from;
+      this.to = to;
+      this.leafSize = leafSize;
+    }
+
+    @Override protected R compute() {
+      if (to - from <= leafSize) {
+        return eval.leaf(from, to);
+      } else {
+        final int mid = (from + to) >>> 1;
+        final Split<R> left = new Split<R>(eval, from, mid, leafSize);
+        left.fork();
+        final R right = new Split<R>(eval, mid, to, leafSize).compute();
+        return eval.combine(left.join(), right);
+      }
+    }
+  }
+
+  /** Write elements into an array starting at index <code>from</code>. */
+  private static final class Fill extends Sink<Object> {
+    private final Object[] buf;
+    private final int from;
+    private int pos;
+
+    private Fill(Object[] buf, int from) {
+      this.buf = buf;
+      this.from = from;
+      this.pos = from;
+    }
+
+    @Override boolean push(Object a) {
+      buf[pos++] = a;
+      return true;
+    }
+  }
+
+  private final class Fold<B> extends Sink<A> {
+    private final Fn2<? super B, ? super A, ? extends B> f;
+    private B sum;
+
+    private Fold(B zero, Fn2<? super B, ? super A, ? extends B> f) {
+      this.sum = zero;
+      this.f = f;
+    }
+
+    @Override boolean push(A a) {
+      sum = f.apply(sum, a);
+      return true;
+    }
+  }
+}
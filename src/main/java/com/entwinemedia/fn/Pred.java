@@ -20,15 +20,34 @@ import com.entwinemedia.fn.fns.Booleans;
 
 /**
  * Predicate function.
+ * <p/>
+ * Stream operations evaluate predicates using {@link #test(Object)} which unboxes the result of
+ * {@link #apply(Object)}. Predicates may override {@link #test(Object)} to avoid boxing.
+ * The combinators {@link #and(Fn)}, {@link #or(Fn)}, {@link #not()} and those of {@link Booleans}
+ * evaluate their operands using {@link #test(Object)} too.
  */
 public abstract class Pred<A> extends Fn<A, Boolean> {
-  /** Convert a function into a predicate. */
-  public static <A> Pred<A> mk(final Fn<A, Boolean> f) {
-    return new Pred<A>() {
-      @Override public Boolean apply(A a) {
-        return f.apply(a);
-      }
-    };
+  /** Convert a function into a predicate. A function that already is a predicate is returned as is. */
+  @SuppressWarnings("unchecked")
+  public static <A> Pred<A> mk(final Fn<? super A, Boolean> f) {
+    if (f instanceof Pred) {
+      return (Pred<A>) f;
+    } else {
+      return new Pred<A>() {
+        @Override public boolean test(A a) {
+          return f.apply(a);
+        }
+
+        @Override public Boolean apply(A a) {
+          return f.apply(a);
+        }
+      };
+    }
+  }
+
+  /** Predicate application returning a primitive result. */
+  public boolean test(A a) {
+    return apply(a);
   }
 
   public Pred<A> or(final Fn<? super A, Boolean> f) {
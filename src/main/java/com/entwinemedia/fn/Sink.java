@@ -0,0 +1,28 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+/**
+ * Push based consumer of stream elements. Sinks are the building blocks of the internal iteration
+ * that drives the evaluating operations of a stream.
+ *
+ * @see Stream#push(Sink)
+ */
+abstract class Sink<A> {
+  /** Consume element <code>a</code>. Return false to stop the stream from pushing any further elements. */
+  abstract boolean push(A a);
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+import java.util.Collection;
+
+/**
+ * Description of the number of elements of a stream.
+ * <p/>
+ * A size is either {@link Kind#EXACT exact}, an {@link Kind#AT_MOST upper bound}, an {@link Kind#ESTIMATE estimate},
+ * {@link Kind#UNKNOWN unknown} or {@link Kind#INFINITE infinite}. Stream operations derive the size of their result
+ * from the size of their source so that evaluations can allocate their buffers once.
+ * <p/>
+ * Null elements, which are skipped by the evaluating operations, are not taken into account,
+ * so an exact size may still be larger than the number of elements actually yielded.
+ * Sizes saturate at {@link Integer#MAX_VALUE}.
+ */
+public final class SizeHint {
+  public enum Kind {
+    /** The size is known. */
+    EXACT,
+    /** There are at most <code>size</code> elements. */
+    AT_MOST,
+    /** There are about <code>size</code> elements. */
+    ESTIMATE,
+    /** Nothing is known about the size. */
+    UNKNOWN,
+    /** The stream never ends. */
+    INFINITE
+  }
+
+  public static final SizeHint UNKNOWN = new SizeHint(Kind.UNKNOWN, 0);
+  public static final SizeHint INFINITE = new SizeHint(Kind.INFINITE, 0);
+  public static final SizeHint ZERO = new SizeHint(Kind.EXACT, 0);
+
+  private final Kind kind;
+  private final int size;
+
+  private SizeHint(Kind kind, int size) {
+    this.kind = kind;
+    this.size = size;
+  }
+
+  /** Exactly <code>size</code> elements. A negative size counts as zero. */
+  public static SizeHint exact(int size) {
+    return size > 0 ? new SizeHint(Kind.EXACT, size) : ZERO;
+  }
+
+  /** At most <code>size</code> elements. A negative size counts as zero. */
+  public static SizeHint atMost(int size) {
+    return new SizeHint(Kind.AT_MOST, Math.max(size, 0));
+  }
+
+  /** About <code>size</code> elements. A negative size counts as zero. */
+  public static SizeHint estimate(int size) {
+    return new SizeHint(Kind.ESTIMATE, Math.max(size, 0));
+  }
+
+  /** Convert a plain size hint where a value &lt; 0 means no hint. */
+  public static SizeHint of(int sizeHint) {
+    return sizeHint >= 0 ? estimate(sizeHint) : UNKNOWN;
+  }
+
+  /** Get the size of an iterable. Collections and streams know their size, other iterables do not. */
+  public static SizeHint of(Iterable<?> it) {
+    if (it instanceof Collection) {
+      return exact(((Collection<?>) it).size());
+    } else if (it instanceof Stream) {
+      return ((Stream<?>) it).getSizeInfo();
+    } else {
+      return UNKNOWN;
+    }
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /** Return the size or the bound or the estimate. 0 if the size is unknown or infinite. */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isExact() {
+    return kind == Kind.EXACT;
+  }
+
+  /** Check if the size is known to be finite and limited by {@link #getSize()}. */
+  public boolean isBounded() {
+    return kind == Kind.EXACT || kind == Kind.AT_MOST;
+  }
+
+  /** Check if {@link #getSize()} tells anything about the size, i.e. if it is exact, a bound or an estimate. */
+  public boolean isKnown() {
+    return kind == Kind.EXACT || kind == Kind.AT_MOST || kind == Kind.ESTIMATE;
+  }
+
+  public boolean isInfinite() {
+    return kind == Kind.INFINITE;
+  }
+
+  /** Size of the concatenation of two streams. */
+  public SizeHint plus(SizeHint that) {
+    if (isInfinite() || that.isInfinite()) {
+      return INFINITE;
+    } else if (kind == Kind.UNKNOWN || that.kind == Kind.UNKNOWN) {
+      return UNKNOWN;
+    } else {
+      return new SizeHint(combine(this, that), add(size, that.size));
+    }
+  }
+
+  /** Size of a stream repeated <code>times</code> times. */
+  public SizeHint times(int times) {
+    if (times <= 0) {
+      return ZERO;
+    } else if (isKnown()) {
+      return new SizeHint(kind, (int) Math.min((long) size * times, Integer.MAX_VALUE));
+    } else {
+      return this;
+    }
+  }
+
+  /** Size after dropping <code>n</code> elements. */
+  public SizeHint minus(int n) {
+    return isKnown() && n > 0 ? new SizeHint(kind, Math.max(size - n, 0)) : this;
+  }
+
+  /** Size after taking at most <code>n</code> elements. */
+  public SizeHint limit(int n) {
+    if (n <= 0) {
+      return ZERO;
+    }
+    switch (kind) {
+      case EXACT:
+        return exact(Math.min(size, n));
+      case AT_MOST:
+        return atMost(Math.min(size, n));
+      case ESTIMATE:
+        return size >= n ? atMost(n) : this;
+      case INFINITE:
+        return exact(n);
+      default:
+        return atMost(n);
+    }
+  }
+
+  /** Size after removing an unknown number of elements. */
+  public SizeHint filtered() {
+    switch (kind) {
+      case EXACT:
+        return atMost(size);
+      case INFINITE:
+        return UNKNOWN;
+      default:
+        return this;
+    }
+  }
+
+  /** Size of the shorter of two streams, e.g. of the result of zipping them. */
+  public SizeHint min(SizeHint that) {
+    if (isInfinite()) {
+      return that;
+    } else if (that.isInfinite()) {
+      return this;
+    } else if (isKnown() && that.isKnown()) {
+      return new SizeHint(combine(this, that), Math.min(size, that.size));
+    } else if (isBounded()) {
+      return atMost(size);
+    } else if (that.isBounded()) {
+      return atMost(that.size);
+    } else {
+      return UNKNOWN;
+    }
+  }
+
+  /** Size after partitioning into slices of <code>n</code> elements where the last slice may be shorter. */
+  public SizeHint slices(int n) {
+    return isKnown() ? new SizeHint(kind, size / n + (size % n == 0 ? 0 : 1)) : this;
+  }
+
+  /** Kind of a size derived from two known sizes. */
+  private static Kind combine(SizeHint a, SizeHint b) {
+    if (a.kind == Kind.EXACT && b.kind == Kind.EXACT) {
+      return Kind.EXACT;
+    } else if (a.isBounded() && b.isBounded()) {
+      return Kind.AT_MOST;
+    } else {
+      return Kind.ESTIMATE;
+    }
+  }
+
+  private static int add(int a, int b) {
+    return (int) Math.min((long) a + b, Integer.MAX_VALUE);
+  }
+
+  @Override public boolean equals(Object that) {
+    return this == that
+            || (that instanceof SizeHint && kind == ((SizeHint) that).kind && size == ((SizeHint) that).size);
+  }
+
+  @Override public int hashCode() {
+    return 31 * kind.hashCode() + size;
+  }
+
+  @Override public String toString() {
+    return isKnown() ? "SizeHint(" + kind + ", " + size + ")" : "SizeHint(" + kind + ")";
+  }
+}
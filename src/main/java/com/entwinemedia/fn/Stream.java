@@ -16,17 +16,20 @@
 
 package com.entwinemedia.fn;
 
+import com.entwinemedia.fn.data.ArrayBuffer;
 import com.entwinemedia.fn.data.Immutable;
 import com.entwinemedia.fn.data.ImmutableArrayListFactory;
 import com.entwinemedia.fn.data.ImmutableIteratorArrayAdapter;
 import com.entwinemedia.fn.data.ImmutableIteratorBase;
 import com.entwinemedia.fn.data.ImmutableIterators;
+import com.entwinemedia.fn.data.ImmutableListArrayAdapter;
 import com.entwinemedia.fn.data.ImmutableListWrapper;
 import com.entwinemedia.fn.data.ImmutableSetWrapper;
 import com.entwinemedia.fn.data.Iterators;
 import com.entwinemedia.fn.data.ListBuilder;
 import com.entwinemedia.fn.data.ListBuilders;
 import com.entwinemedia.fn.data.Opt;
+import com.entwinemedia.fn.data.PersistentVector;
 import com.entwinemedia.fn.data.SetB;
 import com.entwinemedia.fn.data.SetBuilder;
 
@@ -35,31 +38,60 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
 import java.util.Set;
 
 public abstract class Stream<A> implements Iterable<A> {
   public static final int NO_SIZE_HINT = -1;
 
-  private int sizeHint;
+  private final SizeHint sizeHint;
 
-  /** Create a new Stream with a size hint. A value < 0 means no hint. */
+  /** Create a new Stream with an estimated size. A value < 0 means no hint. */
   protected Stream(int sizeHint) {
-    this.sizeHint = Math.max(sizeHint, NO_SIZE_HINT);
+    this(SizeHint.of(sizeHint));
+  }
+
+  /** Create a new Stream with a size hint. */
+  protected Stream(SizeHint sizeHint) {
+    this.sizeHint = sizeHint;
   }
 
   /** Return a value >= 0. */
   public int getSizeHint() {
-    return Math.max(sizeHint, 0);
+    return sizeHint.getSize();
   }
 
   /** Check if there is a size hint. */
   public boolean hasSizeHint() {
-    return sizeHint >= 0;
+    return sizeHint.isKnown();
+  }
+
+  /** Return the full description of the size of the stream. */
+  public SizeHint getSizeInfo() {
+    return sizeHint;
   }
 
   /** Streams are implemented in terms of an iterator. */
   @Override public abstract Iterator<A> iterator();
 
+  /**
+   * Push the elements of the stream into <code>sink</code> until either the stream is exhausted
+   * or the sink refuses to take any more elements.
+   * Return false if the sink stopped the iteration, true otherwise.
+   * <p/>
+   * This is the internal iteration counterpart of {@link #iterator()} used by the evaluating operations.
+   * The default implementation pulls from the iterator. Streams override it to drive their source in a single loop.
+   */
+  boolean push(Sink<? super A> sink) {
+    for (final Iterator<A> it = iterator(); it.hasNext(); ) {
+      if (!sink.push(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Override and return the source iterable whenever it is safe to return it directly.
    * The returned iterable will be wrapped in an immutable wrapper.
@@ -68,6 +100,18 @@ public abstract class Stream<A> implements Iterable<A> {
     return null;
   }
 
+  /**
+   * Return the source of the stream as a random access list if the stream is backed by one,
+   * i.e. if it can be split into ranges that may be processed independently. Return null otherwise.
+   *
+   * @see #par()
+   */
+  @SuppressWarnings("unchecked")
+  List<A> getRandomAccessSrc() {
+    final Iterable<A> src = getSrcHint();
+    return src instanceof List && src instanceof RandomAccess ? (List<A>) src : null;
+  }
+
   /**
    * Create a stream from an iterable. If <code>it</code> is null create an empty stream.
    * <p/>
@@ -87,16 +131,30 @@ public abstract class Stream<A> implements Iterable<A> {
       return (Stream<A>) it;
     } else if (it != null) {
       final boolean immutable = it instanceof Immutable;
-      return new Stream<A>(getSizeHint(it)) {
+      return new Stream<A>(SizeHint.of(it)) {
         @SuppressWarnings("unchecked")
         @Override public Iterator<A> iterator() {
           return immutable ? (Iterator<A>) it.iterator() : ImmutableIterators.mk(it.iterator());
         }
 
+        @Override boolean push(Sink<? super A> sink) {
+          for (A a : it) {
+            if (!sink.push(a)) {
+              return false;
+            }
+          }
+          return true;
+        }
+
         @SuppressWarnings("unchecked")
         @Override protected Iterable<A> getSrcHint() {
           return immutable ? (Iterable<A>) it : null;
         }
+
+        @SuppressWarnings("unchecked")
+        @Override List<A> getRandomAccessSrc() {
+          return it instanceof List && it instanceof RandomAccess ? (List<A>) it : null;
+        }
       };
     } else {
       return empty();
@@ -118,10 +176,23 @@ public abstract class Stream<A> implements Iterable<A> {
   public static <A> Stream<A> mk(final A... as) {
     if (as != null && as.length > 0) {
       if (as.length > 1) {
-        return new Stream<A>(as.length) {
+        return new Stream<A>(SizeHint.exact(as.length)) {
           @Override public Iterator<A> iterator() {
             return new ImmutableIteratorArrayAdapter<A>(as);
           }
+
+          @Override boolean push(Sink<? super A> sink) {
+            for (A a : as) {
+              if (!sink.push(a)) {
+                return false;
+              }
+            }
+            return true;
+          }
+
+          @Override List<A> getRandomAccessSrc() {
+            return new ImmutableListArrayAdapter<A>(as);
+          }
         };
       } else {
         return single(as[0]);
@@ -139,10 +210,14 @@ public abstract class Stream<A> implements Iterable<A> {
   /** @see #$$(Object) */
   public static <A> Stream<A> single(final A a) {
     if (a != null) {
-      return new Stream<A>(1) {
+      return new Stream<A>(SizeHint.exact(1)) {
         @Override public Iterator<A> iterator() {
           return ImmutableIterators.mk(a);
         }
+
+        @Override boolean push(Sink<? super A> sink) {
+          return sink.push(a);
+        }
       };
     } else {
       return empty();
@@ -151,7 +226,7 @@ public abstract class Stream<A> implements Iterable<A> {
 
   /** Create a continuous stream returning the value of product <code>p</code>. */
   public static <A> Stream<A> cont(final P1<A> p) {
-    return new Stream<A>(NO_SIZE_HINT) {
+    return new Stream<A>(SizeHint.INFINITE) {
       @Override public Iterator<A> iterator() {
         return new ImmutableIteratorBase<A>() {
           @Override public boolean hasNext() {
@@ -163,15 +238,66 @@ public abstract class Stream<A> implements Iterable<A> {
           }
         };
       }
+
+      @Override boolean push(Sink<? super A> sink) {
+        while (sink.push(p.get1())) {
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Concatenate streams. Each element of the resulting stream passes through a single stage
+   * no matter how many streams are concatenated.
+   * If <code>ss</code> is not a collection the streams are taken from it lazily, so it may be infinite.
+   */
+  public static <A> Stream<A> concat(final Iterable<? extends Stream<? extends A>> ss) {
+    if (ss instanceof Collection) {
+      PersistentVector<Stream<? extends A>> parts = PersistentVector.empty();
+      SizeHint sizeHint = SizeHint.ZERO;
+      for (Stream<? extends A> s : ss) {
+        parts = parts.appendedAll(StreamOp.AppendStream.<A>parts(s));
+        sizeHint = sizeHint.plus(s.getSizeInfo());
+      }
+      return new StreamOp.AppendStream<A>(parts, sizeHint);
+    }
+    return new Stream<A>(NO_SIZE_HINT) {
+      @Override public Iterator<A> iterator() {
+        final Iterator<? extends Stream<? extends A>> it = ss.iterator();
+        return Iterators.concat(new ImmutableIteratorBase<Iterator<A>>() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @SuppressWarnings("unchecked")
+          @Override public Iterator<A> next() {
+            return (Iterator<A>) it.next().iterator();
+          }
+        });
+      }
+
+      @Override boolean push(Sink<? super A> sink) {
+        for (Stream<? extends A> s : ss) {
+          if (!s.push(sink)) {
+            return false;
+          }
+        }
+        return true;
+      }
     };
   }
 
-  private static final Stream EMPTY = new Stream(0) {
-    @Override public Iterator iterator() {
+  private static final Stream<Object> EMPTY = new Stream<Object>(SizeHint.ZERO) {
+    @Override public Iterator<Object> iterator() {
       return Iterators.empty();
     }
 
-    @Override protected Iterable getSrcHint() {
+    @Override boolean push(Sink<? super Object> sink) {
+      return true;
+    }
+
+    @Override protected Iterable<Object> getSrcHint() {
       return ListBuilders.SIA.nil();
     }
   };
@@ -179,7 +305,7 @@ public abstract class Stream<A> implements Iterable<A> {
   /** Create an empty stream. */
   @SuppressWarnings("unchecked")
   public static <A> Stream<A> empty() {
-    return EMPTY;
+    return (Stream<A>) EMPTY;
   }
 
   public boolean isEmpty() {
@@ -198,6 +324,84 @@ public abstract class Stream<A> implements Iterable<A> {
     return fmap(f);
   }
 
+  /** Map function <code>f</code> over the elements of the stream yielding a stream of primitive <code>int</code> values. */
+  public final IntStream mapToInt(final ToIntFn<? super A> f) {
+    return new IntStream(getSizeInfo()) {
+      @Override public PrimitiveIterator.OfInt iterator() {
+        final Iterator<A> it = Stream.this.iterator();
+        return new PrimitiveIterator.OfInt() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public int nextInt() {
+            return f.apply(it.next());
+          }
+        };
+      }
+
+      @Override boolean push(final IntSink sink) {
+        return Stream.this.push(new Sink<A>() {
+          @Override boolean push(A a) {
+            return sink.push(f.apply(a));
+          }
+        });
+      }
+    };
+  }
+
+  /** Map function <code>f</code> over the elements of the stream yielding a stream of primitive <code>long</code> values. */
+  public final LongStream mapToLong(final ToLongFn<? super A> f) {
+    return new LongStream(getSizeInfo()) {
+      @Override public PrimitiveIterator.OfLong iterator() {
+        final Iterator<A> it = Stream.this.iterator();
+        return new PrimitiveIterator.OfLong() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public long nextLong() {
+            return f.apply(it.next());
+          }
+        };
+      }
+
+      @Override boolean push(final LongSink sink) {
+        return Stream.this.push(new Sink<A>() {
+          @Override boolean push(A a) {
+            return sink.push(f.apply(a));
+          }
+        });
+      }
+    };
+  }
+
+  /** Map function <code>f</code> over the elements of the stream yielding a stream of primitive <code>double</code> values. */
+  public final DoubleStream mapToDouble(final ToDoubleFn<? super A> f) {
+    return new DoubleStream(getSizeInfo()) {
+      @Override public PrimitiveIterator.OfDouble iterator() {
+        final Iterator<A> it = Stream.this.iterator();
+        return new PrimitiveIterator.OfDouble() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public double nextDouble() {
+            return f.apply(it.next());
+          }
+        };
+      }
+
+      @Override boolean push(final DoubleSink sink) {
+        return Stream.this.push(new Sink<A>() {
+          @Override boolean push(A a) {
+            return sink.push(f.apply(a));
+          }
+        });
+      }
+    };
+  }
+
   /** @see StreamOp#bind(Fn) */
   public final <B> Stream<B> bind(final Fn<? super A, ? extends Iterable<B>> f) {
     return StreamOp.bind(f, this);
@@ -275,6 +479,22 @@ public abstract class Stream<A> implements Iterable<A> {
     return StreamOp.sort(order, this);
   }
 
+  /**
+   * Sort the elements using an external merge sort which spills to disk if the stream does not fit into memory.
+   * The memory budget of the sort is the number of elements per run, not a size in bytes.
+   * Close the sorted stream to release the run files of iterators that are not read to the end.
+   *
+   * @see ExternalSort
+   */
+  public final ExternalSort.SortedStream<A> externalSort(Comparator<A> order, ExternalSort<A> sort) {
+    return sort.sort(order, this);
+  }
+
+  /** @see StreamOp#top(int, Comparator, Stream) */
+  public final Stream<A> top(int k, Comparator<? super A> order) {
+    return StreamOp.top(k, order, this);
+  }
+
   public final Stream<A> repeat(int times) {
     return StreamOp.repeat(times, this);
   }
@@ -284,6 +504,17 @@ public abstract class Stream<A> implements Iterable<A> {
     return (Stream<B>) this;
   }
 
+  /**
+   * Turn the stream into a parallel stream whose operations are evaluated on the fork join pool.
+   * Only streams backed by a random access list or an array, optionally followed by maps and filters,
+   * can be split. All other streams are evaluated sequentially.
+   *
+   * @see ParStream
+   */
+  public final ParStream<A> par() {
+    return ParStream.mk(this);
+  }
+
   // -- folds
 
   /** Return the head element. */
@@ -391,13 +622,24 @@ public abstract class Stream<A> implements Iterable<A> {
     if (wrapped instanceof List) {
       return wrapped instanceof Immutable ? (List<A>) wrapped : new ImmutableListWrapper<A>((List<A>) getSrcHint());
     } else {
-      return toList(ListBuilders.LIA);
+      checkFinite();
+      // an exact size hint lets the buffer hand over its array without copying; a bound or an estimate
+      // may be far too large, e.g. after a filter, so the buffer starts small and grows instead
+      final ArrayBuffer<A> buf = sizeHint.isExact() ? new ArrayBuffer<A>(sizeHint.getSize()) : new ArrayBuffer<A>();
+      push(new Sink<A>() {
+        @Override boolean push(A a) {
+          buf.add(a);
+          return true;
+        }
+      });
+      return buf.toList();
     }
   }
 
   /** Evaluate to a list created by the given list factory. */
   public final List<A> toList(ListBuilder b) {
-    return hasSizeHint() ? b.mk(getSizeHint(), iterator()) : b.mk(iterator());
+    checkFinite();
+    return sizeHint.isExact() ? b.mk(sizeHint.getSize(), iterator()) : b.mk(iterator());
   }
 
   /** Evaluate to an immutable set. */
@@ -412,7 +654,8 @@ public abstract class Stream<A> implements Iterable<A> {
 
   /** Evaluate to a list created by the given list factory. */
   public final Set<A> toSet(SetBuilder b) {
-    return hasSizeHint() ? b.mk(getSizeHint(), iterator()) : b.mk(iterator());
+    checkFinite();
+    return sizeHint.isExact() ? b.mk(sizeHint.getSize(), iterator()) : b.mk(iterator());
   }
 
   /** Evaluate stream. */
@@ -422,17 +665,19 @@ public abstract class Stream<A> implements Iterable<A> {
 
   /** Evaluate stream and ignore the result. */
   public final void run() {
-    for (A a : this) {
-    }
+    push(new Sink<A>() {
+      @Override boolean push(A a) {
+        return true;
+      }
+    });
   }
 
   // --
 
-  private static <A> int getSizeHint(Iterable<A> it) {
-    if (it instanceof Collection) {
-      return ((Collection) it).size();
-    } else {
-      return -1;
+  /** Fail fast instead of running out of memory when trying to collect an infinite stream. */
+  private void checkFinite() {
+    if (sizeHint.isInfinite()) {
+      throw new IllegalStateException("Cannot collect the elements of an infinite stream");
     }
   }
 }
@@ -66,11 +66,9 @@ public abstract class StreamFold<A, B> {
   }
 
   public static <A, B> B foldl(final B zero, final Fn2<? super B, ? super A, ? extends B> f, final Stream<A> s) {
-    B fold = zero;
-    for (A a : s) {
-      fold = f.apply(fold, a);
-    }
-    return fold;
+    final Fold<A, B> fold = new Fold<A, B>(zero, f);
+    s.push(fold);
+    return fold.sum;
   }
 
   public static <A> StreamFold<A, String> mkString(final String sep) {
@@ -82,16 +80,21 @@ public abstract class StreamFold<A, B> {
   }
 
   /** Concatenate to a string separating each element by <code>sep</code>. */
-  @SuppressWarnings("unchecked")
-  public static <A> String mkString(String sep, Stream<? extends A> s) {
+  public static <A> String mkString(final String sep, Stream<? extends A> s) {
     final StringBuilder b = new StringBuilder();
-    final Iterator<A> as = (Iterator<A>) s.iterator();
-    if (as.hasNext()) {
-      b.append(as.next());
-    }
-    while (as.hasNext()) {
-      b.append(sep).append(as.next());
-    }
+    s.push(new Sink<A>() {
+      private boolean first = true;
+
+      @Override boolean push(A a) {
+        if (first) {
+          first = false;
+        } else {
+          b.append(sep);
+        }
+        b.append(a);
+        return true;
+      }
+    });
     return b.toString();
   }
 
@@ -103,11 +106,13 @@ public abstract class StreamFold<A, B> {
     };
   }
 
-  public static <A> boolean exists(Fn<? super A, Boolean> p, Stream<? extends A> s) {
-    for (A a : s) {
-      if (p.apply(a)) return true;
-    }
-    return false;
+  public static <A> boolean exists(final Fn<? super A, Boolean> p, Stream<? extends A> s) {
+    final Pred<A> pred = Pred.mk(p);
+    return !s.push(new Sink<A>() {
+      @Override boolean push(A a) {
+        return !pred.test(a);
+      }
+    });
   }
 
   public static <A> StreamFold<A, Opt<A>> find(final Fn<? super A, Boolean> p) {
@@ -118,11 +123,20 @@ public abstract class StreamFold<A, B> {
     };
   }
 
-  public static <A> Opt<A> find(Fn<? super A, Boolean> p, Stream<? extends A> s) {
-    for (A a : s) {
-      if (p.apply(a)) return Opt.some(a);
-    }
-    return Opt.none();
+  public static <A> Opt<A> find(final Fn<? super A, Boolean> p, Stream<? extends A> s) {
+    final Pred<A> pred = Pred.mk(p);
+    final Find<A, A> find = new Find<A, A>() {
+      @Override boolean push(A a) {
+        if (pred.test(a)) {
+          found = Opt.some(a);
+          return false;
+        } else {
+          return true;
+        }
+      }
+    };
+    s.push(find);
+    return find.found;
   }
 
   /** Map function <code>p</code> over the elements of the stream unless <code>p</code> yields a some. */
@@ -134,14 +148,20 @@ public abstract class StreamFold<A, B> {
     };
   }
 
-  public static <A, B> Opt<B> findMap(Fn<? super A, Opt<B>> p, Stream<? extends A> s) {
-    for (A a : s) {
-      final Opt<B> r = p.apply(a);
-      if (r.isSome()) {
-        return r;
+  public static <A, B> Opt<B> findMap(final Fn<? super A, Opt<B>> p, Stream<? extends A> s) {
+    final Find<A, B> find = new Find<A, B>() {
+      @Override boolean push(A a) {
+        final Opt<B> r = p.apply(a);
+        if (r.isSome()) {
+          found = r;
+          return false;
+        } else {
+          return true;
+        }
       }
-    }
-    return Opt.none();
+    };
+    s.push(find);
+    return find.found;
   }
 
   public static <A> StreamFold<A, Opt<A>> head() {
@@ -152,10 +172,15 @@ public abstract class StreamFold<A, B> {
     };
   }
 
-  @SuppressWarnings("unchecked")
   public static <A> Opt<A> head(Stream<? extends A> s) {
-    final Iterator<A> i = (Iterator<A>) s.iterator();
-    return i.hasNext() ? Opt.some(i.next()) : Opt.<A>none();
+    final Find<A, A> find = new Find<A, A>() {
+      @Override boolean push(A a) {
+        found = Opt.some(a);
+        return false;
+      }
+    };
+    s.push(find);
+    return find.found;
   }
 
   public static <A> StreamFold<A, A> head2() {
@@ -263,4 +288,25 @@ public abstract class StreamFold<A, B> {
     }
     return new ImmutableMapWrapper<B, List<A>>(sum);
   }
+
+  /** Sink folding all pushed elements into <code>sum</code>. */
+  private static final class Fold<A, B> extends Sink<A> {
+    private final Fn2<? super B, ? super A, ? extends B> f;
+    private B sum;
+
+    private Fold(B zero, Fn2<? super B, ? super A, ? extends B> f) {
+      this.sum = zero;
+      this.f = f;
+    }
+
+    @Override boolean push(A a) {
+      sum = f.apply(sum, a);
+      return true;
+    }
+  }
+
+  /** Sink stopping the stream as soon as it has <code>found</code> a result. */
+  private abstract static class Find<A, B> extends Sink<A> {
+    protected Opt<B> found = Opt.none();
+  }
 }
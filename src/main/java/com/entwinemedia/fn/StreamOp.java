@@ -16,16 +16,22 @@
 
 package com.entwinemedia.fn;
 
+import com.entwinemedia.fn.data.Immutable;
 import com.entwinemedia.fn.data.ImmutableIteratorBase;
+import com.entwinemedia.fn.data.ImmutableListViews;
 import com.entwinemedia.fn.data.Iterators;
 import com.entwinemedia.fn.data.ListBuilders;
+import com.entwinemedia.fn.data.PersistentVector;
 import com.entwinemedia.fn.fns.Maps;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>> {
   private static final ProductBuilder p = Products.E;
@@ -35,13 +41,18 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
 
   /** Create a new identity stream operation. */
   public static <A> StreamOp<A, A> id() {
-    return new StreamOp<A, A>() {
-      @Override public Stream<A> apply(final Stream<? extends A> s) {
-        return new Stream<A>(s.getSizeHint()) {
-          @Override public Iterator<A> iterator() {
-            return (Iterator<A>) s.iterator();
-          }
-        };
+    return new MapFilterOp<A, A>(null, MapFilter.EMPTY);
+  }
+
+  private static <A> Stream<A> id(final Stream<? extends A> s) {
+    return new Stream<A>(s.getSizeInfo()) {
+      @SuppressWarnings("unchecked")
+      @Override public Iterator<A> iterator() {
+        return (Iterator<A>) s.iterator();
+      }
+
+      @Override boolean push(Sink<? super A> sink) {
+        return s.push(sink);
       }
     };
   }
@@ -53,7 +64,18 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
    * <p/>
    * <code>op</code> gets applied first, the resulting stream then gets applied to <code>this</code>.
    */
+  @SuppressWarnings("unchecked")
   public <C> StreamOp<C, B> compose(final StreamOp<? super C, ? extends A> op) {
+    if (this instanceof MapFilterOp && ((MapFilterOp<?, ?>) this).prefix == null) {
+      // fuse the map filter chain of this operation with the one of op
+      final MapFilter chain = ((MapFilterOp<?, ?>) this).chain;
+      if (op instanceof MapFilterOp) {
+        final MapFilterOp<? super C, ?> o = (MapFilterOp<? super C, ?>) op;
+        return new MapFilterOp<C, B>(o.prefix, o.chain.append(chain));
+      } else {
+        return new MapFilterOp<C, B>(op, chain);
+      }
+    }
     return new StreamOp<C, B>() {
       @Override public Stream<B> apply(Stream<? extends C> s) {
         return StreamOp.this.apply(op.apply(s));
@@ -77,28 +99,32 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
 
   /** Map function <code>f</code> over the elements of a stream. */
   public <C> StreamOp<A, C> fmap(final Fn<? super B, ? extends C> f) {
-    return new StreamOp<A, C>() {
-      @Override public Stream<C> apply(final Stream<? extends A> s) {
-        return StreamOp.fmap(f, StreamOp.this.apply(s));
-      }
-    };
+    return mapFilter(MapFilter.map(f));
   }
 
   /** Map function <code>f</code> over the elements of stream <code>s</code>. */
   public static <A, B> Stream<B> fmap(final Fn<? super A, ? extends B> f, final Stream<A> s) {
-    return new Stream<B>(s.getSizeHint()) {
-      @Override public Iterator<B> iterator() {
-        return new Iterate<A, B>(s.iterator()) {
-          @Override protected B apply(A b) {
-            return f.apply(b);
-          }
-        };
-      }
-    };
+    return mapFilter(MapFilter.map(f), s);
   }
 
   /** Map function <code>f</code> over the elements of a stream and concatenate the results. */
+  @SuppressWarnings("unchecked")
   public <C> StreamOp<A, C> bind(final Fn<? super B, ? extends Iterable<C>> f) {
+    if (this instanceof MapFilterOp) {
+      // run the map filter chain as part of the bind function
+      final MapFilterOp<A, B> op = (MapFilterOp<A, B>) this;
+      final Fn<Object, Iterable<C>> g = op.chain.isEmpty() ? (Fn<Object, Iterable<C>>) f : new Fn<Object, Iterable<C>>() {
+        @Override public Iterable<C> apply(Object a) {
+          final B b = (B) op.chain.apply(a);
+          return b != null ? f.apply(b) : Collections.<C>emptyList();
+        }
+      };
+      return new StreamOp<A, C>() {
+        @Override public Stream<C> apply(Stream<? extends A> s) {
+          return StreamOp.bind(g, op.prefix != null ? op.prefix.apply(s) : s);
+        }
+      };
+    }
     return new StreamOp<A, C>() {
       @Override public Stream<C> apply(Stream<? extends A> s) {
         return StreamOp.bind(f, StreamOp.this.apply(s));
@@ -108,7 +134,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
 
   /** Map function <code>f</code> over the elements of stream <code>s</code> and concatenate the results. */
   public static <A, B> Stream<B> bind(final Fn<? super A, ? extends Iterable<B>> f, final Stream<? extends A> s) {
-    return new Stream<B>(s.getSizeHint()) {
+    return new Stream<B>(SizeHint.UNKNOWN) {
       @SuppressWarnings("unchecked")
       @Override public Iterator<B> iterator() {
         return new Mapper<A, B>((Iterator<A>) s.iterator()) {
@@ -137,6 +163,24 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           }
         };
       }
+
+      @Override boolean push(final Sink<? super B> sink) {
+        return s.push(new Sink<A>() {
+          @Override boolean push(A a) {
+            final Iterable<B> bs = f.apply(a);
+            if (bs instanceof Stream) {
+              return ((Stream<B>) bs).push(sink);
+            } else {
+              for (B b : bs) {
+                if (!sink.push(b)) {
+                  return false;
+                }
+              }
+              return true;
+            }
+          }
+        });
+      }
     };
   }
 
@@ -151,7 +195,16 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
 
   /** Take <code>n</code> elements from the head of stream <code>s</code>. */
   public static <A> Stream<A> take(final int n, final Stream<A> s) {
-    return new Stream<A>(n) {
+    if (s instanceof SortStream && !((SortStream) s).isEvaluated()) {
+      // no need to sort the whole stream
+      final SortStream<A> sort = (SortStream<A>) s;
+      return top(n, sort.order, sort.s);
+    }
+    final List<A> src = indexedSrc(s);
+    if (src != null) {
+      return Stream.mk(ImmutableListViews.slice(src, 0, Math.max(0, Math.min(n, src.size()))));
+    }
+    return new Stream<A>(s.getSizeInfo().limit(n)) {
       @Override public Iterator<A> iterator() {
         return new IdentityIterate<A>(s.iterator()) {
           private int count = n;
@@ -166,6 +219,16 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           }
         };
       }
+
+      @Override boolean push(Sink<? super A> sink) {
+        if (n > 0) {
+          final Take<A> take = new Take<A>(n, sink);
+          s.push(take);
+          return !take.stopped;
+        } else {
+          return true;
+        }
+      }
     };
   }
 
@@ -180,7 +243,11 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
 
   /** Drop <code>n</code> elements from the head of stream <code>s</code>. */
   public static <A> Stream<A> drop(final int n, final Stream<A> s) {
-    return new Stream<A>(s.getSizeHint() - n) {
+    final List<A> src = indexedSrc(s);
+    if (src != null) {
+      return Stream.mk(ImmutableListViews.slice(src, Math.max(0, Math.min(n, src.size())), src.size()));
+    }
+    return new Stream<A>(s.getSizeInfo().minus(n)) {
       @Override public Iterator<A> iterator() {
         return new IdentityIterate<A>(s.iterator()) {
           private int count = n;
@@ -195,6 +262,21 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           }
         };
       }
+
+      @Override boolean push(final Sink<? super A> sink) {
+        return s.push(new Sink<A>() {
+          private int count = n;
+
+          @Override boolean push(A a) {
+            if (count == 0) {
+              return a == null || sink.push(a);
+            } else {
+              count--;
+              return true;
+            }
+          }
+        });
+      }
     };
   }
 
@@ -207,7 +289,8 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
   }
 
   public static <A> Stream<A> dropWhile(final Fn<? super A, Boolean> p, final Stream<A> s) {
-    return new Stream<A>(s.getSizeHint()) {
+    final Pred<A> pred = Pred.mk(p);
+    return new Stream<A>(s.getSizeInfo().filtered()) {
       @Override public Iterator<A> iterator() {
         return new IdentityIterate<A>(s.iterator()) {
           boolean take = false;
@@ -215,7 +298,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           @Override protected A apply(A a) {
             if (take) {
               return a;
-            } else if (p.apply(a)) {
+            } else if (pred.test(a)) {
               return null;
             } else {
               take = true;
@@ -224,6 +307,23 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           }
         };
       }
+
+      @Override boolean push(final Sink<? super A> sink) {
+        return s.push(new Sink<A>() {
+          private boolean take = false;
+
+          @Override boolean push(A a) {
+            if (take) {
+              return a == null || sink.push(a);
+            } else if (pred.test(a)) {
+              return true;
+            } else {
+              take = true;
+              return a == null || sink.push(a);
+            }
+          }
+        });
+      }
     };
   }
 
@@ -236,7 +336,11 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
   }
 
   public static <A> Stream<P2<A, Integer>> zipWithIndex(final Stream<A> s) {
-    return new Stream<P2<A, Integer>>(s.getSizeHint()) {
+    final List<A> src = indexedSrc(s);
+    if (src != null) {
+      return Stream.mk(ImmutableListViews.zipWithIndex(src));
+    }
+    return new Stream<P2<A, Integer>>(s.getSizeInfo()) {
       @Override public Iterator<P2<A, Integer>> iterator() {
         return new Iterate<A, P2<A, Integer>>(s.iterator()) {
           private int index = 0;
@@ -246,6 +350,16 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           }
         };
       }
+
+      @Override boolean push(final Sink<? super P2<A, Integer>> sink) {
+        return s.push(new Sink<A>() {
+          private int index = 0;
+
+          @Override boolean push(A a) {
+            return sink.push(p.p2(a, index++));
+          }
+        });
+      }
     };
   }
 
@@ -258,7 +372,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
   }
 
   public static <A, B> Stream<P2<A, B>> zip(final Iterable<? extends B> b, final Stream<? extends A> s) {
-    return new Stream<P2<A, B>>(s.getSizeHint()) {
+    return new Stream<P2<A, B>>(s.getSizeInfo().min(SizeHint.of(b))) {
       @Override public Iterator<P2<A, B>> iterator() {
         final Iterator<? extends A> itA = s.iterator();
         final Iterator<? extends B> itB = b.iterator();
@@ -286,37 +400,53 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
 
   /** Take elements from the head of stream <code>s</code> until predicate <code>p</code> yields false. */
   public static <A> Stream<A> takeWhile(final Fn<? super A, Boolean> p, final Stream<A> s) {
-    return new Stream<A>(s.getSizeHint()) {
+    final Pred<A> pred = Pred.mk(p);
+    return new Stream<A>(s.getSizeInfo().filtered()) {
       @Override public Iterator<A> iterator() {
         return new IdentityIterate<A>(s.iterator()) {
           @Override protected A apply(A a) throws Exit {
-            return p.apply(a) ? a : StreamOp.<A>exit();
+            return pred.test(a) ? a : StreamOp.<A>exit();
           }
         };
       }
+
+      @Override boolean push(Sink<? super A> sink) {
+        final TakeWhile<A> take = new TakeWhile<A>(pred, sink);
+        s.push(take);
+        return !take.stopped;
+      }
     };
   }
 
   /** Keep all elements of a stream that match predicate <code>p</code>. */
   public StreamOp<A, B> filter(final Fn<? super B, Boolean> p) {
-    return new StreamOp<A, B>() {
-      @Override public Stream<B> apply(Stream<? extends A> s) {
-        return StreamOp.filter(p, StreamOp.this.apply(s));
-      }
-    };
+    return mapFilter(MapFilter.filter(p));
   }
 
   /** Keep all elements of stream <code>s</code> that match predicate <code>p</code>. */
   public static <A> Stream<A> filter(final Fn<? super A, Boolean> p, final Stream<A> s) {
-    return new Stream<A>(s.getSizeHint()) {
-      @Override public Iterator<A> iterator() {
-        return new IdentityIterate<A>(s.iterator()) {
-          @Override protected A apply(A a) {
-            return p.apply(a) ? a : null;
-          }
-        };
-      }
-    };
+    return mapFilter(MapFilter.filter(p), s);
+  }
+
+  /** Append a map filter chain to this operation. */
+  @SuppressWarnings("unchecked")
+  private <C> StreamOp<A, C> mapFilter(MapFilter next) {
+    if (this instanceof MapFilterOp) {
+      final MapFilterOp<A, B> op = (MapFilterOp<A, B>) this;
+      return new MapFilterOp<A, C>(op.prefix, op.chain.append(next));
+    } else {
+      return new MapFilterOp<A, C>(this, next);
+    }
+  }
+
+  /** Apply a map filter chain to stream <code>s</code>. Successive chains get fused into a single stage. */
+  static <A> Stream<A> mapFilter(MapFilter chain, Stream<?> s) {
+    if (s instanceof MapFilterStream) {
+      final MapFilterStream<?> m = (MapFilterStream<?>) s;
+      return new MapFilterStream<A>(m.src, m.chain.append(chain));
+    } else {
+      return new MapFilterStream<A>(s, chain);
+    }
   }
 
   /** Reverse a stream. */
@@ -331,12 +461,19 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
   /**
    * Reverse stream <code>s</code>.
    * <p/>
-   * <em>Implementation note:</em> Creates an intermediate collection.
+   * <em>Implementation note:</em> Creates an intermediate collection unless <code>s</code>
+   * is backed by an immutable random access list. Such a list is reversed by a view.
    */
   public static <A> Stream<A> reverse(final Stream<A> s) {
-    return new OrderChangingStream<A>(s) {
-      @Override protected void changeOrder(List<A> list) {
+    final List<A> src = indexedSrc(s);
+    if (src != null) {
+      return Stream.mk(ImmutableListViews.reverse(src));
+    }
+    return new OrderChangingStream<A>(s, s.getSizeInfo()) {
+      @Override protected List<A> eval(Stream<A> s) {
+        final List<A> list = s.toList(ListBuilders.strictMutableArray);
         Collections.reverse(list);
+        return list;
       }
     };
   }
@@ -356,13 +493,51 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
    * <em>Implementation note:</em> Creates an intermediate collection.
    */
   public static <A> Stream<A> sort(final Comparator<A> order, final Stream<A> s) {
-    return new OrderChangingStream<A>(s) {
-      @Override protected void changeOrder(List<A> list) {
-        Collections.sort(list, order);
+    return new SortStream<A>(order, s);
+  }
+
+  /**
+   * Sort a stream using an external merge sort. Use {@link Stream#externalSort(Comparator, ExternalSort)}
+   * to be able to close iterators of the sorted stream that are not read to the end.
+   */
+  public StreamOp<A, B> externalSort(final Comparator<B> order, final ExternalSort<B> sort) {
+    return new StreamOp<A, B>() {
+      @Override public Stream<B> apply(Stream<? extends A> s) {
+        return sort.sort(order, StreamOp.this.apply(s));
+      }
+    };
+  }
+
+  /** Take the <code>k</code> smallest elements of a stream according to <code>order</code>. */
+  public StreamOp<A, B> top(final int k, final Comparator<B> order) {
+    return new StreamOp<A, B>() {
+      @Override public Stream<B> apply(Stream<? extends A> s) {
+        return StreamOp.top(k, order, StreamOp.this.apply(s));
       }
     };
   }
 
+  /**
+   * Take the <code>k</code> smallest elements of stream <code>s</code> according to <code>order</code>.
+   * The result is the same as <code>sort(order, s).take(k)</code>, i.e. the elements are sorted
+   * and equal elements keep the order of the stream. Null elements are skipped.
+   * <p/>
+   * <em>Implementation note:</em> Keeps the intermediate result in a heap of at most <code>k</code> elements.
+   */
+  public static <A> Stream<A> top(final int k, final Comparator<? super A> order, final Stream<A> s) {
+    if (k > 0) {
+      return new OrderChangingStream<A>(s, s.getSizeInfo().limit(k)) {
+        @Override protected List<A> eval(Stream<A> s) {
+          final Top<A> top = new Top<A>(k, order);
+          s.push(top);
+          return top.toList();
+        }
+      };
+    } else {
+      return Stream.empty();
+    }
+  }
+
   public StreamOp<A, A> append(final Stream<? extends A> s) {
     return new StreamOp<A, A>() {
       @Override public Stream<A> apply(Stream<? extends A> u) {
@@ -371,12 +546,14 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
     };
   }
 
+  /**
+   * Append stream <code>b</code> to stream <code>a</code>.
+   * Appended streams are flattened into a single stream of parts, so long chains of appends
+   * do not nest and each element passes through just one stage.
+   */
   public static <A> Stream<A> append(final Stream<? extends A> a, final Stream<? extends A> b) {
-    return new Stream<A>(a.getSizeHint() + b.getSizeHint()) {
-      @Override public Iterator<A> iterator() {
-        return Iterators.join(a.iterator(), b.iterator());
-      }
-    };
+    return new AppendStream<A>(AppendStream.<A>parts(a).appendedAll(AppendStream.<A>parts(b)),
+                               a.getSizeInfo().plus(b.getSizeInfo()));
   }
 
   public StreamOp<A, A> append(final Iterable<? extends A> s) {
@@ -388,11 +565,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
   }
 
   public static <A> Stream<A> append(final Stream<? extends A> a, final Iterable<? extends A> b) {
-    return new Stream<A>(a.getSizeHint()) {
-      @Override public Iterator<A> iterator() {
-        return Iterators.join(a.iterator(), b.iterator());
-      }
-    };
+    return append(a, Stream.<A>mk(b));
   }
 
   public StreamOp<A, B> inject(final B a) {
@@ -404,7 +577,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
   }
 
   public static <A> Stream<A> inject(final A a, final Stream<A> s) {
-    return new Stream<A>((s.getSizeHint() * 2) - 1) {
+    return new Stream<A>(s.getSizeInfo().times(2).minus(1)) {
       @Override public Iterator<A> iterator() {
         return new Mapper<A, A>(s.iterator()) {
           private boolean elem = true;
@@ -424,6 +597,21 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           }
         };
       }
+
+      @Override boolean push(final Sink<? super A> sink) {
+        return s.push(new Sink<A>() {
+          private boolean first = true;
+
+          @Override boolean push(A elem) {
+            if (first) {
+              first = false;
+              return sink.push(elem);
+            } else {
+              return sink.push(a) && sink.push(elem);
+            }
+          }
+        });
+      }
     };
   }
 
@@ -440,7 +628,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
    * never be yielded. If the stream is empty the resulting stream consists only of <code>pre</code> and <code>post</code>.
    */
   public static <A> Stream<A> wrap(final A pre, final A post, final Stream<A> s) {
-    return new Stream<A>(s.getSizeHint() + 2) {
+    return new Stream<A>(s.getSizeInfo().plus(SizeHint.exact(2))) {
       @Override public Iterator<A> iterator() {
         return new Mapper<A, A>(s.iterator()) {
           private int wrap = 2;
@@ -464,6 +652,10 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           }
         };
       }
+
+      @Override boolean push(Sink<? super A> sink) {
+        return sink.push(pre) && s.push(sink) && sink.push(post);
+      }
     };
   }
 
@@ -476,7 +668,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
   }
 
   public static <A> Stream<A> each(final Fx<? super A> f, final Stream<A> s) {
-    return new Stream<A>(s.getSizeHint()) {
+    return new Stream<A>(s.getSizeInfo()) {
       @Override public Iterator<A> iterator() {
         return new IdentityIterate<A>(s.iterator()) {
           @Override protected A apply(A a) throws Exit {
@@ -485,6 +677,15 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
           }
         };
       }
+
+      @Override boolean push(final Sink<? super A> sink) {
+        return s.push(new Sink<A>() {
+          @Override boolean push(A a) {
+            f.apply(a);
+            return a == null || sink.push(a);
+          }
+        });
+      }
     };
   }
 
@@ -497,7 +698,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
   }
 
   public static <B, A> Stream<P2<B, A>> group(final Fn<? super A, ? extends B> key, final Stream<A> s) {
-    return new Stream<P2<B, A>>(s.getSizeHint()) {
+    return new Stream<P2<B, A>>(s.getSizeInfo().filtered()) {
       @Override public Iterator<P2<B, A>> iterator() {
         return $(StreamFold.group(key, s).entrySet()).map(Maps.<B, A>toP2()).iterator();
       }
@@ -517,7 +718,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
     if (size <= 0) {
       throw new IllegalArgumentException("size must be greater than 0");
     } else {
-      return new Stream<List<A>>(s.getSizeHint() > 0 ? s.getSizeHint() / size : Stream.NO_SIZE_HINT) {
+      return new Stream<List<A>>(s.getSizeInfo().slices(size)) {
         @Override public Iterator<List<A>> iterator() {
           final Stream<A> cont = $(new NonResettingIterable<A>(s.iterator()));
           return new ImmutableIteratorBase<List<A>>() {
@@ -561,7 +762,7 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
     } else if (times == 0 || s.isEmpty()) {
       return Stream.empty();
     } else {
-      return new Stream<A>(s.getSizeHint() * times) {
+      return new Stream<A>(s.getSizeInfo().times(times)) {
         @Override public Iterator<A> iterator() {
           return new ImmutableIteratorBase<A>() {
             private Iterator<A> it = s.iterator();
@@ -588,42 +789,356 @@ public abstract class StreamOp<A, B> extends Fn<Stream<? extends A>, Stream<B>>
             }
           };
         }
+
+        @Override boolean push(Sink<? super A> sink) {
+          for (int i = 0; i < times; i++) {
+            if (!s.push(sink)) {
+              return false;
+            }
+          }
+          return true;
+        }
       };
     }
   }
 
   // --
 
+  /**
+   * Return the source of stream <code>s</code> if it is an immutable random access list, null otherwise.
+   * Operations on such a stream may be implemented by views of the list which
+   * {@link Stream#toList()} returns without copying.
+   * <p/>
+   * An order changing stream that has not been evaluated yet does not qualify since asking for its
+   * source would evaluate it.
+   */
+  @SuppressWarnings("unchecked")
+  private static <A> List<A> indexedSrc(Stream<A> s) {
+    if (s instanceof OrderChangingStream && !((OrderChangingStream) s).isEvaluated()) {
+      return null;
+    }
+    final Iterable<A> src = s.getSrcHint();
+    return src instanceof List && src instanceof Immutable && src instanceof RandomAccess ? (List<A>) src : null;
+  }
+
   /** Stream implementation that relies on mutably changing collection operations. */
   private static abstract class OrderChangingStream<A> extends Stream<A> {
     private List<A> intermediate;
-    private final Stream<A> s;
+    /** The source stream. */
+    final Stream<A> s;
 
-    private OrderChangingStream(Stream<A> s) {
-      super(s.getSizeHint());
+    private OrderChangingStream(Stream<A> s, SizeHint sizeHint) {
+      super(sizeHint);
       this.s = s;
     }
 
     private List<A> intermediate() {
       if (intermediate == null) {
-        final List<A> i = s.toList(ListBuilders.strictMutableArray);
-        changeOrder(i);
-        intermediate = ListBuilders.looseImmutableArray.mk(i);
+        intermediate = ListBuilders.looseImmutableArray.mk(eval(s));
       }
       return intermediate;
     }
 
-    protected abstract void changeOrder(List<A> list);
+    boolean isEvaluated() {
+      return intermediate != null;
+    }
+
+    /** Evaluate stream <code>s</code> into a list of its elements in their new order. */
+    protected abstract List<A> eval(Stream<A> s);
 
     @Override public Iterator<A> iterator() {
       return intermediate().iterator();
     }
 
+    @Override boolean push(Sink<? super A> sink) {
+      for (A a : intermediate()) {
+        if (!sink.push(a)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     @Override protected Iterable<A> getSrcHint() {
       return intermediate();
     }
   }
 
+  private static final class SortStream<A> extends OrderChangingStream<A> {
+    private final Comparator<A> order;
+
+    private SortStream(Comparator<A> order, Stream<A> s) {
+      super(s, s.getSizeInfo());
+      this.order = order;
+    }
+
+    @Override protected List<A> eval(Stream<A> s) {
+      final List<A> list = s.toList(ListBuilders.strictMutableArray);
+      Collections.sort(list, order);
+      return list;
+    }
+  }
+
+  /** Concatenation of streams. */
+  static final class AppendStream<A> extends Stream<A> {
+    private final PersistentVector<Stream<? extends A>> parts;
+
+    AppendStream(PersistentVector<Stream<? extends A>> parts, SizeHint sizeHint) {
+      super(sizeHint);
+      this.parts = parts;
+    }
+
+    /** Return the parts of <code>s</code>. */
+    @SuppressWarnings("unchecked")
+    static <A> PersistentVector<Stream<? extends A>> parts(Stream<? extends A> s) {
+      if (s instanceof AppendStream) {
+        return ((AppendStream<A>) s).parts;
+      } else {
+        return PersistentVector.<Stream<? extends A>>empty().appended(s);
+      }
+    }
+
+    @Override public Iterator<A> iterator() {
+      final List<Iterator<A>> its = new ArrayList<Iterator<A>>(parts.size());
+      for (final Stream<? extends A> s : parts) {
+        // create the iterators lazily
+        its.add(new ImmutableIteratorBase<A>() {
+          private Iterator<? extends A> it;
+
+          @Override public boolean hasNext() {
+            if (it == null) {
+              it = s.iterator();
+            }
+            return it.hasNext();
+          }
+
+          @Override public A next() {
+            if (it == null) {
+              it = s.iterator();
+            }
+            return it.next();
+          }
+        });
+      }
+      return Iterators.concat(its);
+    }
+
+    @Override boolean push(Sink<? super A> sink) {
+      for (Stream<? extends A> s : parts) {
+        if (!s.push(sink)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** A stream applying a map filter chain to its source stream. */
+  static final class MapFilterStream<A> extends Stream<A> {
+    final Stream<?> src;
+    final MapFilter chain;
+
+    MapFilterStream(Stream<?> src, MapFilter chain) {
+      super(chain.hasFilter() ? src.getSizeInfo().filtered() : src.getSizeInfo());
+      this.src = src;
+      this.chain = chain;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public Iterator<A> iterator() {
+      return new Iterate<Object, A>((Iterator<Object>) src.iterator()) {
+        @Override protected A apply(Object a) {
+          return (A) chain.apply(a);
+        }
+      };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override boolean push(final Sink<? super A> sink) {
+      return src.push(new Sink<Object>() {
+        @Override boolean push(Object a) {
+          final Object b = chain.apply(a);
+          return b == null || sink.push((A) b);
+        }
+      });
+    }
+  }
+
+  /**
+   * A stream operation made of an optional <code>prefix</code> operation followed by a map filter chain.
+   * Maps and filters appended to the operation are fused into the chain instead of adding a new stage.
+   */
+  private static final class MapFilterOp<A, B> extends StreamOp<A, B> {
+    /** Operation to apply before the chain. Null means identity. */
+    private final StreamOp<? super A, ?> prefix;
+    private final MapFilter chain;
+
+    MapFilterOp(StreamOp<? super A, ?> prefix, MapFilter chain) {
+      this.prefix = prefix;
+      this.chain = chain;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public Stream<B> apply(Stream<? extends A> s) {
+      if (prefix == null) {
+        return chain.isEmpty() ? StreamOp.<B>id((Stream<B>) s) : StreamOp.<B>mapFilter(chain, s);
+      } else {
+        final Stream<?> p = prefix.apply(s);
+        return chain.isEmpty() ? (Stream<B>) p : StreamOp.<B>mapFilter(chain, p);
+      }
+    }
+  }
+
+  /** Sink passing on the first <code>n</code> elements. Elements which are null are counted but not passed on. */
+  private static final class Take<A> extends Sink<A> {
+    private final Sink<? super A> sink;
+    private int count;
+    /** Set if the downstream sink stopped the iteration. */
+    private boolean stopped;
+
+    private Take(int n, Sink<? super A> sink) {
+      this.sink = sink;
+      this.count = n;
+    }
+
+    @Override boolean push(A a) {
+      count--;
+      if (a != null && !sink.push(a)) {
+        stopped = true;
+        return false;
+      } else {
+        return count > 0;
+      }
+    }
+  }
+
+  /** Sink passing on elements as long as they satisfy a predicate. */
+  private static final class TakeWhile<A> extends Sink<A> {
+    private final Pred<? super A> p;
+    private final Sink<? super A> sink;
+    /** Set if the downstream sink stopped the iteration. */
+    private boolean stopped;
+
+    private TakeWhile(Pred<? super A> p, Sink<? super A> sink) {
+      this.p = p;
+      this.sink = sink;
+    }
+
+    @Override boolean push(A a) {
+      if (!p.test(a)) {
+        return false;
+      } else if (a != null && !sink.push(a)) {
+        stopped = true;
+        return false;
+      } else {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Sink keeping the <code>k</code> smallest elements in a bounded max heap.
+   * Equal elements are ordered by their arrival to keep the result stable.
+   */
+  private static final class Top<A> extends Sink<A> {
+    private final int k;
+    private final Comparator<? super A> order;
+    private Object[] heap;
+    /** Arrival number of each element in the heap. */
+    private long[] seq;
+    private int size;
+    private long count;
+
+    private Top(int k, Comparator<? super A> order) {
+      this.k = k;
+      this.order = order;
+      this.heap = new Object[Math.min(k, 16)];
+      this.seq = new long[heap.length];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override boolean push(A a) {
+      if (a != null) {
+        if (size < k) {
+          if (size == heap.length) {
+            final int capacity = (int) Math.min(k, 2L * size);
+            heap = Arrays.copyOf(heap, capacity);
+            seq = Arrays.copyOf(seq, capacity);
+          }
+          heap[size] = a;
+          seq[size] = count;
+          siftUp(size++);
+        } else if (order.compare(a, (A) heap[0]) < 0) {
+          // replace the greatest element
+          heap[0] = a;
+          seq[0] = count;
+          siftDown(0);
+        }
+        count++;
+      }
+      return true;
+    }
+
+    /** Drain the heap into a sorted list. */
+    @SuppressWarnings("unchecked")
+    private List<A> toList() {
+      final Object[] sorted = new Object[size];
+      while (size > 0) {
+        sorted[size - 1] = heap[0];
+        size--;
+        heap[0] = heap[size];
+        seq[0] = seq[size];
+        heap[size] = null;
+        siftDown(0);
+      }
+      return Arrays.asList((A[]) sorted);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(int i, int j) {
+      final int c = order.compare((A) heap[i], (A) heap[j]);
+      return c != 0 ? c : Long.compare(seq[i], seq[j]);
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        final int parent = (i - 1) >>> 1;
+        if (compare(i, parent) > 0) {
+          swap(i, parent);
+          i = parent;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private void siftDown(int i) {
+      while (true) {
+        final int left = 2 * i + 1;
+        if (left >= size) {
+          return;
+        }
+        final int right = left + 1;
+        final int max = right < size && compare(right, left) > 0 ? right : left;
+        if (compare(max, i) > 0) {
+          swap(max, i);
+          i = max;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private void swap(int i, int j) {
+      final Object a = heap[i];
+      heap[i] = heap[j];
+      heap[j] = a;
+      final long s = seq[i];
+      seq[i] = seq[j];
+      seq[j] = s;
+    }
+  }
+
   /** An iterable that yields the same iterator on each call to {@link Iterable#iterator}. */
   private static class NonResettingIterable<A> implements Iterable<A> {
     private final Iterator<A> it;
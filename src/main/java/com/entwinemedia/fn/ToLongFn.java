@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+/** Function from A to <code>long</code>. Primitive specialization of <code>Fn&lt;A, Long&gt;</code>. */
+public abstract class ToLongFn<A> {
+  /** Convert a function into a primitive function. */
+  public static <A> ToLongFn<A> mk(final Fn<? super A, ? extends Long> f) {
+    return new ToLongFn<A>() {
+      @Override public long apply(A a) {
+        return f.apply(a);
+      }
+    };
+  }
+
+  /** Function application. */
+  public abstract long apply(A a);
+}
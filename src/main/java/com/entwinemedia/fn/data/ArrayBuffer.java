@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Growable list buffer that is turned into an immutable array backed list by {@link #toList()}.
+ * <p/>
+ * Elements are written directly into an <code>Object[]</code>. If the buffer is created with the exact
+ * number of elements the array is handed over to the list without copying. Otherwise the array grows
+ * geometrically and is trimmed once when the list is created.
+ * The buffer must not be used after the list has been created.
+ */
+public final class ArrayBuffer<A> extends AbstractList<A> implements RandomAccess {
+  private static final int DEFAULT_CAPACITY = 8;
+
+  private Object[] array;
+  private int size;
+
+  /** Create a buffer for an unknown number of elements. */
+  public ArrayBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** Create a buffer expecting <code>capacity</code> elements. */
+  public ArrayBuffer(int capacity) {
+    this.array = new Object[Math.max(capacity, 0)];
+  }
+
+  private ArrayBuffer(Object[] array, int size) {
+    this.array = array;
+    this.size = size;
+  }
+
+  /**
+   * Create a buffer holding the first <code>size</code> elements of <code>array</code>.
+   * The buffer takes over the array, so it must not be used by the caller anymore.
+   */
+  public static <A> ArrayBuffer<A> wrap(Object[] array, int size) {
+    if (size < 0 || size > array.length) {
+      throw new IndexOutOfBoundsException("size: " + size + ", length: " + array.length);
+    }
+    return new ArrayBuffer<A>(array, size);
+  }
+
+  @Override public boolean add(A a) {
+    if (size == array.length) {
+      grow(size + 1);
+    }
+    array[size++] = a;
+    return true;
+  }
+
+  @Override public boolean addAll(Collection<? extends A> as) {
+    final Object[] xs = as.toArray();
+    if (size + xs.length > array.length) {
+      grow(size + xs.length);
+    }
+    System.arraycopy(xs, 0, array, size, xs.length);
+    size += xs.length;
+    return xs.length > 0;
+  }
+
+  @Override @SuppressWarnings("unchecked")
+  public A get(int i) {
+    if (i >= size) {
+      throw new IndexOutOfBoundsException("index: " + i + ", size: " + size);
+    }
+    return (A) array[i];
+  }
+
+  @Override public int size() {
+    return size;
+  }
+
+  /**
+   * Create an immutable list of the buffered elements. Lists with up to {@link CompactLists#MAX_FIELDS}
+   * elements are stored in fields.
+   */
+  @SuppressWarnings("unchecked")
+  public List<A> toList() {
+    final Object[] elems = size == array.length ? array : Arrays.copyOf(array, size);
+    array = null;
+    return size <= CompactLists.MAX_FIELDS
+            ? CompactLists.copyOf((A[]) elems)
+            : ImmutableListArrayAdapter.owning((A[]) elems);
+  }
+
+  private void grow(int minCapacity) {
+    array = Arrays.copyOf(array, Math.max(minCapacity, Math.max(array.length * 2, DEFAULT_CAPACITY)));
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import com.entwinemedia.fn.Equality;
+import com.entwinemedia.fn.Stream;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable lists that store up to {@link #MAX_FIELDS} elements in fields instead of a backing array.
+ * Larger lists are stored in an exact-size array.
+ * <p/>
+ * Most lists are small. A list of three elements held in fields takes a single object
+ * instead of an immutable wrapper, an {@link java.util.ArrayList} and its backing array.
+ */
+public final class CompactLists {
+  /** Maximum number of elements stored in fields. */
+  public static final int MAX_FIELDS = 4;
+
+  private CompactLists() {
+  }
+
+  /** Create a list from array <code>as</code>. The array is copied. */
+  public static <A> List<A> copyOf(A[] as) {
+    switch (as.length) {
+      case 0:
+        return ListBuilderUtils.nil();
+      case 1:
+        return new List1<A>(as[0]);
+      case 2:
+        return new List2<A>(as[0], as[1]);
+      case 3:
+        return new List3<A>(as[0], as[1], as[2]);
+      case 4:
+        return new List4<A>(as[0], as[1], as[2], as[3]);
+      default:
+        return ImmutableListArrayAdapter.owning(as.clone());
+    }
+  }
+
+  /** Create a list from collection <code>as</code>. */
+  @SuppressWarnings("unchecked")
+  public static <A> List<A> copyOf(Collection<? extends A> as) {
+    final Iterator<? extends A> it = as.iterator();
+    switch (as.size()) {
+      case 0:
+        return ListBuilderUtils.nil();
+      case 1:
+        return new List1<A>(it.next());
+      case 2:
+        return new List2<A>(it.next(), it.next());
+      case 3:
+        return new List3<A>(it.next(), it.next(), it.next());
+      case 4:
+        return new List4<A>(it.next(), it.next(), it.next(), it.next());
+      default:
+        final Object[] array = new Object[as.size()];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = it.next();
+        }
+        return ImmutableListArrayAdapter.owning((A[]) array);
+    }
+  }
+
+  /** Create a single element list. */
+  public static <A> List<A> mk(A a) {
+    return new List1<A>(a);
+  }
+
+  /** Base class for lists that implement just {@link #size()} and {@link #get(int)}. */
+  abstract static class IndexedList<A> extends ImmutableListBase<A> implements RandomAccess {
+    @Override public boolean isEmpty() {
+      return size() == 0;
+    }
+
+    @Override public boolean contains(Object o) {
+      return indexOf(o) >= 0;
+    }
+
+    @Override public boolean containsAll(Collection<?> objects) {
+      for (Object o : objects) {
+        if (!contains(o))
+          return false;
+      }
+      return true;
+    }
+
+    @Override public int indexOf(Object o) {
+      for (int i = 0; i < size(); i++) {
+        if (Equality.eq(get(i), o))
+          return i;
+      }
+      return -1;
+    }
+
+    @Override public int lastIndexOf(Object o) {
+      for (int i = size() - 1; i >= 0; i--) {
+        if (Equality.eq(get(i), o))
+          return i;
+      }
+      return -1;
+    }
+
+    @Override public Iterator<A> iterator() {
+      return new ImmutableIteratorBase<A>() {
+        private int i = 0;
+
+        @Override public boolean hasNext() {
+          return i < size();
+        }
+
+        @Override public A next() {
+          if (i >= size()) {
+            throw new NoSuchElementException();
+          }
+          return get(i++);
+        }
+      };
+    }
+
+    @Override public ListIterator<A> listIterator() {
+      return ImmutableListIteratorListAdapter.mk(this);
+    }
+
+    @Override public ListIterator<A> listIterator(int i) {
+      return ImmutableListIteratorListAdapter.mk(this, i);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<A> subList(int from, int to) {
+      if (from < 0 || to > size() || from > to) {
+        throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+      }
+      final Object[] array = new Object[to - from];
+      for (int i = from; i < to; i++) {
+        array[i - from] = get(i);
+      }
+      return copyOf((A[]) array);
+    }
+
+    @Override public Object[] toArray() {
+      final Object[] array = new Object[size()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = get(i);
+      }
+      return array;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] ts) {
+      final int size = size();
+      final T[] array = ts.length >= size
+              ? ts
+              : (T[]) java.lang.reflect.Array.newInstance(ts.getClass().getComponentType(), size);
+      for (int i = 0; i < size; i++) {
+        array[i] = (T) get(i);
+      }
+      if (array.length > size) {
+        array[size] = null;
+      }
+      return array;
+    }
+
+    @Override public int hashCode() {
+      int h = 1;
+      for (int i = 0; i < size(); i++) {
+        final A a = get(i);
+        h = 31 * h + (a == null ? 0 : a.hashCode());
+      }
+      return h;
+    }
+
+    @Override public boolean equals(Object that) {
+      return this == that || (that instanceof List && eqElems((List<?>) that));
+    }
+
+    private boolean eqElems(List<?> that) {
+      if (size() == that.size()) {
+        final Iterator<?> it = that.iterator();
+        for (int i = 0; i < size(); i++) {
+          if (Equality.ne(get(i), it.next())) {
+            return false;
+          }
+        }
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    @Override public String toString() {
+      return Stream.<Object>$(this).inject(",").wrap("[", "]").mkString();
+    }
+
+    IndexOutOfBoundsException outOfBounds(int i) {
+      return new IndexOutOfBoundsException("index: " + i + ", size: " + size());
+    }
+  }
+
+  static final class List1<A> extends IndexedList<A> {
+    private final A a0;
+
+    List1(A a0) {
+      this.a0 = a0;
+    }
+
+    @Override public int size() {
+      return 1;
+    }
+
+    @Override public A get(int i) {
+      if (i == 0) {
+        return a0;
+      }
+      throw outOfBounds(i);
+    }
+  }
+
+  static final class List2<A> extends IndexedList<A> {
+    private final A a0;
+    private final A a1;
+
+    List2(A a0, A a1) {
+      this.a0 = a0;
+      this.a1 = a1;
+    }
+
+    @Override public int size() {
+      return 2;
+    }
+
+    @Override public A get(int i) {
+      switch (i) {
+        case 0:
+          return a0;
+        case 1:
+          return a1;
+        default:
+          throw outOfBounds(i);
+      }
+    }
+  }
+
+  static final class List3<A> extends IndexedList<A> {
+    private final A a0;
+    private final A a1;
+    private final A a2;
+
+    List3(A a0, A a1, A a2) {
+      this.a0 = a0;
+      this.a1 = a1;
+      this.a2 = a2;
+    }
+
+    @Override public int size() {
+      return 3;
+    }
+
+    @Override public A get(int i) {
+      switch (i) {
+        case 0:
+          return a0;
+        case 1:
+          return a1;
+        case 2:
+          return a2;
+        default:
+          throw outOfBounds(i);
+      }
+    }
+  }
+
+  static final class List4<A> extends IndexedList<A> {
+    private final A a0;
+    private final A a1;
+    private final A a2;
+    private final A a3;
+
+    List4(A a0, A a1, A a2, A a3) {
+      this.a0 = a0;
+      this.a1 = a1;
+      this.a2 = a2;
+      this.a3 = a3;
+    }
+
+    @Override public int size() {
+      return 4;
+    }
+
+    @Override public A get(int i) {
+      switch (i) {
+        case 0:
+          return a0;
+        case 1:
+          return a1;
+        case 2:
+          return a2;
+        case 3:
+          return a3;
+        default:
+          throw outOfBounds(i);
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import com.entwinemedia.fn.Equality;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable sets that store up to {@link #MAX_FIELDS} elements in fields instead of a hash table.
+ * Membership is tested by comparing with each element, which is as fast as hashing for sets this small.
+ */
+public final class CompactSets {
+  /** Maximum number of elements stored in fields. */
+  public static final int MAX_FIELDS = 4;
+
+  private CompactSets() {
+  }
+
+  /**
+   * Create a compact copy of set <code>as</code> if it has no more than {@link #MAX_FIELDS} elements.
+   * Return null otherwise.
+   */
+  public static <A> Set<A> copyOf(Set<? extends A> as) {
+    final Iterator<? extends A> it = as.iterator();
+    switch (as.size()) {
+      case 1:
+        return new Set1<A>(it.next());
+      case 2:
+        return new Set2<A>(it.next(), it.next());
+      case 3:
+        return new Set3<A>(it.next(), it.next(), it.next());
+      case 4:
+        return new Set4<A>(it.next(), it.next(), it.next(), it.next());
+      default:
+        return null;
+    }
+  }
+
+  /** Base class for sets that implement just {@link #size()} and {@link #get(int)}. */
+  abstract static class IndexedSet<A> extends AbstractSet<A> implements Immutable {
+    abstract A get(int i);
+
+    @Override public boolean contains(Object o) {
+      for (int i = 0; i < size(); i++) {
+        if (Equality.eq(get(i), o))
+          return true;
+      }
+      return false;
+    }
+
+    @Override public Iterator<A> iterator() {
+      return new ImmutableIteratorBase<A>() {
+        private int i = 0;
+
+        @Override public boolean hasNext() {
+          return i < size();
+        }
+
+        @Override public A next() {
+          if (i >= size()) {
+            throw new NoSuchElementException();
+          }
+          return get(i++);
+        }
+      };
+    }
+  }
+
+  static final class Set1<A> extends IndexedSet<A> {
+    private final A a0;
+
+    Set1(A a0) {
+      this.a0 = a0;
+    }
+
+    @Override public int size() {
+      return 1;
+    }
+
+    @Override A get(int i) {
+      return a0;
+    }
+  }
+
+  static final class Set2<A> extends IndexedSet<A> {
+    private final A a0;
+    private final A a1;
+
+    Set2(A a0, A a1) {
+      this.a0 = a0;
+      this.a1 = a1;
+    }
+
+    @Override public int size() {
+      return 2;
+    }
+
+    @Override A get(int i) {
+      return i == 0 ? a0 : a1;
+    }
+  }
+
+  static final class Set3<A> extends IndexedSet<A> {
+    private final A a0;
+    private final A a1;
+    private final A a2;
+
+    Set3(A a0, A a1, A a2) {
+      this.a0 = a0;
+      this.a1 = a1;
+      this.a2 = a2;
+    }
+
+    @Override public int size() {
+      return 3;
+    }
+
+    @Override A get(int i) {
+      return i == 0 ? a0 : i == 1 ? a1 : a2;
+    }
+  }
+
+  static final class Set4<A> extends IndexedSet<A> {
+    private final A a0;
+    private final A a1;
+    private final A a2;
+    private final A a3;
+
+    Set4(A a0, A a1, A a2, A a3) {
+      this.a0 = a0;
+      this.a1 = a1;
+      this.a2 = a2;
+      this.a3 = a3;
+    }
+
+    @Override public int size() {
+      return 4;
+    }
+
+    @Override A get(int i) {
+      return i == 0 ? a0 : i == 1 ? a1 : i == 2 ? a2 : a3;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data;
+
+import com.entwinemedia.fn.DoubleStream;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable list of primitive <code>double</code> values. Unlike a <code>List&lt;Double&gt;</code> it does not box its elements.
+ *
+ * @see DoubleListBuilder
+ * @see DoubleStream#toList()
+ */
+public final class DoubleList implements Immutable {
+  private static final DoubleList EMPTY = new DoubleList(new double[0]);
+
+  private final double[] as;
+
+  /** Take ownership of array <code>as</code>. */
+  DoubleList(double[] as) {
+    this.as = as;
+  }
+
+  /** Return the empty list. */
+  public static DoubleList empty() {
+    return EMPTY;
+  }
+
+  /** Create a list from an array. The array is copied. */
+  public static DoubleList mk(double... as) {
+    return as.length == 0 ? EMPTY : new DoubleList(as.clone());
+  }
+
+  public int size() {
+    return as.length;
+  }
+
+  public boolean isEmpty() {
+    return as.length == 0;
+  }
+
+  public double get(int i) {
+    return as[i];
+  }
+
+  public boolean contains(double a) {
+    return indexOf(a) >= 0;
+  }
+
+  /** Return the index of the first occurrence of <code>a</code> or -1. */
+  public int indexOf(double a) {
+    for (int i = 0; i < as.length; i++) {
+      if (Double.doubleToLongBits(as[i]) == Double.doubleToLongBits(a)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Search for <code>a</code> in a sorted list.
+   *
+   * @see Arrays#binarySearch(double[], double)
+   */
+  public int binarySearch(double a) {
+    return Arrays.binarySearch(as, a);
+  }
+
+  /** Return a sorted copy of the list. */
+  public DoubleList sort() {
+    final double[] sorted = as.clone();
+    Arrays.sort(sorted);
+    return new DoubleList(sorted);
+  }
+
+  /** Return a copy of the values. */
+  public double[] toArray() {
+    return as.clone();
+  }
+
+  /** Stream the values without boxing them. */
+  public DoubleStream stream() {
+    return DoubleStream.mk(as);
+  }
+
+  /** Return a boxed view of the list. */
+  public List<Double> boxed() {
+    return new CompactLists.IndexedList<Double>() {
+      @Override public int size() {
+        return as.length;
+      }
+
+      @Override public Double get(int i) {
+        return as[i];
+      }
+    };
+  }
+
+  @Override public int hashCode() {
+    return Arrays.hashCode(as);
+  }
+
+  @Override public boolean equals(Object that) {
+    return this == that || (that instanceof DoubleList && Arrays.equals(as, ((DoubleList) that).as));
+  }
+
+  @Override public String toString() {
+    return "DoubleList" + Arrays.toString(as);
+  }
+}
@@ -16,9 +16,13 @@
 
 package com.entwinemedia.fn.data;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Creates immutable array backed lists. Elements are buffered in an {@link ArrayBuffer} whose array
+ * is handed over to the list. Lists with up to {@link CompactLists#MAX_FIELDS} elements are stored
+ * compactly in fields.
+ */
 public class ImmutableArrayListFactory implements ListFactory {
   public static final ImmutableArrayListFactory I = new ImmutableArrayListFactory();
 
@@ -28,14 +32,20 @@ public class ImmutableArrayListFactory implements ListFactory {
   }
 
   @Override public <A> List<A> buffer() {
-    return new ArrayList<A>();
+    return new ArrayBuffer<A>();
   }
 
   @Override public <A> List<A> buffer(int size) {
-    return new ArrayList<A>(size);
+    return new ArrayBuffer<A>(size);
   }
 
   @Override public <A> List<A> toList(List<A> buf) {
-    return new ImmutableListWrapper<A>(buf);
+    if (buf instanceof ArrayBuffer) {
+      return ((ArrayBuffer<A>) buf).toList();
+    } else if (buf.size() <= CompactLists.MAX_FIELDS) {
+      return CompactLists.copyOf(buf);
+    } else {
+      return new ImmutableListWrapper<A>(buf);
+    }
   }
 }
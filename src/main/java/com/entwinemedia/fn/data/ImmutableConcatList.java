@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable view of the concatenation of immutable lists.
+ * <p/>
+ * The parts are not copied. An index of cumulative offsets finds the part holding an element
+ * in O(log k) for k parts. Concatenating a concatenation view splices its parts instead of nesting
+ * the view, so views are never deeper than one level. Once a concatenation would consist of more than
+ * {@link #MAX_PARTS} parts it is copied into a single array instead.
+ */
+public final class ImmutableConcatList<A> extends CompactLists.IndexedList<A> {
+  /** Maximum number of parts of a view. */
+  public static final int MAX_PARTS = 32;
+
+  private final List<A>[] parts;
+  /** <code>offsets[i]</code> is the index of the first element of <code>parts[i]</code>. */
+  private final int[] offsets;
+  private final int size;
+
+  private ImmutableConcatList(List<A>[] parts, int[] offsets, int size) {
+    this.parts = parts;
+    this.offsets = offsets;
+    this.size = size;
+  }
+
+  /**
+   * Concatenate immutable lists. Return a view of them if possible or a copy
+   * if the concatenation is too fragmented.
+   */
+  @SuppressWarnings("unchecked")
+  public static <A> List<A> mk(Iterable<? extends List<? extends A>> lists) {
+    final List<List<A>> parts = new ArrayList<List<A>>();
+    int size = 0;
+    for (List<? extends A> list : lists) {
+      if (list instanceof ImmutableConcatList) {
+        Collections.addAll(parts, ((ImmutableConcatList<A>) list).parts);
+      } else if (!list.isEmpty()) {
+        parts.add((List<A>) list);
+      }
+      size += list.size();
+    }
+    if (parts.isEmpty()) {
+      return ListBuilderUtils.nil();
+    } else if (parts.size() == 1) {
+      return parts.get(0);
+    } else if (parts.size() > MAX_PARTS || size <= CompactLists.MAX_FIELDS) {
+      final ArrayBuffer<A> buf = new ArrayBuffer<A>(size);
+      for (List<A> part : parts) {
+        buf.addAll(part);
+      }
+      return buf.toList();
+    } else {
+      final int[] offsets = new int[parts.size()];
+      int offset = 0;
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = offset;
+        offset += parts.get(i).size();
+      }
+      return new ImmutableConcatList<A>((List<A>[]) parts.toArray(new List<?>[parts.size()]), offsets, size);
+    }
+  }
+
+  /**
+   * Check if all <code>lists</code> own their storage so that they can be concatenated by a view.
+   * Lists that are only marked {@link Immutable} may still wrap a list or array of the caller,
+   * e.g. those of {@link ListBuilders#LIA}, so they are not safe to share.
+   */
+  public static boolean canConcat(Iterable<?> lists) {
+    for (Object list : lists) {
+      if (!ownsStorage(list)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean ownsStorage(Object list) {
+    return list == ListBuilderUtils.nil()
+        || list instanceof ImmutableConcatList
+        || list instanceof PersistentVector
+        || list instanceof CompactLists.List1
+        || list instanceof CompactLists.List2
+        || list instanceof CompactLists.List3
+        || list instanceof CompactLists.List4
+        || (list instanceof ImmutableListArrayAdapter && ((ImmutableListArrayAdapter<?>) list).ownsArray());
+  }
+
+  /** Return the number of parts. */
+  public int getPartCount() {
+    return parts.length;
+  }
+
+  @Override public int size() {
+    return size;
+  }
+
+  @Override public A get(int i) {
+    if (i < 0 || i >= size) {
+      throw outOfBounds(i);
+    }
+    final int found = Arrays.binarySearch(offsets, i);
+    // a negative result is the insertion point of i, so i belongs to the part before it
+    final int part = found >= 0 ? found : -found - 2;
+    return parts[part].get(i - offsets[part]);
+  }
+
+  @Override public Iterator<A> iterator() {
+    return new ImmutableIteratorBase<A>() {
+      private int part = 0;
+      private Iterator<A> it = parts[0].iterator();
+
+      @Override public boolean hasNext() {
+        while (!it.hasNext()) {
+          if (part + 1 >= parts.length) {
+            return false;
+          }
+          it = parts[++part].iterator();
+        }
+        return true;
+      }
+
+      @Override public A next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return it.next();
+      }
+    };
+  }
+}
@@ -19,9 +19,14 @@ package com.entwinemedia.fn.data;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * Builds immutable sets based on {@link HashSet}. Sets with up to {@link CompactSets#MAX_FIELDS}
+ * elements are stored compactly in fields.
+ */
 public final class ImmutableHashSetBuilder extends AbstractImmutableSetBuilder {
   @Override protected <A> Set<A> finish(Set<A> buf) {
-    return new ImmutableSetWrapper<A>(buf);
+    final Set<A> compact = CompactSets.copyOf(buf);
+    return compact != null ? compact : new ImmutableSetWrapper<A>(buf);
   }
 
   @Override protected <A> Set<A> create(int length) {
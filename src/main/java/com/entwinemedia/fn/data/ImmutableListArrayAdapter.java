@@ -23,17 +23,35 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.RandomAccess;
 
 /**
  * Makes an array available as an immutable list.
  * <p/>
  * <em>Attention:</em> The list can still be modified through the wrapped array.
  */
-public final class ImmutableListArrayAdapter<A> extends ImmutableListBase<A> {
+public final class ImmutableListArrayAdapter<A> extends ImmutableListBase<A> implements RandomAccess {
   private final A[] array;
+  /** True if the array is not accessible from outside of the list. */
+  private final boolean owned;
 
   public ImmutableListArrayAdapter(A[] array) {
+    this(array, false);
+  }
+
+  ImmutableListArrayAdapter(A[] array, boolean owned) {
     this.array = array;
+    this.owned = owned;
+  }
+
+  /** Create a list that takes over <code>array</code>. Nobody else must hold a reference to it. */
+  static <A> ImmutableListArrayAdapter<A> owning(A[] array) {
+    return new ImmutableListArrayAdapter<A>(array, true);
+  }
+
+  /** Check if the list is the only holder of its array, so that it is truly immutable. */
+  boolean ownsArray() {
+    return owned;
   }
 
   public static <A> ImmutableListArrayAdapter<A> mk(A... array) {
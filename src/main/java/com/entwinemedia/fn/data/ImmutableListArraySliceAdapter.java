@@ -25,8 +25,9 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.RandomAccess;
 
-public class ImmutableListArraySliceAdapter<A> extends ImmutableListBase<A> {
+public class ImmutableListArraySliceAdapter<A> extends ImmutableListBase<A> implements RandomAccess {
   private final A[] array;
   private final int start, end;
 
@@ -96,9 +97,9 @@ public class ImmutableListArraySliceAdapter<A> extends ImmutableListBase<A> {
   }
 
   @Override public int lastIndexOf(Object o) {
-    for (int i = size() - 1; i >= 0; i--) {
+    for (int i = end - 1; i >= start; i--) {
       if (eq(array[i], o))
-        return i;
+        return i - start;
     }
     return -1;
   }
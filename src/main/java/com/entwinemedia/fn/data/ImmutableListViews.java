@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data;
+
+import com.entwinemedia.fn.P2;
+import com.entwinemedia.fn.ProductBuilder;
+import com.entwinemedia.fn.Products;
+
+import java.util.List;
+
+/**
+ * Immutable views of immutable random access lists.
+ * <p/>
+ * All views are created in O(1) without copying any elements. Views of views are collapsed,
+ * e.g. a slice of a slice refers to the original list and reversing a reversed list returns the original list.
+ */
+public final class ImmutableListViews {
+  private static final ProductBuilder p = Products.E;
+
+  private ImmutableListViews() {
+  }
+
+  /** Return a view of the elements of <code>as</code> in the range <code>[from, to)</code>. */
+  public static <A> List<A> slice(List<A> as, int from, int to) {
+    if (from < 0 || to > as.size() || from > to) {
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + as.size());
+    }
+    if (from == 0 && to == as.size()) {
+      return as;
+    } else if (from == to) {
+      return ListBuilderUtils.nil();
+    } else if (as instanceof Slice) {
+      final Slice<A> slice = (Slice<A>) as;
+      return new Slice<A>(slice.as, slice.from + from, slice.from + to);
+    } else if (as instanceof Reversed) {
+      final List<A> reversed = ((Reversed<A>) as).as;
+      return reverse(slice(reversed, as.size() - to, as.size() - from));
+    } else if (as instanceof ImmutableListArrayAdapter
+            || as instanceof ImmutableListArraySliceAdapter
+            || as instanceof PersistentVector) {
+      // these lists already slice in O(1)
+      return as.subList(from, to);
+    } else {
+      return new Slice<A>(as, from, to);
+    }
+  }
+
+  /** Return a view of the elements of <code>as</code> in reverse order. */
+  public static <A> List<A> reverse(List<A> as) {
+    if (as instanceof Reversed) {
+      return ((Reversed<A>) as).as;
+    } else if (as.size() <= 1) {
+      return as;
+    } else {
+      return new Reversed<A>(as);
+    }
+  }
+
+  /**
+   * Return a view of the elements of <code>as</code> paired with their index.
+   * The pairs are created on access.
+   */
+  public static <A> List<P2<A, Integer>> zipWithIndex(List<A> as) {
+    return as.isEmpty() ? ListBuilderUtils.<P2<A, Integer>>nil() : new ZipWithIndex<A>(as);
+  }
+
+  private static final class Slice<A> extends CompactLists.IndexedList<A> {
+    private final List<A> as;
+    private final int from;
+    private final int to;
+
+    private Slice(List<A> as, int from, int to) {
+      this.as = as;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override public int size() {
+      return to - from;
+    }
+
+    @Override public A get(int i) {
+      if (i < 0 || i >= size()) {
+        throw outOfBounds(i);
+      }
+      return as.get(from + i);
+    }
+
+    @Override public List<A> subList(int from, int to) {
+      return slice(this, from, to);
+    }
+  }
+
+  private static final class Reversed<A> extends CompactLists.IndexedList<A> {
+    private final List<A> as;
+
+    private Reversed(List<A> as) {
+      this.as = as;
+    }
+
+    @Override public int size() {
+      return as.size();
+    }
+
+    @Override public A get(int i) {
+      if (i < 0 || i >= size()) {
+        throw outOfBounds(i);
+      }
+      return as.get(as.size() - 1 - i);
+    }
+
+    @Override public List<A> subList(int from, int to) {
+      return slice(this, from, to);
+    }
+  }
+
+  private static final class ZipWithIndex<A> extends CompactLists.IndexedList<P2<A, Integer>> {
+    private final List<A> as;
+
+    private ZipWithIndex(List<A> as) {
+      this.as = as;
+    }
+
+    @Override public int size() {
+      return as.size();
+    }
+
+    @Override public P2<A, Integer> get(int i) {
+      if (i < 0 || i >= size()) {
+        throw outOfBounds(i);
+      }
+      return p.p2(as.get(i), i);
+    }
+
+    @Override public List<P2<A, Integer>> subList(int from, int to) {
+      return slice(this, from, to);
+    }
+  }
+}
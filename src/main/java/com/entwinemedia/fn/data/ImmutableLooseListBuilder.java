@@ -31,14 +31,18 @@ public final class ImmutableLooseListBuilder extends ListBuilderBase {
     super(f);
   }
 
-  /** Wrap an array into a list. */
+  /** Wrap an array into a list. Small arrays are copied into a compact list. */
   @Override public <A> List<A> mk(A... xs) {
+    if (xs.length <= CompactLists.MAX_FIELDS) {
+      return CompactLists.copyOf(xs);
+    }
     return new ImmutableListArrayAdapter<A>(xs);
   }
 
   /**
    * Return the collection as is if it is an {@link Immutable} list. Wrap the collection into an
    * immutable list wrapper if <code>xs</code> is a list. Create a new immutable list otherwise.
+   * Small collections are copied into a compact list.
    */
   @Override
   @SuppressWarnings("unchecked")
@@ -46,6 +50,8 @@ public final class ImmutableLooseListBuilder extends ListBuilderBase {
     if (xs instanceof List) {
       if (xs instanceof Immutable) {
         return (List<A>) xs;
+      } else if (xs.size() <= CompactLists.MAX_FIELDS) {
+        return CompactLists.copyOf(xs);
       } else {
         return new ImmutableListWrapper<A>((List<A>) xs);
       }
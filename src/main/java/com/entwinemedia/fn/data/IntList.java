@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data;
+
+import com.entwinemedia.fn.IntStream;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable list of primitive <code>int</code> values. Unlike a <code>List&lt;Integer&gt;</code> it does not box its elements.
+ *
+ * @see IntListBuilder
+ * @see IntStream#toList()
+ */
+public final class IntList implements Immutable {
+  private static final IntList EMPTY = new IntList(new int[0]);
+
+  private final int[] as;
+
+  /** Take ownership of array <code>as</code>. */
+  IntList(int[] as) {
+    this.as = as;
+  }
+
+  /** Return the empty list. */
+  public static IntList empty() {
+    return EMPTY;
+  }
+
+  /** Create a list from an array. The array is copied. */
+  public static IntList mk(int... as) {
+    return as.length == 0 ? EMPTY : new IntList(as.clone());
+  }
+
+  public int size() {
+    return as.length;
+  }
+
+  public boolean isEmpty() {
+    return as.length == 0;
+  }
+
+  public int get(int i) {
+    return as[i];
+  }
+
+  public boolean contains(int a) {
+    return indexOf(a) >= 0;
+  }
+
+  /** Return the index of the first occurrence of <code>a</code> or -1. */
+  public int indexOf(int a) {
+    for (int i = 0; i < as.length; i++) {
+      if (as[i] == a) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Search for <code>a</code> in a sorted list.
+   *
+   * @see Arrays#binarySearch(int[], int)
+   */
+  public int binarySearch(int a) {
+    return Arrays.binarySearch(as, a);
+  }
+
+  /** Return a sorted copy of the list. */
+  public IntList sort() {
+    final int[] sorted = as.clone();
+    Arrays.sort(sorted);
+    return new IntList(sorted);
+  }
+
+  /** Return a copy of the values. */
+  public int[] toArray() {
+    return as.clone();
+  }
+
+  /** Stream the values without boxing them. */
+  public IntStream stream() {
+    return IntStream.mk(as);
+  }
+
+  /** Return a boxed view of the list. */
+  public List<Integer> boxed() {
+    return new CompactLists.IndexedList<Integer>() {
+      @Override public int size() {
+        return as.length;
+      }
+
+      @Override public Integer get(int i) {
+        return as[i];
+      }
+    };
+  }
+
+  @Override public int hashCode() {
+    return Arrays.hashCode(as);
+  }
+
+  @Override public boolean equals(Object that) {
+    return this == that || (that instanceof IntList && Arrays.equals(as, ((IntList) that).as));
+  }
+
+  @Override public String toString() {
+    return "IntList" + Arrays.toString(as);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of primitive <code>int</code> values that builds an immutable {@link IntList}.
+ * The builder must not be used after {@link #build()} has been called.
+ */
+public final class IntListBuilder {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int[] as;
+  private int size;
+
+  /** Create a builder for an unknown number of values. */
+  public IntListBuilder() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** Create a builder expecting <code>capacity</code> values. */
+  public IntListBuilder(int capacity) {
+    this.as = new int[Math.max(capacity, 0)];
+  }
+
+  public IntListBuilder add(int a) {
+    if (size == as.length) {
+      grow(size + 1);
+    }
+    as[size++] = a;
+    return this;
+  }
+
+  public IntListBuilder addAll(int... xs) {
+    if (size + xs.length > as.length) {
+      grow(size + xs.length);
+    }
+    System.arraycopy(xs, 0, as, size, xs.length);
+    size += xs.length;
+    return this;
+  }
+
+  public IntListBuilder addAll(IntList xs) {
+    return addAll(xs.toArray());
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Build the list. The buffer is handed over without copying if it is full. */
+  public IntList build() {
+    final int[] xs = size == as.length ? as : Arrays.copyOf(as, size);
+    as = null;
+    return xs.length == 0 ? IntList.empty() : new IntList(xs);
+  }
+
+  private void grow(int minCapacity) {
+    as = Arrays.copyOf(as, Math.max(minCapacity, Math.max(as.length * 2, DEFAULT_CAPACITY)));
+  }
+}
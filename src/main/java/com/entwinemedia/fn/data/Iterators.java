@@ -64,51 +64,44 @@ public final class Iterators {
     };
   }
 
-  /** Join two iterators into a new immutable iterator. */
+  /**
+   * Join two iterators into a new immutable iterator.
+   * Joined iterators passed to this method are flattened so that chains of joins do not nest.
+   */
   public static <A> Iterator<A> join(final Iterator<? extends A> a, final Iterator<? extends A> b) {
-    return new ImmutableIteratorBase<A>() {
-      @Override
-      public boolean hasNext() {
-        return a.hasNext() || b.hasNext();
-      }
-
-      @Override
-      public A next() {
-        return a.hasNext() ? (A) a.next() : (A) b.next();
-      }
-    };
+    return new ConcatIterator<A>(ConcatIterator.<A>parts(a).appendedAll(ConcatIterator.<A>parts(b)));
   }
 
   /** Concatenate a list of iterators. */
   @SuppressWarnings("unchecked")
   public static <A> Iterator<A> concat(final Iterator<A>... as) {
-    return concat(new ImmutableIteratorArrayAdapter<Iterator<A>>(as));
+    return concat(new ImmutableListArrayAdapter<Iterator<A>>(as));
   }
 
   /** Concatenate a list of iterators. */
   public static <A> Iterator<A> concat(final List<Iterator<A>> as) {
-    return concat(as.iterator());
+    PersistentVector<Iterator<? extends A>> parts = PersistentVector.empty();
+    for (Iterator<A> a : as) {
+      parts = parts.appendedAll(ConcatIterator.<A>parts(a));
+    }
+    return new ConcatIterator<A>(parts);
   }
 
-  /** Concatenate a list of iterators. */
+  /** Concatenate an iterator of iterators. The iterators are taken from <code>as</code> lazily. */
   public static <A> Iterator<A> concat(final Iterator<Iterator<A>> as) {
     return new ImmutableIteratorBase<A>() {
       Iterator<A> current;
 
       @Override public boolean hasNext() {
-        if (current == null) {
+        while (current == null || !current.hasNext()) {
           if (as.hasNext()) {
             current = as.next();
           } else {
+            current = null;
             return false;
           }
         }
-        if (!current.hasNext()) {
-          current = null;
-          return hasNext();
-        } else {
-          return current.hasNext();
-        }
+        return true;
       }
 
       @Override public A next() {
@@ -121,6 +114,48 @@ public final class Iterators {
     };
   }
 
+  /**
+   * Iterates over a vector of iterators one after the other.
+   * The vector is persistent, so joining a concatenation shares its parts instead of copying them.
+   */
+  private static final class ConcatIterator<A> extends ImmutableIteratorBase<A> {
+    private final PersistentVector<Iterator<? extends A>> parts;
+    private int current;
+
+    private ConcatIterator(PersistentVector<Iterator<? extends A>> parts) {
+      this.parts = parts;
+    }
+
+    /** Return the parts of <code>it</code> that have not been consumed yet. */
+    @SuppressWarnings("unchecked")
+    private static <A> PersistentVector<Iterator<? extends A>> parts(Iterator<? extends A> it) {
+      if (it instanceof ConcatIterator) {
+        final ConcatIterator<A> c = (ConcatIterator<A>) it;
+        return c.parts.slice(c.current, c.parts.size());
+      } else {
+        return PersistentVector.<Iterator<? extends A>>empty().appended(it);
+      }
+    }
+
+    @Override public boolean hasNext() {
+      while (current < parts.size()) {
+        if (parts.get(current).hasNext()) {
+          return true;
+        }
+        current++;
+      }
+      return false;
+    }
+
+    @Override public A next() {
+      if (hasNext()) {
+        return parts.get(current).next();
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
   /**
    * Test if both iterators yield the same elements.
    * This method is not defined in {@link com.entwinemedia.fn.Equality} because equality on
@@ -38,18 +38,29 @@ public final class ListBuilderUtils {
   }
 
   public static <A> List<A> createNew(ListFactory f, A x) {
+    if (f instanceof ImmutableArrayListFactory) {
+      return CompactLists.mk(x);
+    }
     final List<A> buf = f.buffer(1);
     buf.add(x);
     return f.toList(buf);
   }
 
   public static <A> List<A> createNew(ListFactory f, A... as) {
+    if (f instanceof ImmutableArrayListFactory) {
+      // the size is known, so skip the buffer
+      return CompactLists.copyOf(as);
+    }
     final List<A> buf = f.buffer(as.length);
     Collections.addAll(buf, as);
     return f.toList(buf);
   }
 
   public static <A> List<A> createNew(ListFactory f, Collection<? extends A> as) {
+    if (f instanceof ImmutableArrayListFactory) {
+      // the size is known, so skip the buffer
+      return CompactLists.copyOf(as);
+    }
     final List<A> buf = f.buffer(as.size());
     buf.addAll(as);
     return f.toList(buf);
@@ -95,8 +106,15 @@ public final class ListBuilderUtils {
     return concat2(f, new ImmutableIterableArrayAdapter(ass));
   }
 
-  /** Concatenate an iterable of iterables to a new list. */
+  /**
+   * Concatenate an iterable of iterables to a new list.
+   * Immutable lists are concatenated by an {@link ImmutableConcatList} view if <code>f</code> creates immutable array lists.
+   */
+  @SuppressWarnings("unchecked")
   public static <A> List<A> concat2(ListFactory f, Iterable<? extends Iterable<A>> ass) {
+    if (f instanceof ImmutableArrayListFactory && ImmutableConcatList.canConcat(ass)) {
+      return ImmutableConcatList.mk((Iterable<? extends List<A>>) ass);
+    }
     final List<A> buf = f.buffer();
     for (Iterable<? extends A> as : ass) {
       for (A a : as) {
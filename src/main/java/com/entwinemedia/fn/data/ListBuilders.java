@@ -18,7 +18,12 @@ package com.entwinemedia.fn.data;
 
 /** Home of some predefined {@link ListBuilder} instances. */
 public final class ListBuilders {
-  /** Strict immutable list builder based on {@link java.util.ArrayList}. */
+  /**
+   * Strict immutable list builder based on arrays, see {@link ImmutableArrayListFactory}.
+   * Small lists are stored in {@link CompactLists}, larger ones in an array filled by an {@link ArrayBuffer}.
+   * Input collections and arrays are always copied. <code>concat</code> may return an {@link ImmutableConcatList}
+   * view, but only over lists that own their storage; all other inputs are copied first.
+   */
   public static final StrictListBuilder SIA = new StrictListBuilder(new ImmutableArrayListFactory());
 
   /** Same as {@link #SIA} just with a more descriptive name. */
@@ -30,6 +35,15 @@ public final class ListBuilders {
   /** Same as {@link #SIL} just with a more descriptive name. */
   public static final StrictListBuilder strictImmutableLinked = SIL;
 
+  /**
+   * Strict immutable list builder based on {@link PersistentVector}.
+   * Lists can be updated cheaply with {@link PersistentVector#appended(Object)} and friends.
+   */
+  public static final StrictListBuilder SIV = new StrictListBuilder(new PersistentVectorFactory());
+
+  /** Same as {@link #SIV} just with a more descriptive name. */
+  public static final StrictListBuilder strictImmutableVector = SIV;
+
   /** Strict mutable list builder based on {@link java.util.ArrayList}. */
   public static final StrictListBuilder SMA = new StrictListBuilder(new MutableArrayListFactory());
 
@@ -42,7 +56,7 @@ public final class ListBuilders {
   /** Same as {@link #SML} just with a more descriptive name. */
   public static final StrictListBuilder strictMutableLinked = SML;
 
-  /** Loose immutable list builder based on {@link java.util.ArrayList}. */
+  /** Loose immutable list builder based on arrays. Storage and copying work like {@link #SIA}. */
   public static final ImmutableLooseListBuilder LIA = new ImmutableLooseListBuilder(new ImmutableArrayListFactory());
 
   /** Same as {@link #LIA} just with a more descriptive name. */
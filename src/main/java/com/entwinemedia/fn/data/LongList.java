@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data;
+
+import com.entwinemedia.fn.LongStream;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable list of primitive <code>long</code> values. Unlike a <code>List&lt;Long&gt;</code> it does not box its elements.
+ *
+ * @see LongListBuilder
+ * @see LongStream#toList()
+ */
+public final class LongList implements Immutable {
+  private static final LongList EMPTY = new LongList(new long[0]);
+
+  private final long[] as;
+
+  /** Take ownership of array <code>as</code>. */
+  LongList(long[] as) {
+    this.as = as;
+  }
+
+  /** Return the empty list. */
+  public static LongList empty() {
+    return EMPTY;
+  }
+
+  /** Create a list from an array. The array is copied. */
+  public static LongList mk(long... as) {
+    return as.length == 0 ? EMPTY : new LongList(as.clone());
+  }
+
+  public int size() {
+    return as.length;
+  }
+
+  public boolean isEmpty() {
+    return as.length == 0;
+  }
+
+  public long get(int i) {
+    return as[i];
+  }
+
+  public boolean contains(long a) {
+    return indexOf(a) >= 0;
+  }
+
+  /** Return the index of the first occurrence of <code>a</code> or -1. */
+  public int indexOf(long a) {
+    for (int i = 0; i < as.length; i++) {
+      if (as[i] == a) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Search for <code>a</code> in a sorted list.
+   *
+   * @see Arrays#binarySearch(long[], long)
+   */
+  public int binarySearch(long a) {
+    return Arrays.binarySearch(as, a);
+  }
+
+  /** Return a sorted copy of the list. */
+  public LongList sort() {
+    final long[] sorted = as.clone();
+    Arrays.sort(sorted);
+    return new LongList(sorted);
+  }
+
+  /** Return a copy of the values. */
+  public long[] toArray() {
+    return as.clone();
+  }
+
+  /** Stream the values without boxing them. */
+  public LongStream stream() {
+    return LongStream.mk(as);
+  }
+
+  /** Return a boxed view of the list. */
+  public List<Long> boxed() {
+    return new CompactLists.IndexedList<Long>() {
+      @Override public int size() {
+        return as.length;
+      }
+
+      @Override public Long get(int i) {
+        return as[i];
+      }
+    };
+  }
+
+  @Override public int hashCode() {
+    return Arrays.hashCode(as);
+  }
+
+  @Override public boolean equals(Object that) {
+    return this == that || (that instanceof LongList && Arrays.equals(as, ((LongList) that).as));
+  }
+
+  @Override public String toString() {
+    return "LongList" + Arrays.toString(as);
+  }
+}
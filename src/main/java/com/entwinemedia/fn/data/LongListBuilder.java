@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of primitive <code>long</code> values that builds an immutable {@link LongList}.
+ * The builder must not be used after {@link #build()} has been called.
+ */
+public final class LongListBuilder {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private long[] as;
+  private int size;
+
+  /** Create a builder for an unknown number of values. */
+  public LongListBuilder() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** Create a builder expecting <code>capacity</code> values. */
+  public LongListBuilder(int capacity) {
+    this.as = new long[Math.max(capacity, 0)];
+  }
+
+  public LongListBuilder add(long a) {
+    if (size == as.length) {
+      grow(size + 1);
+    }
+    as[size++] = a;
+    return this;
+  }
+
+  public LongListBuilder addAll(long... xs) {
+    if (size + xs.length > as.length) {
+      grow(size + xs.length);
+    }
+    System.arraycopy(xs, 0, as, size, xs.length);
+    size += xs.length;
+    return this;
+  }
+
+  public LongListBuilder addAll(LongList xs) {
+    return addAll(xs.toArray());
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Build the list. The buffer is handed over without copying if it is full. */
+  public LongList build() {
+    final long[] xs = size == as.length ? as : Arrays.copyOf(as, size);
+    as = null;
+    return xs.length == 0 ? LongList.empty() : new LongList(xs);
+  }
+
+  private void grow(int minCapacity) {
+    as = Arrays.copyOf(as, Math.max(minCapacity, Math.max(as.length * 2, DEFAULT_CAPACITY)));
+  }
+}
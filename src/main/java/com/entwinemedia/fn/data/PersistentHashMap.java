@@ -0,0 +1,400 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Persistent immutable hash map.
+ * <p/>
+ * The map is a hash array mapped trie. Each level of the trie consumes 5 bits of the key's hash
+ * and stores its entries and sub tries compactly in an array indexed by a bitmap.
+ * {@link #updated(Object, Object)} and {@link #removed(Object)} copy only the path from the root
+ * to the changed entry and share everything else with the original map. Lookups and updates take
+ * O(log32 n).
+ * <p/>
+ * The map does not keep any particular iteration order.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> implements Immutable {
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  /** Returned by lookups that do not find the key. */
+  private static final Object NOT_FOUND = new Object();
+
+  private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<Object, Object>(0, null, false, null);
+
+  private final int size;
+  /** Root of the trie or null if the map contains no non-null keys. */
+  private final Node root;
+  /** The null key is stored outside of the trie. */
+  private final boolean hasNull;
+  private final V nullValue;
+
+  private Set<Map.Entry<K, V>> entrySet;
+
+  private PersistentHashMap(int size, Node root, boolean hasNull, V nullValue) {
+    this.size = size;
+    this.root = root;
+    this.hasNull = hasNull;
+    this.nullValue = nullValue;
+  }
+
+  /** Return the empty map. */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashMap<K, V> empty() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  /** Create a map from the entries of <code>map</code>. If it already is a persistent map it is returned as is. */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashMap<K, V> mk(Map<? extends K, ? extends V> map) {
+    if (map instanceof PersistentHashMap) {
+      return (PersistentHashMap<K, V>) map;
+    }
+    return PersistentHashMap.<K, V>empty().updatedAll(map);
+  }
+
+  /** Return a new map that maps <code>key</code> to <code>value</code>. */
+  @SuppressWarnings("unchecked")
+  public PersistentHashMap<K, V> updated(K key, V value) {
+    if (key == null) {
+      if (hasNull && nullValue == value) {
+        return this;
+      }
+      return new PersistentHashMap<K, V>(hasNull ? size : size + 1, root, true, value);
+    }
+    final boolean[] added = new boolean[1];
+    final Node newRoot = (root != null ? root : BitmapNode.EMPTY).assoc(0, hash(key), key, value, added);
+    if (newRoot == root) {
+      return this;
+    }
+    return new PersistentHashMap<K, V>(added[0] ? size + 1 : size, newRoot, hasNull, nullValue);
+  }
+
+  /** Return a new map with all entries of <code>map</code> added. */
+  public PersistentHashMap<K, V> updatedAll(Map<? extends K, ? extends V> map) {
+    PersistentHashMap<K, V> m = this;
+    for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+      m = m.updated(e.getKey(), e.getValue());
+    }
+    return m;
+  }
+
+  /** Return a new map without <code>key</code>. */
+  public PersistentHashMap<K, V> removed(Object key) {
+    if (key == null) {
+      return hasNull ? new PersistentHashMap<K, V>(size - 1, root, false, null) : this;
+    }
+    if (root == null) {
+      return this;
+    }
+    final Node newRoot = root.without(0, hash(key), key);
+    if (newRoot == root) {
+      return this;
+    }
+    return new PersistentHashMap<K, V>(size - 1, newRoot, hasNull, nullValue);
+  }
+
+  @Override public int size() {
+    return size;
+  }
+
+  @Override public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override public boolean containsKey(Object key) {
+    return find(key) != NOT_FOUND;
+  }
+
+  @Override @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    final Object v = find(key);
+    return v != NOT_FOUND ? (V) v : null;
+  }
+
+  @Override public Set<Map.Entry<K, V>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new AbstractSet<Map.Entry<K, V>>() {
+        @Override public Iterator<Map.Entry<K, V>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override public int size() {
+          return size;
+        }
+      };
+    }
+    return entrySet;
+  }
+
+  // --
+
+  private Object find(Object key) {
+    if (key == null) {
+      return hasNull ? nullValue : NOT_FOUND;
+    }
+    return root != null ? root.find(0, hash(key), key) : NOT_FOUND;
+  }
+
+  private static int hash(Object key) {
+    final int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int bitpos(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private static Object[] cloneAndSet(Object[] array, int i, Object a) {
+    final Object[] copy = array.clone();
+    copy[i] = a;
+    return copy;
+  }
+
+  /**
+   * Node of the trie. The array stores key value pairs. A null key marks a pair
+   * whose value is a sub node.
+   */
+  private abstract static class Node {
+    final Object[] array;
+
+    Node(Object[] array) {
+      this.array = array;
+    }
+
+    /** Return the value of <code>key</code> or {@link #NOT_FOUND}. */
+    abstract Object find(int shift, int hash, Object key);
+
+    /** Return a node containing the entry. Set <code>added[0]</code> if the key is new. */
+    abstract Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+    /** Return a node without <code>key</code> or null if the node would become empty. */
+    abstract Node without(int shift, int hash, Object key);
+  }
+
+  private static final class BitmapNode extends Node {
+    private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    private final int bitmap;
+
+    private BitmapNode(int bitmap, Object[] array) {
+      super(array);
+      this.bitmap = bitmap;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override Object find(int shift, int hash, Object key) {
+      final int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return NOT_FOUND;
+      }
+      final int i = 2 * index(bit);
+      final Object k = array[i];
+      final Object v = array[i + 1];
+      if (k == null) {
+        return ((Node) v).find(shift + BITS, hash, key);
+      }
+      return key.equals(k) ? v : NOT_FOUND;
+    }
+
+    @Override Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+      final int bit = bitpos(hash, shift);
+      final int i = 2 * index(bit);
+      if ((bitmap & bit) != 0) {
+        final Object k = array[i];
+        final Object v = array[i + 1];
+        if (k == null) {
+          final Node n = ((Node) v).assoc(shift + BITS, hash, key, value, added);
+          return n == v ? this : new BitmapNode(bitmap, cloneAndSet(array, i + 1, n));
+        }
+        if (key.equals(k)) {
+          return v == value ? this : new BitmapNode(bitmap, cloneAndSet(array, i + 1, value));
+        }
+        // two different keys share the slot, push them down one level
+        added[0] = true;
+        final Object[] copy = cloneAndSet(array, i, null);
+        copy[i + 1] = mkNode(shift + BITS, k, v, hash, key, value);
+        return new BitmapNode(bitmap, copy);
+      }
+      added[0] = true;
+      final Object[] copy = new Object[array.length + 2];
+      System.arraycopy(array, 0, copy, 0, i);
+      copy[i] = key;
+      copy[i + 1] = value;
+      System.arraycopy(array, i, copy, i + 2, array.length - i);
+      return new BitmapNode(bitmap | bit, copy);
+    }
+
+    @Override Node without(int shift, int hash, Object key) {
+      final int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      final int i = 2 * index(bit);
+      final Object k = array[i];
+      final Object v = array[i + 1];
+      if (k == null) {
+        final Node n = ((Node) v).without(shift + BITS, hash, key);
+        if (n == v) {
+          return this;
+        } else if (n != null) {
+          return new BitmapNode(bitmap, cloneAndSet(array, i + 1, n));
+        }
+      } else if (!key.equals(k)) {
+        return this;
+      }
+      if (bitmap == bit) {
+        return null;
+      }
+      final Object[] copy = new Object[array.length - 2];
+      System.arraycopy(array, 0, copy, 0, i);
+      System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+      return new BitmapNode(bitmap ^ bit, copy);
+    }
+
+    /** Create a node containing two entries with different keys. */
+    private static Node mkNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+      final int hash1 = hash(key1);
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+      }
+      final boolean[] added = new boolean[1];
+      return EMPTY.assoc(shift, hash1, key1, value1, added).assoc(shift, hash2, key2, value2, added);
+    }
+  }
+
+  /** Holds entries whose keys have the same hash. */
+  private static final class CollisionNode extends Node {
+    private final int hash;
+
+    private CollisionNode(int hash, Object[] array) {
+      super(array);
+      this.hash = hash;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override Object find(int shift, int hash, Object key) {
+      final int i = hash == this.hash ? indexOf(key) : -1;
+      return i >= 0 ? array[i + 1] : NOT_FOUND;
+    }
+
+    @Override Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+      if (hash == this.hash) {
+        final int i = indexOf(key);
+        if (i >= 0) {
+          return array[i + 1] == value ? this : new CollisionNode(hash, cloneAndSet(array, i + 1, value));
+        }
+        added[0] = true;
+        final Object[] copy = new Object[array.length + 2];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        copy[array.length] = key;
+        copy[array.length + 1] = value;
+        return new CollisionNode(hash, copy);
+      }
+      // nest this node into a bitmap node to make room for the new key
+      return new BitmapNode(bitpos(this.hash, shift), new Object[]{null, this}).assoc(shift, hash, key, value, added);
+    }
+
+    @Override Node without(int shift, int hash, Object key) {
+      final int i = hash == this.hash ? indexOf(key) : -1;
+      if (i < 0) {
+        return this;
+      } else if (array.length == 2) {
+        return null;
+      }
+      final Object[] copy = new Object[array.length - 2];
+      System.arraycopy(array, 0, copy, 0, i);
+      System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+      return new CollisionNode(hash, copy);
+    }
+  }
+
+  /** Depth first iteration over the trie. */
+  private final class EntryIterator extends ImmutableIteratorBase<Map.Entry<K, V>> {
+    /** Arrays of the nodes on the path to the current entry. At most 7 levels plus the collision level. */
+    private final Object[][] arrays = new Object[8][];
+    private final int[] positions = new int[8];
+    private int depth = -1;
+    private boolean nullPending = hasNull;
+    private Map.Entry<K, V> next;
+
+    private EntryIterator() {
+      if (root != null) {
+        depth = 0;
+        arrays[0] = root.array;
+      }
+      advance();
+    }
+
+    @Override public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override public Map.Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      final Map.Entry<K, V> e = next;
+      advance();
+      return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      if (nullPending) {
+        nullPending = false;
+        next = new SimpleImmutableEntry<K, V>(null, nullValue);
+        return;
+      }
+      while (depth >= 0) {
+        final Object[] array = arrays[depth];
+        final int i = positions[depth];
+        if (i >= array.length) {
+          positions[depth] = 0;
+          depth--;
+        } else {
+          positions[depth] = i + 2;
+          if (array[i] != null) {
+            next = new SimpleImmutableEntry<K, V>((K) array[i], (V) array[i + 1]);
+            return;
+          }
+          depth++;
+          arrays[depth] = ((Node) array[i + 1]).array;
+          positions[depth] = 0;
+        }
+      }
+      next = null;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * Persistent immutable hash set backed by a {@link PersistentHashMap}.
+ * <p/>
+ * {@link #added(Object)} and {@link #removed(Object)} take O(log32 n) and share the unchanged part
+ * of the set with the original. {@link #union(Iterable)} adds the elements of the smaller set to the larger one.
+ */
+public final class PersistentHashSet<A> extends AbstractSet<A> implements Immutable {
+  private static final PersistentHashSet<?> EMPTY = new PersistentHashSet<Object>(PersistentHashMap.empty());
+
+  private final PersistentHashMap<A, Boolean> map;
+
+  private PersistentHashSet(PersistentHashMap<A, Boolean> map) {
+    this.map = map;
+  }
+
+  /** Return the empty set. */
+  @SuppressWarnings("unchecked")
+  public static <A> PersistentHashSet<A> empty() {
+    return (PersistentHashSet<A>) EMPTY;
+  }
+
+  /** Create a set from an iterable. If <code>as</code> already is a persistent set it is returned as is. */
+  @SuppressWarnings("unchecked")
+  public static <A> PersistentHashSet<A> mk(Iterable<? extends A> as) {
+    if (as instanceof PersistentHashSet) {
+      return (PersistentHashSet<A>) as;
+    }
+    return PersistentHashSet.<A>empty().addedAll(as);
+  }
+
+  /** Return a new set containing <code>a</code>. */
+  public PersistentHashSet<A> added(A a) {
+    return wrap(map.updated(a, Boolean.TRUE));
+  }
+
+  /** Return a new set containing all elements of <code>as</code>. */
+  public PersistentHashSet<A> addedAll(Iterable<? extends A> as) {
+    PersistentHashMap<A, Boolean> m = map;
+    for (A a : as) {
+      m = m.updated(a, Boolean.TRUE);
+    }
+    return wrap(m);
+  }
+
+  /** Return a new set without <code>a</code>. */
+  public PersistentHashSet<A> removed(Object a) {
+    return wrap(map.removed(a));
+  }
+
+  /**
+   * Return the union of this set and <code>as</code>.
+   * If <code>as</code> is a larger persistent set, the elements of this set are added to it instead.
+   */
+  @SuppressWarnings("unchecked")
+  public PersistentHashSet<A> union(Iterable<? extends A> as) {
+    if (as instanceof PersistentHashSet && ((PersistentHashSet<?>) as).size() > size()) {
+      return ((PersistentHashSet<A>) as).addedAll(this);
+    }
+    return addedAll(as);
+  }
+
+  @Override public int size() {
+    return map.size();
+  }
+
+  @Override public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override public boolean contains(Object o) {
+    return map.containsKey(o);
+  }
+
+  @Override public Iterator<A> iterator() {
+    return new ImmutableIteratorWrapper<A>(map.keySet().iterator());
+  }
+
+  private PersistentHashSet<A> wrap(PersistentHashMap<A, Boolean> m) {
+    if (m == map) {
+      return this;
+    }
+    return m.isEmpty() ? PersistentHashSet.<A>empty() : new PersistentHashSet<A>(m);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Builds {@link PersistentHashSet}s. Concatenation starts from the largest persistent set
+ * and adds the elements of the others to it.
+ */
+public final class PersistentHashSetBuilder extends SetBuilder {
+  @Override public <A> Set<A> empty() {
+    return PersistentHashSet.empty();
+  }
+
+  @Override protected <A> Set<A> finish(Set<A> buf) {
+    return PersistentHashSet.mk(buf);
+  }
+
+  @Override protected <A> Set<A> create(int length) {
+    return new HashSet<A>(length);
+  }
+
+  @Override protected <A> Set<A> create() {
+    return new HashSet<A>();
+  }
+
+  @SuppressWarnings("unchecked") // the array is only read
+  @Override public <A> Set<A> concat(Collection<? extends A>... ass) {
+    return union(ImmutableListArrayAdapter.mk(ass));
+  }
+
+  @Override public <A> Set<A> concat(Collection<Collection<A>> ass) {
+    return union(ass);
+  }
+
+  @SuppressWarnings("unchecked") // the array is only read
+  @Override public <A> Set<A> concat(Iterable<? extends A>... ass) {
+    return union(ImmutableListArrayAdapter.mk(ass));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A> Set<A> union(Iterable<? extends Iterable<? extends A>> ass) {
+    // start with the largest persistent set to share as much as possible
+    PersistentHashSet<A> largest = PersistentHashSet.empty();
+    for (Iterable<? extends A> as : ass) {
+      if (as instanceof PersistentHashSet && ((PersistentHashSet<?>) as).size() > largest.size()) {
+        largest = (PersistentHashSet<A>) as;
+      }
+    }
+    PersistentHashSet<A> union = largest;
+    for (Iterable<? extends A> as : ass) {
+      if (as != largest) {
+        union = union.addedAll(as);
+      }
+    }
+    return union;
+  }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import com.entwinemedia.fn.Equality;
+import com.entwinemedia.fn.Stream;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Persistent immutable vector.
+ * <p/>
+ * The elements are stored in a 32-way trie of arrays. The last, possibly incomplete, leaf is kept aside
+ * as the tail so appending usually copies just the tail. Updates copy the path from the root to the
+ * changed leaf and share everything else with the original vector. {@link #appended(Object)}
+ * and {@link #updated(int, Object)} take O(log32 n), {@link #get(int)} as well.
+ * {@link #slice(int, int)} takes constant time and shares the whole trie, which keeps the elements
+ * outside of the slice reachable as long as the slice is.
+ */
+public final class PersistentVector<A> extends ImmutableListBase<A> implements RandomAccess {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final Object[] EMPTY_NODE = new Object[WIDTH];
+  private static final PersistentVector<?> EMPTY = new PersistentVector<Object>(EMPTY_NODE, BITS, new Object[0], 0, 0, 0);
+
+  private final Object[] root;
+  /** Shift of the root level. */
+  private final int shift;
+  private final Object[] tail;
+  /** Index of the first element of the tail in the trie. */
+  private final int tailOffset;
+  /** Index of the first element of the vector in the trie. */
+  private final int start;
+  /** Index behind the last element of the vector in the trie. */
+  private final int end;
+
+  private PersistentVector(Object[] root, int shift, Object[] tail, int tailOffset, int start, int end) {
+    this.root = root;
+    this.shift = shift;
+    this.tail = tail;
+    this.tailOffset = tailOffset;
+    this.start = start;
+    this.end = end;
+  }
+
+  /** Return the empty vector. */
+  @SuppressWarnings("unchecked")
+  public static <A> PersistentVector<A> empty() {
+    return (PersistentVector<A>) EMPTY;
+  }
+
+  /** Create a vector from an array. */
+  @SafeVarargs // the elements are only copied into the vector's own Object arrays
+  public static <A> PersistentVector<A> mk(A... as) {
+    final Object[] elems = new Object[as.length];
+    for (int i = 0; i < as.length; i++) {
+      elems[i] = as[i];
+    }
+    return fromArray(elems);
+  }
+
+  /** Create a vector from an iterable. If <code>as</code> already is a vector it is returned as is. */
+  @SuppressWarnings("unchecked")
+  public static <A> PersistentVector<A> mk(Iterable<? extends A> as) {
+    if (as instanceof PersistentVector) {
+      return (PersistentVector<A>) as;
+    } else if (as instanceof Collection) {
+      return fromArray(((Collection<?>) as).toArray());
+    } else {
+      return PersistentVector.<A>empty().appendedAll(as);
+    }
+  }
+
+  /** Create a vector from an array that must not be modified afterwards. */
+  static <A> PersistentVector<A> fromArray(Object[] as) {
+    final int size = as.length;
+    if (size == 0) {
+      return empty();
+    }
+    final int tailOffset = ((size - 1) >>> BITS) << BITS;
+    final Object[] tail = Arrays.copyOfRange(as, tailOffset, size);
+    // build the trie bottom up from full leaves
+    Object[][] nodes = new Object[tailOffset >>> BITS][];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = Arrays.copyOfRange(as, i << BITS, (i + 1) << BITS);
+    }
+    int shift = BITS;
+    while (nodes.length > (1 << shift)) {
+      shift += BITS;
+    }
+    for (int level = BITS; level <= shift; level += BITS) {
+      final Object[][] parents = new Object[Math.max(1, (nodes.length + MASK) >>> BITS)][];
+      for (int i = 0; i < parents.length; i++) {
+        final Object[] parent = new Object[WIDTH];
+        System.arraycopy(nodes, i << BITS, parent, 0, Math.min(WIDTH, nodes.length - (i << BITS)));
+        parents[i] = parent;
+      }
+      nodes = parents;
+    }
+    return new PersistentVector<A>(nodes[0], shift, tail, tailOffset, 0, size);
+  }
+
+  /** Return a new vector with <code>a</code> appended. */
+  public PersistentVector<A> appended(A a) {
+    if (end < tailOffset + tail.length) {
+      // the vector is a slice; overwrite the slot behind it
+      return new PersistentVector<A>(root, shift, tail, tailOffset, start, end + 1).set0(end, a);
+    } else if (tail.length < WIDTH) {
+      final Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+      newTail[tail.length] = a;
+      return new PersistentVector<A>(root, shift, newTail, tailOffset, start, end + 1);
+    } else {
+      // push the full tail into the trie
+      final Object[] newRoot;
+      int newShift = shift;
+      if ((tailOffset >>> BITS) >= (1 << shift)) {
+        newRoot = new Object[WIDTH];
+        newRoot[0] = root;
+        newRoot[1] = newPath(shift, tail);
+        newShift += BITS;
+      } else {
+        newRoot = pushTail(shift, root, tail);
+      }
+      return new PersistentVector<A>(newRoot, newShift, new Object[]{a}, tailOffset + WIDTH, start, end + 1);
+    }
+  }
+
+  /** Return a new vector with all elements of <code>as</code> appended. */
+  public PersistentVector<A> appendedAll(Iterable<? extends A> as) {
+    if (isEmpty() && as instanceof Collection) {
+      return mk(as);
+    }
+    PersistentVector<A> v = this;
+    for (A a : as) {
+      v = v.appended(a);
+    }
+    return v;
+  }
+
+  /** Return a new vector with the element at index <code>i</code> replaced by <code>a</code>. */
+  public PersistentVector<A> updated(int i, A a) {
+    checkIndex(i);
+    return set0(start + i, a);
+  }
+
+  /** Return the elements from index <code>from</code>, inclusive, to <code>to</code>, exclusive. */
+  public PersistentVector<A> slice(int from, int to) {
+    if (from < 0 || to > size() || from > to) {
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+    }
+    if (from == to) {
+      return empty();
+    } else if (from == 0 && to == size()) {
+      return this;
+    } else {
+      return new PersistentVector<A>(root, shift, tail, tailOffset, start + from, start + to);
+    }
+  }
+
+  @Override public int size() {
+    return end - start;
+  }
+
+  @Override public boolean isEmpty() {
+    return end == start;
+  }
+
+  @Override @SuppressWarnings("unchecked")
+  public A get(int i) {
+    checkIndex(i);
+    final int j = start + i;
+    return (A) leafFor(j)[j & MASK];
+  }
+
+  @Override public boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  @Override public boolean containsAll(Collection<?> objects) {
+    for (Object o : objects) {
+      if (!contains(o))
+        return false;
+    }
+    return true;
+  }
+
+  @Override public int indexOf(Object o) {
+    int i = 0;
+    for (A a : this) {
+      if (Equality.eq(a, o))
+        return i;
+      i++;
+    }
+    return -1;
+  }
+
+  @Override public int lastIndexOf(Object o) {
+    for (int i = size() - 1; i >= 0; i--) {
+      if (Equality.eq(get(i), o))
+        return i;
+    }
+    return -1;
+  }
+
+  @Override public Iterator<A> iterator() {
+    return new ImmutableIteratorBase<A>() {
+      private int i = start;
+      private Object[] leaf = i < end ? leafFor(i) : null;
+
+      @Override public boolean hasNext() {
+        return i < end;
+      }
+
+      @Override @SuppressWarnings("unchecked")
+      public A next() {
+        if (i >= end) {
+          throw new NoSuchElementException();
+        }
+        if ((i & MASK) == 0) {
+          leaf = leafFor(i);
+        }
+        return (A) leaf[i++ & MASK];
+      }
+    };
+  }
+
+  @Override public ListIterator<A> listIterator() {
+    return ImmutableListIteratorListAdapter.mk(this);
+  }
+
+  @Override public ListIterator<A> listIterator(int i) {
+    return ImmutableListIteratorListAdapter.mk(this, i);
+  }
+
+  @Override public List<A> subList(int from, int to) {
+    return slice(from, to);
+  }
+
+  @Override public Object[] toArray() {
+    final Object[] array = new Object[size()];
+    int i = 0;
+    for (A a : this) {
+      array[i++] = a;
+    }
+    return array;
+  }
+
+  @Override @SuppressWarnings("unchecked")
+  public <T> T[] toArray(T[] ts) {
+    final int size = size();
+    final T[] array = ts.length >= size
+            ? ts
+            : (T[]) java.lang.reflect.Array.newInstance(ts.getClass().getComponentType(), size);
+    int i = 0;
+    for (A a : this) {
+      array[i++] = (T) a;
+    }
+    if (array.length > size) {
+      array[size] = null;
+    }
+    return array;
+  }
+
+  @Override public int hashCode() {
+    int h = 1;
+    for (A a : this) {
+      h = 31 * h + (a == null ? 0 : a.hashCode());
+    }
+    return h;
+  }
+
+  @Override public boolean equals(Object that) {
+    return this == that || (that instanceof List && eqElems((List<?>) that));
+  }
+
+  private boolean eqElems(List<?> that) {
+    if (size() == that.size()) {
+      final Iterator<?> it = that.iterator();
+      for (A a : this) {
+        if (Equality.ne(a, it.next())) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  @Override public String toString() {
+    if (size() < 100) {
+      return Stream.<Object>$(this).inject(",").wrap(getClass().getSimpleName() + "[", "]").mkString();
+    } else {
+      return super.toString();
+    }
+  }
+
+  // --
+
+  private void checkIndex(int i) {
+    if (i < 0 || i >= size()) {
+      throw new IndexOutOfBoundsException("index: " + i + ", size: " + size());
+    }
+  }
+
+  /** Return the array holding the element with trie index <code>j</code>. */
+  private Object[] leafFor(int j) {
+    if (j >= tailOffset) {
+      return tail;
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(j >>> level) & MASK];
+    }
+    return node;
+  }
+
+  /** Return a new vector with the element at trie index <code>j</code> replaced by <code>a</code>. */
+  private PersistentVector<A> set0(int j, A a) {
+    if (j >= tailOffset) {
+      final Object[] newTail = tail.clone();
+      newTail[j - tailOffset] = a;
+      return new PersistentVector<A>(root, shift, newTail, tailOffset, start, end);
+    } else {
+      return new PersistentVector<A>(set0(shift, root, j, a), shift, tail, tailOffset, start, end);
+    }
+  }
+
+  private static Object[] set0(int level, Object[] node, int j, Object a) {
+    final Object[] copy = node.clone();
+    if (level == 0) {
+      copy[j & MASK] = a;
+    } else {
+      final int sub = (j >>> level) & MASK;
+      copy[sub] = set0(level - BITS, (Object[]) node[sub], j, a);
+    }
+    return copy;
+  }
+
+  /** Insert the full tail at index <code>tailOffset</code> copying the path down to it. */
+  private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+    final Object[] copy = parent.clone();
+    final int sub = (tailOffset >>> level) & MASK;
+    if (level == BITS) {
+      copy[sub] = tailNode;
+    } else {
+      final Object[] child = (Object[]) parent[sub];
+      copy[sub] = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+    }
+    return copy;
+  }
+
+  /** Create a path of nodes down to <code>node</code>. */
+  private static Object[] newPath(int level, Object[] node) {
+    if (level == 0) {
+      return node;
+    } else {
+      final Object[] path = new Object[WIDTH];
+      path[0] = newPath(level - BITS, node);
+      return path;
+    }
+  }
+}
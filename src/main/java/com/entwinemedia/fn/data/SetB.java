@@ -21,4 +21,6 @@ public final class SetB {
 
   public static final SetBuilder IH = new ImmutableHashSetBuilder();
   public static final SetBuilder MH = new MutableHashSetBuilder();
+  /** Persistent immutable hash sets. Unions share structure with the largest operand. */
+  public static final SetBuilder PH = new PersistentHashSetBuilder();
 }
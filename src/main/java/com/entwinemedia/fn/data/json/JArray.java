@@ -55,7 +55,8 @@ public final class JArray implements JValue, Iterable<JValue> {
     final Iterator<JValue> arrayIterator = iterator();
     final List<Object> values = new ArrayList<>();
     while (arrayIterator.hasNext()) {
-      final JValue val = arrayIterator.next();
+      final JValue next = arrayIterator.next();
+      final JValue val = next instanceof JRaw ? ((JRaw) next).value() : next;
       if (val instanceof JPrimitive) {
         values.add(((JPrimitive) val).value());
       } else if (val instanceof JObject) {
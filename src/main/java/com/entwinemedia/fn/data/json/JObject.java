@@ -19,27 +19,44 @@ package com.entwinemedia.fn.data.json;
 import static com.entwinemedia.fn.Equality.eq;
 import static com.entwinemedia.fn.Stream.$;
 import static com.entwinemedia.fn.data.json.Jsons.arr;
-import static com.entwinemedia.fn.data.json.Jsons.obj;
 
 import com.entwinemedia.fn.Fn2;
 import com.entwinemedia.fn.Prelude;
 import com.entwinemedia.fn.data.ImmutableIteratorWrapper;
-import com.entwinemedia.fn.data.ImmutableMapWrapper;
+import com.entwinemedia.fn.data.PersistentHashMap;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
 /**
  * JSON object.
+ * <p/>
+ * The fields are kept in a {@link PersistentHashMap} so merging or overriding single fields
+ * shares the unchanged fields with the original object instead of copying them.
  */
 public final class JObject implements JValue, Iterable<Field> {
-  private final Map<String, Field> fields;
+  private final PersistentHashMap<String, Field> fields;
 
-  JObject(Map<String, Field> fields) {
+  JObject(PersistentHashMap<String, Field> fields) {
     this.fields = fields;
   }
 
+  /** Create an object from <code>fields</code> skipping zero fields. Later fields replace earlier ones. */
+  static JObject mk(Iterable<? extends Field> fields) {
+    return new JObject(put(PersistentHashMap.<String, Field>empty(), fields));
+  }
+
+  /** Put all non zero <code>fields</code> into <code>map</code>. */
+  private static PersistentHashMap<String, Field> put(PersistentHashMap<String, Field> map,
+                                                      Iterable<? extends Field> fields) {
+    for (Field f : fields) {
+      if (!Jsons.isZero(f)) {
+        map = map.updated(f.key(), f);
+      }
+    }
+    return map;
+  }
+
   @Override public Iterator<Field> iterator() {
     return new ImmutableIteratorWrapper<>(fields.values().iterator());
   }
@@ -58,7 +75,7 @@ public final class JObject implements JValue, Iterable<Field> {
    * }</pre>
    */
   public JObject override(Iterable<Field> obj) {
-    return obj($(this).append(obj));
+    return new JObject(put(fields, obj));
   }
 
   public JObject override(Field... fields) {
@@ -80,11 +97,10 @@ public final class JObject implements JValue, Iterable<Field> {
    * When merging into an array, the values of this object come first.
    */
   public JObject merge(Iterable<Field> obj) {
-    final Map<String, Field> merged = $(obj).foldl(
-        // merge into the existing data (copy of it to guarantee immutability)
-        new HashMap<>(fields),
-        new Fn2<Map<String, Field>, Field, Map<String, Field>>() {
-          @Override public Map<String, Field> apply(Map<String, Field> sum, Field f) {
+    final PersistentHashMap<String, Field> merged = $(obj).foldl(
+        fields,
+        new Fn2<PersistentHashMap<String, Field>, Field, PersistentHashMap<String, Field>>() {
+          @Override public PersistentHashMap<String, Field> apply(PersistentHashMap<String, Field> sum, Field f) {
             return mergeInto(sum, f);
           }
         });
@@ -96,24 +112,24 @@ public final class JObject implements JValue, Iterable<Field> {
    * A field can be regarded as an object with just that field.
    */
   public JObject merge(Field field) {
-    return new JObject(mergeInto(new HashMap<>(fields), field));
+    return new JObject(mergeInto(fields, field));
   }
 
   public JObject merge(Field... fields) {
     return merge($(fields));
   }
 
-  /** Merge {@code f} into {@code map}. Mutates {@code map}. */
-  private Map<String, Field> mergeInto(Map<String, Field> map, Field f) {
+  /** Merge {@code f} into {@code map}. */
+  private PersistentHashMap<String, Field> mergeInto(PersistentHashMap<String, Field> map, Field f) {
     final String key = f.key();
-    if (map.containsKey(key)) {
+    final Field existing = map.get(key);
+    if (existing != null) {
       // key exists, there is a need for a merge
-      map.put(key, doMerge(map.get(key), f.value()));
+      return map.updated(key, doMerge(existing, f.value()));
     } else {
       // key does not exist yet so just put it in
-      map.put(key, f);
+      return map.updated(key, f);
     }
-    return map;
   }
 
   /**
@@ -121,18 +137,21 @@ public final class JObject implements JValue, Iterable<Field> {
    * Work horse function for {@link #merge(Iterable)}.
    */
   private Field doMerge(Field a, JValue b) {
-    if (Jsons.isZero(b)){
+    // merge the values, not their serialized form
+    final JValue x = a.value() instanceof JRaw ? ((JRaw) a.value()).value() : a.value();
+    final JValue y = b instanceof JRaw ? ((JRaw) b).value() : b;
+    if (Jsons.isZero(y)){
       return a;
-    } if (a.value() instanceof JArray && b instanceof JArray) {
-      return a.derive(((JArray) a.value()).append((JArray) b));
-    } else if (a.value() instanceof JArray) {
-      return a.derive(((JArray) a.value()).append($(b)));
-    } else if (b instanceof JArray) {
-      return a.derive(((JArray) b).append($(a.value())));
-    } else if (a.value() instanceof JObject && b instanceof JObject) {
-      return a.derive(((JObject) a.value()).merge((JObject) b));
+    } if (x instanceof JArray && y instanceof JArray) {
+      return a.derive(((JArray) x).append((JArray) y));
+    } else if (x instanceof JArray) {
+      return a.derive(((JArray) x).append($(y)));
+    } else if (y instanceof JArray) {
+      return a.derive(((JArray) y).append($(x)));
+    } else if (x instanceof JObject && y instanceof JObject) {
+      return a.derive(((JObject) x).merge((JObject) y));
     } else {
-      return a.derive(arr(a.value(), b));
+      return a.derive(arr(x, y));
     }
   }
 
@@ -144,22 +163,22 @@ public final class JObject implements JValue, Iterable<Field> {
    * Keys are strings, values are the unwrapped JSON values, e.g. plain strings, numbers, booleans, maps, arrays, etc.
    */
   public Map toMap() {
-    final Map map = new HashMap();
+    PersistentHashMap<String, Object> map = PersistentHashMap.empty();
     for (final Field field : this) {
-      final JValue value = field.value();
+      final JValue value = field.value() instanceof JRaw ? ((JRaw) field.value()).value() : field.value();
       if (value instanceof JPrimitive) {
-        map.put(field.key(), ((JPrimitive) value).value());
+        map = map.updated(field.key(), ((JPrimitive) value).value());
       } else if (value instanceof JObject) {
-        map.put(field.key(), ((JObject) value).toMap());
+        map = map.updated(field.key(), ((JObject) value).toMap());
       } else if (value instanceof JArray) {
-        map.put(field.key(), ((JArray) value).toArray());
+        map = map.updated(field.key(), ((JArray) value).toArray());
       } else if (value instanceof JNull) {
-        map.put(field.key(), null);
+        map = map.updated(field.key(), null);
       } else {
         Prelude.unexhaustiveMatch(value.getClass());
       }
     }
-    return new ImmutableMapWrapper(map);
+    return map;
   }
 
   //
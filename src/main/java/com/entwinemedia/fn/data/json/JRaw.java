@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data.json;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A JSON value that has already been serialized to UTF-8.
+ * Serializers copy the bytes as they are instead of walking the value again,
+ * so an immutable subtree that is part of many documents is serialized only once.
+ * <p/>
+ * Create with {@link Jsons#raw(JValue)} or look up with a {@link RawCache}.
+ */
+public final class JRaw implements JValue {
+  private static final Utf8Serializer SERIALIZER = new Utf8Serializer();
+
+  private final JValue value;
+  private final byte[] bytes;
+
+  JRaw(JValue value, byte[] bytes) {
+    this.value = value;
+    this.bytes = bytes;
+  }
+
+  /** Serialize <code>v</code> into a new array. */
+  static byte[] serialize(JValue v) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SERIALIZER.toJson(out, v);
+    return out.toByteArray();
+  }
+
+  /** Return the value that has been serialized. */
+  public JValue value() {
+    return value;
+  }
+
+  /** Return the size of the serialized value in bytes. */
+  public int size() {
+    return bytes.length;
+  }
+
+  /** Return the serialized value. The array must not be modified. */
+  byte[] bytes() {
+    return bytes;
+  }
+
+  @Override public int hashCode() {
+    return value.hashCode();
+  }
+
+  @Override public boolean equals(Object that) {
+    return (this == that) || (that instanceof JRaw && value.equals(((JRaw) that).value));
+  }
+
+  @Override public String toString() {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data.json;
+
+/** Thrown by {@link JsonReader} if the input is not well-formed JSON. */
+public final class JsonParseException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final long offset;
+
+  JsonParseException(String message, long offset) {
+    super(message + " at offset " + offset);
+    this.offset = offset;
+  }
+
+  /** Return the offset of the input byte at which the error has been detected. */
+  public long getOffset() {
+    return offset;
+  }
+}
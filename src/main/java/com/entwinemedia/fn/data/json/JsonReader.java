@@ -0,0 +1,648 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data.json;
+
+import static com.entwinemedia.fn.Prelude.chuck;
+
+import com.entwinemedia.fn.data.ArrayBuffer;
+import com.entwinemedia.fn.data.PersistentHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Pull parser reading UTF-8 encoded JSON into the {@link JValue} hierarchy.
+ * <p/>
+ * Large documents can be processed event by event with {@link #next()} without building a tree.
+ * Any value, or the whole document, can be read into a tree with {@link #readValue()}.
+ * <pre>
+ *   final JsonReader r = JsonReader.mk(in);
+ *   r.next(); // START_ARRAY
+ *   while (r.next() != Event.END_ARRAY) {
+ *     final JValue item = r.value();
+ *     ...
+ *   }
+ * </pre>
+ * The text of a number is kept until it is asked for, so numbers that are skipped or
+ * read just as text are never decoded. Values returned by the getters are valid until the next
+ * call to {@link #next()}.
+ * <p/>
+ * Readers are not thread safe. Malformed input raises a {@link JsonParseException}.
+ */
+public final class JsonReader implements Closeable {
+  public enum Event {
+    START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY,
+    /** The key of an object field. The next event is the field's value. */
+    KEY,
+    STRING, NUMBER, TRUE, FALSE, NULL,
+    /** The end of the document. */
+    END
+  }
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int ARRAY = 0;
+  private static final int OBJECT = 1;
+
+  // -- input
+
+  private final InputStream in;
+  private final ByteBuffer bb;
+  private byte[] buf;
+  private int pos;
+  private int limit;
+  /** Offset of <code>buf[0]</code> in the input. */
+  private long base;
+
+  // -- parser state
+
+  private int[] stack = new int[16];
+  private int depth;
+  /** Set if the next element of the innermost container is its first one. */
+  private boolean first;
+  /** Set after a key has been read. */
+  private boolean expectValue;
+  private boolean started;
+  private Event event;
+
+  /** Text of the last string, key or number. */
+  private char[] chars = new char[64];
+  private int length;
+  /** Set if the last number has neither a fraction nor an exponent. */
+  private boolean integral;
+
+  private JsonReader(InputStream in, ByteBuffer bb, byte[] buf, int pos, int limit) {
+    this.in = in;
+    this.bb = bb;
+    this.buf = buf;
+    this.pos = pos;
+    this.limit = limit;
+    this.base = -pos;
+  }
+
+  /** Read from <code>bytes</code>. The array is not copied. */
+  public static JsonReader mk(byte[] bytes) {
+    return mk(bytes, 0, bytes.length);
+  }
+
+  /** Read <code>length</code> bytes of <code>bytes</code> starting at <code>offset</code>. The array is not copied. */
+  public static JsonReader mk(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    return new JsonReader(null, null, bytes, offset, offset + length);
+  }
+
+  /** Read from <code>in</code> in chunks. {@link #close()} closes the stream. */
+  public static JsonReader mk(InputStream in) {
+    return new JsonReader(in, null, new byte[BUFFER_SIZE], 0, 0);
+  }
+
+  /**
+   * Read the remaining bytes of <code>bb</code>. The position of the buffer is not changed.
+   * A buffer backed by an array is read directly, the content of other buffers is copied in chunks.
+   */
+  public static JsonReader mk(ByteBuffer bb) {
+    if (bb.hasArray()) {
+      return new JsonReader(null, null, bb.array(), bb.arrayOffset() + bb.position(), bb.arrayOffset() + bb.limit());
+    } else {
+      return new JsonReader(null, bb.duplicate(), new byte[Math.min(BUFFER_SIZE, Math.max(bb.remaining(), 1))], 0, 0);
+    }
+  }
+
+  /** Parse a JSON document. */
+  public static JValue read(byte[] bytes) {
+    return mk(bytes).readDocument();
+  }
+
+  /** Parse a JSON document. The stream is not closed. */
+  public static JValue read(InputStream in) {
+    return mk(in).readDocument();
+  }
+
+  /** Parse a JSON document. The position of the buffer is not changed. */
+  public static JValue read(ByteBuffer bb) {
+    return mk(bb).readDocument();
+  }
+
+  /** Advance to the next event. */
+  public Event next() {
+    int c = skipWhitespace();
+    if (depth == 0) {
+      if (!started) {
+        started = true;
+        if (c < 0) {
+          throw error("Empty document");
+        }
+        return event = value(c);
+      } else if (c < 0) {
+        return event = Event.END;
+      } else {
+        throw error("Unexpected content after the end of the document");
+      }
+    }
+    if (expectValue) {
+      expectValue = false;
+      return event = value(c);
+    }
+    if (stack[depth - 1] == ARRAY) {
+      if (c == ']') {
+        return event = pop(Event.END_ARRAY);
+      }
+      c = separator(c);
+      return event = value(c);
+    } else {
+      if (c == '}') {
+        return event = pop(Event.END_OBJECT);
+      }
+      c = separator(c);
+      if (c != '"') {
+        throw unexpected(c, "a key");
+      }
+      string();
+      if (skipWhitespace() != ':') {
+        throw error("Expected ':'");
+      }
+      expectValue = true;
+      return event = Event.KEY;
+    }
+  }
+
+  /** Return the current event. Null before the first call to {@link #next()}. */
+  public Event getEvent() {
+    return event;
+  }
+
+  /** Return the current key or string. */
+  public String getString() {
+    if (event != Event.KEY && event != Event.STRING) {
+      throw new IllegalStateException("Current event is " + event);
+    }
+    return new String(chars, 0, length);
+  }
+
+  /** Return the text of the current number as it appears in the document. */
+  public String getNumberText() {
+    checkNumber();
+    return new String(chars, 0, length);
+  }
+
+  /** Check if the current number has neither a fraction nor an exponent. */
+  public boolean isIntegral() {
+    checkNumber();
+    return integral;
+  }
+
+  /** Decode the current number as an int. Fails if it is not an integer in the range of an int. */
+  public int getInt() {
+    final long l = getLong();
+    if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Out of int range: " + getNumberText());
+    }
+    return (int) l;
+  }
+
+  /** Decode the current number as a long. Fails if it is not an integer in the range of a long. */
+  public long getLong() {
+    checkNumber();
+    if (integral && length <= 18) {
+      // at most 18 digits cannot overflow
+      final boolean negative = chars[0] == '-';
+      long l = 0;
+      for (int i = negative ? 1 : 0; i < length; i++) {
+        l = l * 10 + (chars[i] - '0');
+      }
+      return negative ? -l : l;
+    } else {
+      return Long.parseLong(getNumberText());
+    }
+  }
+
+  public double getDouble() {
+    checkNumber();
+    return integral && length <= 15 ? getLong() : Double.parseDouble(getNumberText());
+  }
+
+  public BigDecimal getBigDecimal() {
+    checkNumber();
+    return new BigDecimal(chars, 0, length);
+  }
+
+  /**
+   * Decode the current number into the smallest fitting type: {@link Integer}, {@link Long} or {@link BigInteger}
+   * for integers, {@link Double} for all other numbers.
+   */
+  public Number getNumber() {
+    checkNumber();
+    if (integral) {
+      if (length <= 18) {
+        final long l = getLong();
+        return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE ? (Number) (int) l : (Number) l;
+      } else {
+        final BigInteger i = new BigInteger(getNumberText());
+        return i.bitLength() < 64 ? (Number) i.longValue() : i;
+      }
+    } else {
+      return Double.parseDouble(getNumberText());
+    }
+  }
+
+  /** Skip the current value. If the current event starts an object or an array skip to its end. */
+  public void skipValue() {
+    if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+      final int target = depth - 1;
+      while (depth > target) {
+        next();
+      }
+    } else if (event == Event.KEY) {
+      next();
+      skipValue();
+    }
+  }
+
+  /** Read the next value into a tree. */
+  public JValue readValue() {
+    next();
+    return value();
+  }
+
+  /**
+   * Read the value that starts with the current event into a tree.
+   * If the current event is a key read the field's value.
+   */
+  public JValue value() {
+    switch (event) {
+      case START_OBJECT:
+        PersistentHashMap<String, Field> fields = PersistentHashMap.empty();
+        while (next() != Event.END_OBJECT) {
+          final String key = getString();
+          next();
+          fields = fields.updated(key, new Field(key, value()));
+        }
+        return fields.isEmpty() ? Jsons.obj() : new JObject(fields);
+      case START_ARRAY:
+        final ArrayBuffer<JValue> values = new ArrayBuffer<JValue>();
+        while (next() != Event.END_ARRAY) {
+          values.add(value());
+        }
+        return values.isEmpty() ? Jsons.arr() : new JArray(values.toList());
+      case KEY:
+        next();
+        return value();
+      case STRING:
+        return length == 0 ? Jsons.BLANK : Jsons.v(getString());
+      case NUMBER:
+        return Jsons.v(getNumber());
+      case TRUE:
+        return Jsons.TRUE;
+      case FALSE:
+        return Jsons.FALSE;
+      case NULL:
+        return Jsons.NULL;
+      default:
+        throw new IllegalStateException("Current event " + event + " does not start a value");
+    }
+  }
+
+  @Override public void close() {
+    if (in != null) {
+      try {
+        in.close();
+      } catch (IOException e) {
+        chuck(e);
+      }
+    }
+  }
+
+  private JValue readDocument() {
+    final JValue v = readValue();
+    next();
+    return v;
+  }
+
+  private void checkNumber() {
+    if (event != Event.NUMBER) {
+      throw new IllegalStateException("Current event is " + event);
+    }
+  }
+
+  // -- scanning
+
+  /** Read the value starting with character <code>c</code>. */
+  private Event value(int c) {
+    switch (c) {
+      case '{':
+        push(OBJECT);
+        return Event.START_OBJECT;
+      case '[':
+        push(ARRAY);
+        return Event.START_ARRAY;
+      case '"':
+        string();
+        return Event.STRING;
+      case 't':
+        literal("rue");
+        return Event.TRUE;
+      case 'f':
+        literal("alse");
+        return Event.FALSE;
+      case 'n':
+        literal("ull");
+        return Event.NULL;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          number(c);
+          return Event.NUMBER;
+        } else {
+          throw unexpected(c, "a value");
+        }
+    }
+  }
+
+  /** Consume the comma before all but the first element of a container. Return the character after it. */
+  private int separator(int c) {
+    if (first) {
+      first = false;
+      return c;
+    } else if (c == ',') {
+      return skipWhitespace();
+    } else {
+      throw unexpected(c, "',' or the end of the container");
+    }
+  }
+
+  private void push(int container) {
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+    }
+    stack[depth++] = container;
+    first = true;
+  }
+
+  private Event pop(Event e) {
+    depth--;
+    // the container itself was an element of its parent
+    first = false;
+    return e;
+  }
+
+  private void literal(String rest) {
+    for (int i = 0; i < rest.length(); i++) {
+      if (read() != rest.charAt(i)) {
+        throw error("Invalid literal");
+      }
+    }
+  }
+
+  private void number(int c) {
+    length = 0;
+    integral = true;
+    if (c == '-') {
+      append('-');
+      c = read();
+    }
+    if (c == '0') {
+      append('0');
+      c = read();
+    } else if (c >= '1' && c <= '9') {
+      c = digits(c);
+    } else {
+      throw error("Invalid number");
+    }
+    if (c == '.') {
+      integral = false;
+      append('.');
+      c = read();
+      if (c < '0' || c > '9') {
+        throw error("Invalid number");
+      }
+      c = digits(c);
+    }
+    if (c == 'e' || c == 'E') {
+      integral = false;
+      append((char) c);
+      c = read();
+      if (c == '+' || c == '-') {
+        append((char) c);
+        c = read();
+      }
+      if (c < '0' || c > '9') {
+        throw error("Invalid number");
+      }
+      c = digits(c);
+    }
+    if (c >= 0) {
+      // the character after the number belongs to the next token
+      pos--;
+    }
+  }
+
+  /** Append the digits starting with <code>c</code>. Return the character after them. */
+  private int digits(int c) {
+    while (c >= '0' && c <= '9') {
+      append((char) c);
+      c = read();
+    }
+    return c;
+  }
+
+  /** Read a string after its opening quote into {@link #chars}. */
+  private void string() {
+    length = 0;
+    while (true) {
+      // copy the run of plain ASCII characters
+      int p = pos;
+      final int l = limit;
+      final byte[] b = buf;
+      while (p < l) {
+        final byte x = b[p];
+        if (x == '"' || x == '\\' || x < 0x20) {
+          break;
+        }
+        p++;
+      }
+      if (p > pos) {
+        ensureChars(p - pos);
+        for (int i = pos; i < p; i++) {
+          chars[length++] = (char) b[i];
+        }
+        pos = p;
+      }
+      final int c = read();
+      if (c == '"') {
+        return;
+      } else if (c == '\\') {
+        escape();
+      } else if (c < 0) {
+        throw error("Unterminated string");
+      } else if (c < 0x20) {
+        throw error("Unescaped control character in string");
+      } else if (c < 0x80) {
+        // the run ended at the end of the buffer
+        append((char) c);
+      } else {
+        utf8(c);
+      }
+    }
+  }
+
+  private void escape() {
+    final int c = read();
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        append((char) c);
+        break;
+      case 'b':
+        append('\b');
+        break;
+      case 'f':
+        append('\f');
+        break;
+      case 'n':
+        append('\n');
+        break;
+      case 'r':
+        append('\r');
+        break;
+      case 't':
+        append('\t');
+        break;
+      case 'u':
+        int u = 0;
+        for (int i = 0; i < 4; i++) {
+          final int h = Character.digit(read(), 16);
+          if (h < 0) {
+            throw error("Invalid unicode escape");
+          }
+          u = (u << 4) | h;
+        }
+        append((char) u);
+        break;
+      default:
+        throw error("Invalid escape sequence");
+    }
+  }
+
+  /** Decode the multi byte UTF-8 sequence starting with byte <code>c</code>. */
+  private void utf8(int c) {
+    if (c >= 0xC2 && c <= 0xDF) {
+      append((char) (((c & 0x1F) << 6) | continuation()));
+    } else if (c >= 0xE0 && c <= 0xEF) {
+      final int cp = ((c & 0x0F) << 12) | (continuation() << 6) | continuation();
+      if (cp < 0x800 || Character.isSurrogate((char) cp)) {
+        throw error("Invalid UTF-8 sequence");
+      }
+      append((char) cp);
+    } else if (c >= 0xF0 && c <= 0xF4) {
+      final int cp = ((c & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+      if (cp < 0x10000 || cp > Character.MAX_CODE_POINT) {
+        throw error("Invalid UTF-8 sequence");
+      }
+      append(Character.highSurrogate(cp));
+      append(Character.lowSurrogate(cp));
+    } else {
+      throw error("Invalid UTF-8 sequence");
+    }
+  }
+
+  private int continuation() {
+    final int c = read();
+    if ((c & 0xC0) != 0x80) {
+      throw error("Invalid UTF-8 sequence");
+    }
+    return c & 0x3F;
+  }
+
+  private void append(char c) {
+    ensureChars(1);
+    chars[length++] = c;
+  }
+
+  private void ensureChars(int n) {
+    if (length + n > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + n));
+    }
+  }
+
+  private int skipWhitespace() {
+    while (true) {
+      final int c = read();
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return c;
+      }
+    }
+  }
+
+  /** Read the next byte as an unsigned value. Return -1 at the end of the input. */
+  private int read() {
+    if (pos >= limit && !fill()) {
+      // keep reading -1 at the end
+      pos = limit + 1;
+      return -1;
+    }
+    return buf[pos++] & 0xFF;
+  }
+
+  /** Refill the buffer. Return false if there is no more input. */
+  private boolean fill() {
+    if (pos > limit) {
+      return false;
+    }
+    base += limit;
+    if (in != null) {
+      try {
+        final int n = in.read(buf, 0, buf.length);
+        return filled(n);
+      } catch (IOException e) {
+        return chuck(e);
+      }
+    } else if (bb != null && bb.hasRemaining()) {
+      final int n = Math.min(buf.length, bb.remaining());
+      bb.get(buf, 0, n);
+      return filled(n);
+    } else {
+      base -= limit;
+      return false;
+    }
+  }
+
+  private boolean filled(int n) {
+    pos = 0;
+    if (n > 0) {
+      limit = n;
+      return true;
+    } else {
+      limit = 0;
+      return false;
+    }
+  }
+
+  private JsonParseException unexpected(int c, String expected) {
+    return error((c < 0 ? "Unexpected end of input" : "Unexpected character '" + (char) c + "'") + ", expected " + expected);
+  }
+
+  private JsonParseException error(String message) {
+    // the last byte read
+    return new JsonParseException(message, base + Math.max(Math.min(pos, limit + 1) - 1, 0));
+  }
+}
@@ -22,9 +22,9 @@ import com.entwinemedia.fn.Fn;
 import com.entwinemedia.fn.Pred;
 import com.entwinemedia.fn.data.ListBuilder;
 import com.entwinemedia.fn.data.ListBuilders;
+import com.entwinemedia.fn.data.PersistentHashMap;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -56,7 +56,7 @@ public final class Jsons {
   public static final JString BLANK = new JString("");
 
   /** An empty object. */
-  private static final JObject EMPTY_OBJ = new JObject(new HashMap<String, Field>());
+  private static final JObject EMPTY_OBJ = new JObject(PersistentHashMap.<String, Field>empty());
 
   /** An empty array. */
   private static final JArray EMPTY_ARR = new JArray(new ArrayList<JValue>());
@@ -74,7 +74,7 @@ public final class Jsons {
   }
 
   public static JObject obj(Iterable<? extends Field> fields) {
-    return new JObject($(fields).filter(not(Functions.isFieldZero)).group(Jsons.Functions.keyOfField));
+    return JObject.mk(fields);
   }
 
   /**
@@ -82,7 +82,7 @@ public final class Jsons {
    * Please note that the map will be copied.
    */
   public static JObject obj(Map<String, Field> fields) {
-    return new JObject(new HashMap<>(fields));
+    return new JObject(PersistentHashMap.mk(fields));
   }
 
   public static Field f(String key, JValue value) {
@@ -170,6 +170,19 @@ public final class Jsons {
     }
   }
 
+  /**
+   * Serialize <code>value</code> once so that serializers can copy the bytes instead of walking it again.
+   * Zero and values that are already serialized are returned as they are.
+   *
+   * @see RawCache
+   */
+  public static JValue raw(JValue value) {
+    if (value instanceof Zero || value instanceof JRaw) {
+      return value;
+    }
+    return new JRaw(value, JRaw.serialize(value));
+  }
+
   /** A field is considered zero if its value is zero. */
   public static boolean isZero(Field f) {
     return isZero(f.value());
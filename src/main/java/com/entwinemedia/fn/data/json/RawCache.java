@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data.json;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Cache of serialized JSON values keyed by identity.
+ * <p/>
+ * Values are only referenced weakly, so a subtree that is no longer used by the application drops out of the cache.
+ * On top of that the cache holds at most <code>maxSize</code> entries, evicting the least recently used first.
+ * Since the lookup is by identity the cache is meant for immutable subtrees that are kept around and
+ * embedded into many documents, e.g. reference data or configuration. Values are serialized on the first lookup,
+ * so an array backed by a lazy stream is evaluated only once.
+ * <p/>
+ * Instances are thread safe. Values are serialized outside of the lock. Two threads missing the same value at
+ * the same time may therefore both serialize it.
+ */
+public final class RawCache {
+  private final int maxSize;
+  private final LinkedHashMap<Key, byte[]> map = new LinkedHashMap<Key, byte[]>(16, 0.75f, true);
+  private final ReferenceQueue<JValue> collected = new ReferenceQueue<JValue>();
+
+  public RawCache(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be greater than 0");
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Return <code>v</code> in its serialized form, serializing it only if it is not cached yet.
+   * Zero and values that are already serialized are returned as they are.
+   */
+  public JValue raw(JValue v) {
+    if (v instanceof Zero || v instanceof JRaw) {
+      return v;
+    }
+    final Key key = new Key(v, null);
+    byte[] bytes;
+    synchronized (map) {
+      expunge();
+      bytes = map.get(key);
+    }
+    if (bytes == null) {
+      bytes = JRaw.serialize(v);
+      synchronized (map) {
+        map.put(new Key(v, collected), bytes);
+        if (map.size() > maxSize) {
+          // entries are in access order, so the eldest one is the least recently used
+          final Iterator<Key> it = map.keySet().iterator();
+          it.next();
+          it.remove();
+        }
+      }
+    }
+    return new JRaw(v, bytes);
+  }
+
+  /** Return the number of cached values. Values that have been garbage collected may still be counted. */
+  public int size() {
+    synchronized (map) {
+      expunge();
+      return map.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (map) {
+      map.clear();
+      while (collected.poll() != null) {
+        // drain
+      }
+    }
+  }
+
+  /** Remove the entries whose values have been garbage collected. */
+  private void expunge() {
+    Object ref;
+    while ((ref = collected.poll()) != null) {
+      map.remove(ref);
+    }
+  }
+
+  /** Weak reference to a value that compares by the identity of the value. */
+  private static final class Key extends WeakReference<JValue> {
+    private final int hash;
+
+    private Key(JValue v, ReferenceQueue<JValue> queue) {
+      super(v, queue);
+      this.hash = System.identityHashCode(v);
+    }
+
+    @Override public int hashCode() {
+      return hash;
+    }
+
+    @Override public boolean equals(Object that) {
+      if (this == that) {
+        return true;
+      }
+      if (!(that instanceof Key)) {
+        return false;
+      }
+      final JValue v = get();
+      return v != null && v == ((Key) that).get();
+    }
+  }
+}
@@ -17,10 +17,44 @@
 package com.entwinemedia.fn.data.json;
 
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 /**
- * Serialize a JSON value into an output stream.
+ * Serialize a JSON value into an output stream, a channel or a byte buffer.
  */
 public interface Serializer {
   void toJson(OutputStream out, JValue j);
+
+  /** Serialize into a channel. The default implementation writes through an output stream adapter. */
+  default void toJson(WritableByteChannel out, JValue j) {
+    toJson(Channels.newOutputStream(out), j);
+  }
+
+  /**
+   * Serialize into the remaining space of <code>out</code>.
+   * The default implementation writes through an output stream adapter.
+   *
+   * @throws BufferOverflowException
+   *         if the output does not fit; the position of <code>out</code> is left unchanged
+   */
+  default void toJson(final ByteBuffer out, JValue j) {
+    final int start = out.position();
+    try {
+      toJson(new OutputStream() {
+        @Override public void write(int b) {
+          out.put((byte) b);
+        }
+
+        @Override public void write(byte[] b, int off, int len) {
+          out.put(b, off, len);
+        }
+      }, j);
+    } catch (BufferOverflowException e) {
+      out.position(start);
+      throw e;
+    }
+  }
 }
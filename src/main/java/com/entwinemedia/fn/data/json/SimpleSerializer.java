@@ -74,6 +74,8 @@ public class SimpleSerializer implements Serializer {
       // do nothing
     } else if (v instanceof JNull) {
       toJson(writer, (JNull) v);
+    } else if (v instanceof JRaw) {
+      write(writer, v.toString());
     } else {
       Prelude.<Boolean>unexhaustiveMatch(v);
     }
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data.json;
+
+import static com.entwinemedia.fn.Equality.ne;
+import static com.entwinemedia.fn.Prelude.chuck;
+
+import com.entwinemedia.fn.Prelude;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serializer that encodes JSON straight into UTF-8 bytes.
+ * <p/>
+ * The output is the same as the one of {@link SimpleSerializer} which writes through a {@link java.io.Writer}
+ * using the platform's default charset and escapes every string into a new string first.
+ * This serializer instead encodes into a byte buffer that is handed on in chunks of
+ * {@link #DEFAULT_BUFFER_SIZE} bytes. Output streams are written from a heap buffer that is reused per thread,
+ * channels from pooled direct buffers using gathering writes, and byte buffers are encoded into directly.
+ * Characters that need to be escaped are looked up in a table, runs of ASCII characters that
+ * need no escaping are copied in bulk.
+ * <p/>
+ * Arrays and objects are written while their elements are pulled from the underlying iterables,
+ * so an array backed by a lazy {@link com.entwinemedia.fn.Stream} is serialized in constant memory.
+ * With a flush threshold the output is flushed whenever that many bytes have been written
+ * since the last flush, so that the receiver gets complete elements while the array is still being produced.
+ * If writing fails, e.g. because the client disconnected, the serialization stops right away without pulling
+ * any more elements and the {@link IOException} is rethrown.
+ * <p/>
+ * Instances are thread safe.
+ */
+public final class Utf8Serializer implements Serializer {
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /** Maximum number of direct buffers kept for reuse. */
+  private static final int MAX_POOLED = 64;
+  /** Maximum number of buffers handed to a single gathering write. */
+  private static final int GATHER = 16;
+
+  private static final byte[] HEX = ascii("0123456789ABCDEF");
+  private static final byte[] NULL = ascii("null");
+
+  /** Escape sequences of the ASCII characters. Null if a character does not need to be escaped. */
+  private static final byte[][] ESCAPES = new byte[128][];
+
+  static {
+    for (char c = 0; c < 0x20; c++) {
+      ESCAPES[c] = unicodeEscape(c);
+    }
+    ESCAPES[0x7F] = unicodeEscape((char) 0x7F);
+    ESCAPES['"'] = ascii("\\\"");
+    ESCAPES['\\'] = ascii("\\\\");
+    ESCAPES['/'] = ascii("\\/");
+    ESCAPES['\b'] = ascii("\\b");
+    ESCAPES['\f'] = ascii("\\f");
+    ESCAPES['\n'] = ascii("\\n");
+    ESCAPES['\r'] = ascii("\\r");
+    ESCAPES['\t'] = ascii("\\t");
+  }
+
+  private final int bufferSize;
+  private final int flushThreshold;
+  private final ThreadLocal<StreamEncoder> streamEncoders;
+  /** Direct buffers for channels. */
+  private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicInteger pooled = new AtomicInteger();
+
+  public Utf8Serializer() {
+    this(DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a serializer that writes to the output in chunks of <code>bufferSize</code> bytes.
+   * The output is flushed once at the end.
+   */
+  public Utf8Serializer(int bufferSize) {
+    this(bufferSize, 0);
+  }
+
+  /**
+   * Create a serializer that writes to the output in chunks of <code>bufferSize</code> bytes and
+   * flushes it after the first array or object element that exceeds <code>flushThreshold</code> bytes
+   * written since the last flush. A threshold &lt;= 0 flushes only at the end.
+   */
+  public Utf8Serializer(final int bufferSize, final int flushThreshold) {
+    if (bufferSize < 16) {
+      throw new IllegalArgumentException("bufferSize must be at least 16");
+    }
+    this.bufferSize = bufferSize;
+    this.flushThreshold = flushThreshold;
+    this.streamEncoders = new ThreadLocal<StreamEncoder>() {
+      @Override protected StreamEncoder initialValue() {
+        return new StreamEncoder(ByteBuffer.allocate(bufferSize), flushThreshold);
+      }
+    };
+  }
+
+  @Override public void toJson(OutputStream out, JValue v) {
+    final StreamEncoder cached = streamEncoders.get();
+    // the thread's encoder is still in use if serialization is re-entered, e.g. from a lazily mapped array
+    final StreamEncoder encoder = cached.out == null
+        ? cached
+        : new StreamEncoder(ByteBuffer.allocate(bufferSize), flushThreshold);
+    encoder.out = out;
+    encoder.buf.clear();
+    encoder.unflushed = 0;
+    try {
+      encoder.value(v);
+      encoder.flush();
+    } catch (IOException e) {
+      chuck(e);
+    } finally {
+      encoder.out = null;
+    }
+  }
+
+  /**
+   * Write from pooled direct buffers. A {@link GatheringByteChannel} is written with gathering writes
+   * of up to 16 buffers at a time. The channel has to be in blocking mode.
+   */
+  @Override public void toJson(WritableByteChannel out, JValue v) {
+    final ChannelEncoder encoder = new ChannelEncoder(out);
+    try {
+      encoder.value(v);
+      encoder.flush();
+    } catch (IOException e) {
+      chuck(e);
+    } finally {
+      encoder.release();
+    }
+  }
+
+  /**
+   * Encode into the remaining space of <code>out</code> and advance its position.
+   * If the output does not fit a {@link BufferOverflowException} is thrown and the position is left unchanged.
+   */
+  @Override public void toJson(ByteBuffer out, JValue v) {
+    final int start = out.position();
+    try {
+      new BufferEncoder(out).value(v);
+    } catch (IOException e) {
+      chuck(e);
+    } catch (BufferOverflowException e) {
+      out.position(start);
+      throw e;
+    }
+  }
+
+  public String toJson(JValue v) {
+    try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+      toJson(out, v);
+      return out.toString("UTF-8");
+    } catch (IOException e) {
+      return chuck(e);
+    }
+  }
+
+  private ByteBuffer take() {
+    final ByteBuffer b = pool.poll();
+    if (b != null) {
+      pooled.decrementAndGet();
+      return b;
+    } else {
+      return ByteBuffer.allocateDirect(bufferSize);
+    }
+  }
+
+  private void give(ByteBuffer b) {
+    if (pooled.incrementAndGet() <= MAX_POOLED) {
+      b.clear();
+      pool.offer(b);
+    } else {
+      pooled.decrementAndGet();
+    }
+  }
+
+  private static byte[] ascii(String s) {
+    final byte[] bytes = new byte[s.length()];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) s.charAt(i);
+    }
+    return bytes;
+  }
+
+  private static byte[] unicodeEscape(char c) {
+    return new byte[]{'\\', 'u', HEX[c >> 12], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF], HEX[c & 0xF]};
+  }
+
+  /** Check if a non-ASCII character needs to be escaped. Same ranges as {@link Util#escape(String)}. */
+  private static boolean isEscaped(char c) {
+    return c <= '\u009F' || (c >= '\u2000' && c <= '\u20FF');
+  }
+
+  /** Encodes values into a byte buffer that is handed on to the target whenever it is full. */
+  private abstract static class Encoder {
+    private final int flushThreshold;
+    ByteBuffer buf;
+    /** Number of bytes handed on since the target has last been flushed. */
+    long unflushed;
+
+    Encoder(ByteBuffer buf, int flushThreshold) {
+      this.buf = buf;
+      this.flushThreshold = flushThreshold;
+    }
+
+    /** Hand on the content of the full buffer and make room in it. */
+    abstract void drain() throws IOException;
+
+    /** Hand on all encoded bytes and flush the target. */
+    abstract void flush() throws IOException;
+
+    final void value(Object v) throws IOException {
+      if (v instanceof JString) {
+        quoted(((JString) v).value());
+      } else if (v instanceof JPrimitive) {
+        chars(((JPrimitive<?>) v).value().toString(), false);
+      } else if (v instanceof JObject) {
+        write('{');
+        values(((JObject) v).iterator());
+        write('}');
+      } else if (v instanceof Field) {
+        field((Field) v);
+      } else if (v instanceof JArray) {
+        write('[');
+        values(((JArray) v).iterator());
+        write(']');
+      } else if (v instanceof Zero) {
+        // do nothing
+      } else if (v instanceof JNull) {
+        write(NULL);
+      } else if (v instanceof JRaw) {
+        bytes(((JRaw) v).bytes());
+      } else {
+        Prelude.<Boolean>unexhaustiveMatch(v);
+      }
+    }
+
+    private void field(Field f) throws IOException {
+      quoted(f.key());
+      write(':');
+      value(f.value());
+    }
+
+    /** Write the values separated by commas. Zeros are skipped. */
+    private void values(Iterator<?> it) throws IOException {
+      boolean first = true;
+      while (it.hasNext()) {
+        final Object v = it.next();
+        if (!isZero(v)) {
+          if (!first) {
+            write(',');
+          }
+          value(v);
+          first = false;
+          if (flushThreshold > 0 && unflushed + buf.position() >= flushThreshold) {
+            flush();
+          }
+        }
+      }
+    }
+
+    private static boolean isZero(Object v) {
+      return v instanceof Zero || (v instanceof Field && !ne(((Field) v).value(), Jsons.ZERO));
+    }
+
+    private void quoted(String s) throws IOException {
+      write('"');
+      chars(s, true);
+      write('"');
+    }
+
+    /** Encode <code>s</code> as UTF-8 and escape it if requested. */
+    private void chars(String s, boolean escape) throws IOException {
+      final int length = s.length();
+      int i = 0;
+      while (i < length) {
+        // find the run of characters that can be copied as they are
+        int end = i;
+        while (end < length) {
+          final char c = s.charAt(end);
+          if (c >= 0x80 || (escape && ESCAPES[c] != null)) {
+            break;
+          }
+          end++;
+        }
+        if (end > i) {
+          ascii(s, i, end);
+          i = end;
+          if (i == length) {
+            break;
+          }
+        }
+        final char c = s.charAt(i);
+        if (c < 0x80) {
+          write(ESCAPES[c]);
+        } else if (escape && isEscaped(c)) {
+          ensure(6);
+          buf.put((byte) '\\');
+          buf.put((byte) 'u');
+          buf.put(HEX[c >> 12]);
+          buf.put(HEX[(c >> 8) & 0xF]);
+          buf.put(HEX[(c >> 4) & 0xF]);
+          buf.put(HEX[c & 0xF]);
+        } else if (c < 0x800) {
+          ensure(2);
+          buf.put((byte) (0xC0 | (c >> 6)));
+          buf.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+          final int cp = Character.toCodePoint(c, s.charAt(++i));
+          ensure(4);
+          buf.put((byte) (0xF0 | (cp >> 18)));
+          buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+          buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+          buf.put((byte) (0x80 | (cp & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+          // a lone surrogate cannot be encoded; replace it like the JDK's encoder does
+          write('?');
+        } else {
+          ensure(3);
+          buf.put((byte) (0xE0 | (c >> 12)));
+          buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+          buf.put((byte) (0x80 | (c & 0x3F)));
+        }
+        i++;
+      }
+    }
+
+    /** Copy the ASCII characters <code>[from, to)</code> of <code>s</code>. */
+    @SuppressWarnings("deprecation")
+    private void ascii(String s, int from, int to) throws IOException {
+      while (from < to) {
+        if (!buf.hasRemaining()) {
+          drain();
+        }
+        final int n = Math.min(to - from, buf.remaining());
+        if (buf.hasArray()) {
+          // copies the low byte of each char which is the character itself for ASCII
+          s.getBytes(from, from + n, buf.array(), buf.arrayOffset() + buf.position());
+          buf.position(buf.position() + n);
+        } else {
+          for (int i = from; i < from + n; i++) {
+            buf.put((byte) s.charAt(i));
+          }
+        }
+        from += n;
+      }
+    }
+
+    /** Copy <code>bytes</code> which may be larger than the buffer. */
+    private void bytes(byte[] bytes) throws IOException {
+      int from = 0;
+      while (from < bytes.length) {
+        if (!buf.hasRemaining()) {
+          drain();
+        }
+        final int n = Math.min(bytes.length - from, buf.remaining());
+        buf.put(bytes, from, n);
+        from += n;
+      }
+    }
+
+    private void write(char c) throws IOException {
+      ensure(1);
+      buf.put((byte) c);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+      ensure(bytes.length);
+      buf.put(bytes);
+    }
+
+    /** Make room for <code>n</code> bytes. <code>n</code> must not exceed the buffer size. */
+    private void ensure(int n) throws IOException {
+      if (buf.remaining() < n) {
+        drain();
+      }
+    }
+  }
+
+  /** Writes to an output stream from a heap buffer. */
+  private static final class StreamEncoder extends Encoder {
+    private OutputStream out;
+
+    private StreamEncoder(ByteBuffer buf, int flushThreshold) {
+      super(buf, flushThreshold);
+    }
+
+    @Override void drain() throws IOException {
+      if (buf.position() > 0) {
+        out.write(buf.array(), buf.arrayOffset(), buf.position());
+        unflushed += buf.position();
+        buf.clear();
+      }
+    }
+
+    @Override void flush() throws IOException {
+      drain();
+      out.flush();
+      unflushed = 0;
+    }
+  }
+
+  /** Collects full direct buffers and writes them to a channel in batches. */
+  private final class ChannelEncoder extends Encoder {
+    private final WritableByteChannel out;
+    private final ByteBuffer[] pending = new ByteBuffer[GATHER];
+    private int count;
+
+    private ChannelEncoder(WritableByteChannel out) {
+      super(take(), flushThreshold);
+      this.out = out;
+    }
+
+    @Override void drain() throws IOException {
+      buf.flip();
+      unflushed += buf.remaining();
+      pending[count++] = buf;
+      buf = take();
+      if (count == GATHER) {
+        write();
+      }
+    }
+
+    @Override void flush() throws IOException {
+      if (buf.position() > 0) {
+        drain();
+      }
+      write();
+      unflushed = 0;
+    }
+
+    private void write() throws IOException {
+      if (out instanceof GatheringByteChannel) {
+        long remaining = 0;
+        for (int i = 0; i < count; i++) {
+          remaining += pending[i].remaining();
+        }
+        while (remaining > 0) {
+          remaining -= ((GatheringByteChannel) out).write(pending, 0, count);
+        }
+      } else {
+        for (int i = 0; i < count; i++) {
+          while (pending[i].hasRemaining()) {
+            out.write(pending[i]);
+          }
+        }
+      }
+      recycle();
+    }
+
+    /** Return the pending buffers to the pool. */
+    private void recycle() {
+      for (int i = 0; i < count; i++) {
+        give(pending[i]);
+        pending[i] = null;
+      }
+      count = 0;
+    }
+
+    /** Return all buffers to the pool, also if writing failed. */
+    private void release() {
+      recycle();
+      give(buf);
+    }
+  }
+
+  /** Encodes into a byte buffer of the caller. */
+  private static final class BufferEncoder extends Encoder {
+    private BufferEncoder(ByteBuffer buf) {
+      super(buf, 0);
+    }
+
+    @Override void drain() {
+      throw new BufferOverflowException();
+    }
+
+    @Override void flush() {
+    }
+  }
+}
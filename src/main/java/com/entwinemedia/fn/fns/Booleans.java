@@ -20,6 +20,9 @@ import com.entwinemedia.fn.Fn;
 import com.entwinemedia.fn.Fn2;
 import com.entwinemedia.fn.Pred;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.annotation.ParametersAreNonnullByDefault;
 
 /** Functions on booleans. */
@@ -154,25 +157,42 @@ public final class Booleans {
   }
 
   public static <A> Pred<A> or(final Fn<? super A, Boolean> p1, final Fn<? super A, Boolean> p2) {
+    final Pred<A> q1 = Pred.mk(p1);
+    final Pred<A> q2 = Pred.mk(p2);
     return new Pred<A>() {
+      @Override public boolean test(A a) {
+        return q1.test(a) || q2.test(a);
+      }
+
       @Override public Boolean apply(A a) {
-        return p1.apply(a) || p2.apply(a);
+        return test(a);
       }
     };
   }
 
   public static <A> Pred<A> and(final Fn<? super A, Boolean> p1, final Fn<? super A, Boolean> p2) {
+    final Pred<A> q1 = Pred.mk(p1);
+    final Pred<A> q2 = Pred.mk(p2);
     return new Pred<A>() {
+      @Override public boolean test(A a) {
+        return q1.test(a) && q2.test(a);
+      }
+
       @Override public Boolean apply(A a) {
-        return p1.apply(a) && p2.apply(a);
+        return test(a);
       }
     };
   }
 
   public static <A> Pred<A> not(final Fn<? super A, Boolean> p) {
+    final Pred<A> q = Pred.mk(p);
     return new Pred<A>() {
+      @Override public boolean test(A a) {
+        return !q.test(a);
+      }
+
       @Override public Boolean apply(A a) {
-        return !p.apply(a);
+        return test(a);
       }
     };
   }
@@ -185,29 +205,45 @@ public final class Booleans {
 
   @SafeVarargs
   public static <A> Pred<A> all(final Fn<? super A, Boolean>... ps) {
+    final List<Pred<A>> qs = new ArrayList<Pred<A>>(ps.length);
+    for (Fn<? super A, Boolean> p : ps) {
+      qs.add(Pred.<A>mk(p));
+    }
     return new Pred<A>() {
-      @Override public Boolean apply(A a) {
-        for (Fn<? super A, Boolean> p : ps) {
-          if (!p.apply(a)) {
+      @Override public boolean test(A a) {
+        for (int i = 0; i < qs.size(); i++) {
+          if (!qs.get(i).test(a)) {
             return false;
           }
         }
         return true;
       }
+
+      @Override public Boolean apply(A a) {
+        return test(a);
+      }
     };
   }
 
   @SafeVarargs
   public static <A> Pred<A> one(final Fn<? super A, Boolean>... ps) {
+    final List<Pred<A>> qs = new ArrayList<Pred<A>>(ps.length);
+    for (Fn<? super A, Boolean> p : ps) {
+      qs.add(Pred.<A>mk(p));
+    }
     return new Pred<A>() {
-      @Override public Boolean apply(A a) {
-        for (Fn<? super A, Boolean> p : ps) {
-          if (p.apply(a)) {
+      @Override public boolean test(A a) {
+        for (int i = 0; i < qs.size(); i++) {
+          if (qs.get(i).test(a)) {
             return true;
           }
         }
         return false;
       }
+
+      @Override public Boolean apply(A a) {
+        return test(a);
+      }
     };
   }
 
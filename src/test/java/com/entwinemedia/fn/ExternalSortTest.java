@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+import static com.entwinemedia.fn.Stream.$;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.entwinemedia.fn.data.ListBuilder;
+import com.entwinemedia.fn.data.ListBuilders;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class ExternalSortTest {
+  private static final ListBuilder l = ListBuilders.SIA;
+
+  private File tmpDir;
+
+  @Before
+  public void setUp() throws Exception {
+    tmpDir = Files.createTempDirectory("external-sort-test").toFile();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (File f : tmpDir.listFiles()) {
+      f.delete();
+    }
+    tmpDir.delete();
+  }
+
+  @Test
+  public void testSortSpillsAndMerges() {
+    final Random random = new Random(42);
+    final List<Integer> src = new ArrayList<Integer>();
+    for (int i = 0; i < 10000; i++) {
+      src.add(random.nextInt(1000));
+    }
+    // 100 runs need more than one merge pass
+    final Stream<Integer> sorted = $(src).externalSort(Orders.intNaturalOrder, ExternalSort.mk(Codecs.int32, 100, tmpDir));
+    assertEquals($(src).sort(Orders.intNaturalOrder).toList(), sorted.toList());
+    assertEquals("All runs are deleted after the merge", 0, tmpDir.listFiles().length);
+    assertEquals("The sorted stream can be evaluated again", 10000, sorted.toList().size());
+  }
+
+  @Test
+  public void testSortIsStable() {
+    final Comparator<P2<Integer, String>> byKey = new Comparator<P2<Integer, String>>() {
+      @Override public int compare(P2<Integer, String> a, P2<Integer, String> b) {
+        return a.get1().compareTo(b.get1());
+      }
+    };
+    final ProductBuilder p = Products.E;
+    final List<P2<Integer, String>> src = new ArrayList<P2<Integer, String>>();
+    for (int i = 0; i < 1000; i++) {
+      src.add(p.p2(i % 7, "v" + i));
+    }
+    final ExternalSort<P2<Integer, String>> sort = ExternalSort.mk(Codecs.p2(Codecs.int32, Codecs.string), 30, tmpDir);
+    assertEquals($(src).sort(byKey).toList(), $(src).externalSort(byKey, sort).toList());
+  }
+
+  @Test
+  public void testSortInMemory() {
+    final Stream<String> sorted = $("c", "a", "b").externalSort(Orders.stringNaturalOrder, ExternalSort.mk(Codecs.string, 10, tmpDir));
+    assertEquals(l.mk("a", "b", "c"), sorted.toList());
+    assertEquals(0, tmpDir.listFiles().length);
+    assertTrue(Stream.<String>empty().externalSort(Orders.stringNaturalOrder, ExternalSort.mk(Codecs.string, 10, tmpDir)).isEmpty());
+  }
+
+  @Test
+  public void testPartiallyReadStream() {
+    final Stream<Integer> sorted = $(5, 4, 3, 2, 1).externalSort(Orders.intNaturalOrder, ExternalSort.mk(Codecs.int32, 2, tmpDir));
+    assertEquals(l.mk(1, 2), sorted.take(2).toList());
+    assertEquals("Runs are deleted when an evaluation stops early", 0, tmpDir.listFiles().length);
+    assertEquals(Integer.valueOf(1), sorted.head().get());
+    assertEquals(0, tmpDir.listFiles().length);
+  }
+
+  @Test
+  public void testClose() {
+    final ExternalSort.SortedStream<Integer> sorted =
+        $(5, 4, 3, 2, 1).externalSort(Orders.intNaturalOrder, ExternalSort.mk(Codecs.int32, 2, tmpDir));
+    final Iterator<Integer> a = sorted.iterator();
+    final Iterator<Integer> b = sorted.iterator();
+    assertEquals(Integer.valueOf(1), a.next());
+    assertEquals(Integer.valueOf(1), b.next());
+    assertTrue(tmpDir.listFiles().length > 0);
+    sorted.close();
+    assertEquals("Closing the stream deletes the runs of all iterators", 0, tmpDir.listFiles().length);
+    assertFalse(a.hasNext());
+    assertEquals("The stream can be evaluated again", l.mk(1, 2, 3, 4, 5), sorted.toList());
+  }
+
+  @Test
+  public void testRunsAreDeletedOnReadFailure() {
+    final int[] read = {0};
+    final Codec<Integer> failing = new Codec<Integer>() {
+      @Override public void write(DataOutput out, Integer a) throws IOException {
+        Codecs.int32.write(out, a);
+      }
+
+      @Override public Integer read(DataInput in) throws IOException {
+        if (++read[0] == 50) {
+          throw new IOException("Corrupt run");
+        }
+        return Codecs.int32.read(in);
+      }
+    };
+    final List<Integer> src = new ArrayList<Integer>();
+    for (int i = 0; i < 1000; i++) {
+      src.add(i % 100);
+    }
+    try {
+      $(src).externalSort(Orders.intNaturalOrder, ExternalSort.mk(failing, 100, tmpDir)).toList();
+      fail("The sort must fail");
+    } catch (Exception e) {
+      assertTrue(e instanceof IOException);
+    }
+    assertEquals("All runs are deleted after a failure", 0, tmpDir.listFiles().length);
+  }
+
+  @Test
+  public void testRunsAreDeletedOnFailure() {
+    final List<Integer> src = new ArrayList<Integer>();
+    for (int i = 0; i < 10000; i++) {
+      src.add(i % 1000);
+    }
+    // fail while spilling the 100 runs and while merging the second group of runs in the first pass,
+    // after the first 64 runs have already been merged into an intermediate run
+    for (final int failAt : new int[]{5050, 10000 + 6400 + 50}) {
+      final int[] written = {0};
+      final Codec<Integer> failing = new Codec<Integer>() {
+        @Override public void write(DataOutput out, Integer a) throws IOException {
+          if (++written[0] == failAt) {
+            throw new IOException("Disk full");
+          }
+          Codecs.int32.write(out, a);
+        }
+
+        @Override public Integer read(DataInput in) throws IOException {
+          return Codecs.int32.read(in);
+        }
+      };
+      try {
+        $(src).externalSort(Orders.intNaturalOrder, ExternalSort.mk(failing, 100, tmpDir)).toList();
+        fail("The sort must fail");
+      } catch (Exception e) {
+        assertTrue(e instanceof IOException);
+      }
+      assertEquals(failAt, written[0]);
+      assertEquals("All runs are deleted after a failure", 0, tmpDir.listFiles().length);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalRunSize() {
+    ExternalSort.mk(Codecs.int32, 0);
+  }
+}
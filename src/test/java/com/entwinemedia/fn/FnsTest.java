@@ -17,6 +17,7 @@
 package com.entwinemedia.fn;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -24,6 +25,8 @@ import com.entwinemedia.fn.data.Opt;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FnsTest {
   @Test
@@ -50,4 +53,80 @@ public class FnsTest {
     }
     assertEquals(Opt.<String>none(), f.tryOpt().apply(10));
   }
+
+  @Test
+  public void testMemo() {
+    final AtomicInteger calls = new AtomicInteger();
+    final MemoFn<Integer, Integer> f = Fns.memo(new Fn<Integer, Integer>() {
+      @Override public Integer apply(Integer a) {
+        calls.incrementAndGet();
+        return a == null ? null : a * 2;
+      }
+    }, CacheSpec.lru(2));
+    assertEquals(2, (int) f.apply(1));
+    assertEquals(4, (int) f.apply(2));
+    assertEquals(2, (int) f.apply(1));
+    assertEquals(2, calls.get());
+    // evicts 2, the least recently used
+    assertEquals(6, (int) f.apply(3));
+    assertEquals(2, (int) f.apply(1));
+    assertEquals(3, calls.get());
+    assertEquals(4, (int) f.apply(2));
+    assertEquals(4, calls.get());
+    assertNull(f.apply(null));
+    assertNull(f.apply(null));
+    assertEquals(5, calls.get());
+    final CacheStats stats = f.stats();
+    assertEquals(3, stats.getHits());
+    assertEquals(5, stats.getMisses());
+    assertEquals(3, stats.getEvictions());
+    f.clear();
+    f.apply(1);
+    assertEquals(6, calls.get());
+  }
+
+  @Test
+  public void testMemoExpiry() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final MemoFn<String, Integer> f = Fns.memo(new Fn<String, Integer>() {
+      @Override public Integer apply(String a) {
+        return calls.incrementAndGet();
+      }
+    }, CacheSpec.lru(10).expireAfterWrite(1, TimeUnit.MILLISECONDS));
+    assertEquals(1, (int) f.apply("a"));
+    Thread.sleep(10);
+    assertEquals(2, (int) f.apply("a"));
+    assertEquals(1, f.stats().getEvictions());
+  }
+
+  @Test
+  public void testMemo2() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final MemoFn2<Integer, Integer, Integer> f = Fns.memo(new Fn2<Integer, Integer, Integer>() {
+      @Override public Integer apply(Integer a, Integer b) {
+        calls.incrementAndGet();
+        return a - b;
+      }
+    }, CacheSpec.lru(1000));
+    final Thread[] ts = new Thread[4];
+    for (int i = 0; i < ts.length; i++) {
+      ts[i] = new Thread(new Runnable() {
+        @Override public void run() {
+          for (int n = 0; n < 500; n++) {
+            assertEquals(n % 50 - 1, (int) f.apply(n % 50, 1));
+          }
+        }
+      });
+      ts[i].start();
+    }
+    for (Thread t : ts) {
+      t.join();
+    }
+    assertEquals(-1, (int) f.apply(1, 2));
+    assertEquals(1, (int) f.apply(2, 1));
+    final CacheStats stats = f.stats();
+    assertEquals(2002, stats.getHits() + stats.getMisses());
+    assertEquals(calls.get(), stats.getMisses());
+    assertEquals(0, stats.getEvictions());
+  }
 }
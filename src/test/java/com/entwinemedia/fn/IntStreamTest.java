@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+import static com.entwinemedia.fn.Stream.$;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.entwinemedia.fn.data.ListBuilder;
+import com.entwinemedia.fn.data.ListBuilders;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+public class IntStreamTest {
+  private static final ListBuilder l = ListBuilders.SIA;
+
+  private static final IntFn twice = new IntFn() {
+    @Override public int apply(int a) {
+      return 2 * a;
+    }
+  };
+
+  private static final IntPred even = new IntPred() {
+    @Override public boolean apply(int a) {
+      return a % 2 == 0;
+    }
+  };
+
+  private static final IntFn2 max = new IntFn2() {
+    @Override public int apply(int a, int b) {
+      return Math.max(a, b);
+    }
+  };
+
+  @Test
+  public void testFmapFilter() {
+    assertArrayEquals(new int[]{4, 8}, IntStream.mk(1, 2, 3, 4).filter(even).fmap(twice).toArray());
+    assertArrayEquals(new int[]{}, IntStream.mk(1, 3).filter(even).toArray());
+    assertArrayEquals(new int[]{}, IntStream.empty().fmap(twice).toArray());
+  }
+
+  @Test
+  public void testFoldAndSum() {
+    assertEquals(5050, IntStream.range(1, 101).sum());
+    assertEquals(0, IntStream.empty().sum());
+    assertEquals(9, IntStream.mk(3, 9, -1).foldl(Integer.MIN_VALUE, max));
+    assertEquals(5000050000L, LongStream.range(1, 100001).sum());
+    assertEquals(1.5, DoubleStream.mk(0.5, 0.25, 0.75).sum(), 0);
+  }
+
+  @Test
+  public void testSort() {
+    assertArrayEquals(new int[]{-3, 1, 2, 9}, IntStream.mk(9, 1, -3, 2).sort().toArray());
+    assertArrayEquals(new long[]{-3, 1, 2, 9}, LongStream.mk(9, 1, -3, 2).sort().toArray());
+  }
+
+  @Test
+  public void testToArrayGrowsBuffer() {
+    final ToIntFn<Integer> unbox = new ToIntFn<Integer>() {
+      @Override public int apply(Integer a) {
+        return a;
+      }
+    };
+    final Fn<Integer, Iterable<Integer>> range = new Fn<Integer, Iterable<Integer>>() {
+      @Override public Iterable<Integer> apply(Integer a) {
+        return IntStream.range(0, a).boxed();
+      }
+    };
+    final int[] as = $(100, 200, 300).bind(range).mapToInt(unbox).toArray();
+    assertEquals(600, as.length);
+    assertEquals(299, as[599]);
+    assertEquals(0, IntStream.range(5, 1).toArray().length);
+  }
+
+  @Test
+  public void testBridges() {
+    final ToIntFn<String> len = new ToIntFn<String>() {
+      @Override public int apply(String a) {
+        return a.length();
+      }
+    };
+    assertEquals(9, $("a", "bcd", "efghi").mapToInt(len).sum());
+    assertEquals(l.mk(1, 3, 5), $("a", "bcd", "efghi").mapToInt(len).boxed().toList());
+    assertEquals("2,6,10", $("a", "bcd", "efghi").mapToInt(len).fmap(twice).boxed().mkString(","));
+    assertEquals(l.mk(2, 4), l.mk(IntStream.mk(1, 2).fmap(twice).boxed().iterator()));
+  }
+
+  @Test
+  public void testSizeInfo() {
+    assertEquals(SizeHint.exact(4), IntStream.mk(1, 2, 3, 4).fmap(twice).getSizeInfo());
+    assertEquals(SizeHint.atMost(4), IntStream.mk(1, 2, 3, 4).filter(even).getSizeInfo());
+    assertEquals(SizeHint.exact(100), LongStream.range(0, 100).getSizeInfo());
+    assertEquals(SizeHint.ZERO, DoubleStream.empty().getSizeInfo());
+    final ToIntFn<String> len = new ToIntFn<String>() {
+      @Override public int apply(String a) {
+        return a.length();
+      }
+    };
+    assertEquals(SizeHint.exact(3), $("a", "bcd", "efghi").mapToInt(len).getSizeInfo());
+  }
+
+  @Test
+  public void testBoxedIteratorIsLazy() {
+    final int[] pulled = {0};
+    final IntFn count = new IntFn() {
+      @Override public int apply(int a) {
+        pulled[0]++;
+        return a;
+      }
+    };
+    final Iterator<Integer> it = IntStream.range(0, 1000000).fmap(count).boxed().iterator();
+    assertEquals(Integer.valueOf(0), it.next());
+    assertEquals(Integer.valueOf(1), it.next());
+    assertEquals(2, pulled[0]);
+  }
+}
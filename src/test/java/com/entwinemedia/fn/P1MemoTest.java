@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class P1MemoTest {
+  @Test
+  public void testMemoIsLazy() {
+    final AtomicInteger calls = new AtomicInteger();
+    final P1<Integer> p = new P1Lazy<Integer>() {
+      @Override public Integer get1() {
+        return calls.incrementAndGet();
+      }
+    }.memo();
+    assertEquals(0, calls.get());
+    assertEquals(1, (int) p.get1());
+    assertEquals(1, (int) p.get1());
+    assertEquals(1, calls.get());
+    final P1Memo<Integer> m = P1Memo.memo(p);
+    assertSame(m, P1Memo.memo(m));
+    assertSame(m, m.memo());
+  }
+
+  @Test
+  public void testMemoEvaluatesOnceConcurrently() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final P1Memo<Object> p = P1Memo.memo(new P1Lazy<Object>() {
+      @Override public Object get1() {
+        calls.incrementAndGet();
+        return new Object();
+      }
+    });
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final Object[] results = new Object[threads];
+    final Thread[] ts = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      final int n = i;
+      ts[i] = new Thread(new Runnable() {
+        @Override public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException ignore) {
+          }
+          results[n] = p.get1();
+        }
+      });
+      ts[i].start();
+    }
+    start.countDown();
+    for (Thread t : ts) {
+      t.join();
+    }
+    assertEquals(1, calls.get());
+    for (Object r : results) {
+      assertSame(results[0], r);
+    }
+    assertTrue(p.isEvaluated());
+  }
+
+  @Test
+  public void testMemoCachesFailure() {
+    final AtomicInteger calls = new AtomicInteger();
+    final P1<Integer> p = P1Memo.memo(failOnce(calls));
+    for (int i = 0; i < 2; i++) {
+      try {
+        p.get1();
+        fail();
+      } catch (IllegalStateException ignore) {
+      }
+    }
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testMemoRetryAfterFailure() {
+    final AtomicInteger calls = new AtomicInteger();
+    final P1Memo<Integer> p = P1Memo.memoRetry(failOnce(calls));
+    try {
+      p.get1();
+      fail();
+    } catch (IllegalStateException ignore) {
+    }
+    assertFalse(p.isEvaluated());
+    assertEquals(2, (int) p.get1());
+    assertEquals(2, (int) p.get1());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testLazyProductBuilder() {
+    final AtomicInteger calls = new AtomicInteger();
+    final P1<Integer> p = new LazyProductBuilder().lazy(new P1Lazy<Integer>() {
+      @Override public Integer get1() {
+        return calls.incrementAndGet();
+      }
+    });
+    assertEquals(0, calls.get());
+    assertEquals(p.get1(), p.get1());
+    assertEquals(1, calls.get());
+  }
+
+  private static P1<Integer> failOnce(final AtomicInteger calls) {
+    return new P1Lazy<Integer>() {
+      @Override public Integer get1() {
+        if (calls.incrementAndGet() == 1) {
+          throw new IllegalStateException();
+        }
+        return calls.get();
+      }
+    };
+  }
+}
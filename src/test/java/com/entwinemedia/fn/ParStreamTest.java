@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+import static com.entwinemedia.fn.Stream.$;
+import static org.junit.Assert.assertEquals;
+
+import com.entwinemedia.fn.data.ListBuilder;
+import com.entwinemedia.fn.data.ListBuilders;
+import com.entwinemedia.fn.fns.Booleans;
+import com.entwinemedia.fn.fns.Numbers;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+public class ParStreamTest {
+  private static final ListBuilder l = ListBuilders.SIA;
+
+  private static final Fn<Integer, Integer> square = new Fn<Integer, Integer>() {
+    @Override public Integer apply(Integer a) {
+      return a * a;
+    }
+  };
+
+  private static final Fn<Integer, Boolean> even = new Fn<Integer, Boolean>() {
+    @Override public Boolean apply(Integer a) {
+      return a % 2 == 0;
+    }
+  };
+
+  private static List<Integer> range(List<Integer> buf, int n) {
+    for (int i = 0; i < n; i++) {
+      buf.add(i);
+    }
+    return buf;
+  }
+
+  @Test
+  public void testToListKeepsOrder() {
+    final List<Integer> src = range(new ArrayList<Integer>(), 10000);
+    final Stream<Integer> s = $(src).map(square).filter(even);
+    assertEquals(s.toList(), s.par().toList());
+    assertEquals(s.toList(), $(src).par().map(square).filter(even).toList());
+    assertEquals(src, $(src).par().toList());
+  }
+
+  @Test
+  public void testToListReturnsTheListsOfTheSequentialStream() {
+    final List<Integer> src = range(new ArrayList<Integer>(), 10000);
+    final Stream<Integer> mapped = $(src).map(square);
+    assertEquals(mapped.toList().getClass(), mapped.par().toList().getClass());
+    final Stream<Integer> filtered = $(src).filter(Booleans.lt(3));
+    assertEquals(filtered.toList(), filtered.par().toList());
+    assertEquals(filtered.toList().getClass(), filtered.par().toList().getClass());
+  }
+
+  @Test
+  public void testFoldl() {
+    final List<Integer> src = range(new ArrayList<Integer>(), 10000);
+    final Fn2<String, Integer, String> append = new Fn2<String, Integer, String>() {
+      @Override public String apply(String sum, Integer a) {
+        return sum + a + ",";
+      }
+    };
+    final Fn2<String, String, String> concat = new Fn2<String, String, String>() {
+      @Override public String apply(String a, String b) {
+        return a + b;
+      }
+    };
+    assertEquals($(src).take(200).foldl("", append), $(src).par().filter(Booleans.lt(200)).foldl("", append, concat));
+    assertEquals($(src).map(square).sum(Monoids.intAddition), $(src).par().map(square).sum(Monoids.intAddition));
+  }
+
+  @Test
+  public void testArraySource() {
+    final Integer[] src = range(new ArrayList<Integer>(), 1000).toArray(new Integer[0]);
+    assertEquals($(src).map(Numbers.toString).toList(), $(src).par().map(Numbers.toString).toList());
+  }
+
+  @Test
+  public void testSequentialFallback() {
+    final List<Integer> src = range(new LinkedList<Integer>(), 1000);
+    assertEquals($(src).map(square).toList(), $(src).par().map(square).toList());
+    assertEquals(l.nil(), Stream.<Integer>empty().par().map(square).toList());
+    assertEquals(l.mk(4), $(2).par().map(square).toList());
+  }
+
+  @Test
+  public void testNullsAreSkipped() {
+    final Fn<Integer, Integer> nullOdd = new Fn<Integer, Integer>() {
+      @Override public Integer apply(Integer a) {
+        return a % 2 == 0 ? a : null;
+      }
+    };
+    final List<Integer> src = range(new ArrayList<Integer>(), 100);
+    assertEquals($(src).map(nullOdd).toList(), $(src).par().map(nullOdd).toList());
+    assertEquals(50, $(src).par().map(nullOdd).seq().toList().size());
+  }
+}
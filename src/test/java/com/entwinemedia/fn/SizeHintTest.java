@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn;
+
+import static com.entwinemedia.fn.Stream.$;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.entwinemedia.fn.data.ListBuilder;
+import com.entwinemedia.fn.data.ListBuilders;
+import com.entwinemedia.fn.fns.Booleans;
+import org.junit.Test;
+
+import java.util.List;
+
+public class SizeHintTest {
+  private static final ListBuilder l = ListBuilders.SIA;
+
+  private static final Stream<Integer> ones = Stream.cont(new P1Lazy<Integer>() {
+    @Override public Integer get1() {
+      return 1;
+    }
+  });
+
+  private static final Fn<Integer, List<Integer>> twice = new Fn<Integer, List<Integer>>() {
+    @Override public List<Integer> apply(Integer a) {
+      return l.mk(a, a);
+    }
+  };
+
+  @Test
+  public void testArithmetic() {
+    assertEquals(SizeHint.exact(5), SizeHint.exact(2).plus(SizeHint.exact(3)));
+    assertEquals(SizeHint.atMost(5), SizeHint.exact(2).plus(SizeHint.atMost(3)));
+    assertEquals(SizeHint.estimate(5), SizeHint.atMost(2).plus(SizeHint.estimate(3)));
+    assertEquals(SizeHint.UNKNOWN, SizeHint.exact(2).plus(SizeHint.UNKNOWN));
+    assertEquals(SizeHint.INFINITE, SizeHint.UNKNOWN.plus(SizeHint.INFINITE));
+    assertEquals(SizeHint.exact(Integer.MAX_VALUE), SizeHint.exact(Integer.MAX_VALUE).plus(SizeHint.exact(1)));
+    assertEquals(SizeHint.exact(0), SizeHint.exact(3).minus(5));
+    assertEquals(SizeHint.atMost(4), SizeHint.UNKNOWN.limit(4));
+    assertEquals(SizeHint.exact(4), SizeHint.INFINITE.limit(4));
+    assertEquals(SizeHint.exact(3), SizeHint.exact(10).slices(4));
+    assertEquals(SizeHint.exact(3), SizeHint.exact(3).min(SizeHint.INFINITE));
+    assertEquals(SizeHint.atMost(3), SizeHint.exact(3).min(SizeHint.UNKNOWN));
+    assertEquals(SizeHint.UNKNOWN, SizeHint.INFINITE.filtered());
+    assertEquals(SizeHint.UNKNOWN, SizeHint.of(-1));
+  }
+
+  @Test
+  public void testPropagation() {
+    final Stream<Integer> s = $(l.mk(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+    assertEquals(SizeHint.exact(10), s.getSizeInfo());
+    assertEquals(SizeHint.exact(10), s.map(Fns.<Integer>id()).getSizeInfo());
+    assertEquals(SizeHint.atMost(10), s.filter(Booleans.lt(5)).getSizeInfo());
+    assertEquals(SizeHint.atMost(10), s.takeWhile(Booleans.lt(5)).getSizeInfo());
+    assertEquals(SizeHint.UNKNOWN, s.bind(twice).getSizeInfo());
+    assertEquals(SizeHint.exact(19), s.inject(0).getSizeInfo());
+    assertEquals(SizeHint.exact(0), Stream.<Integer>empty().inject(0).getSizeInfo());
+    assertEquals(SizeHint.exact(12), s.wrap(0, 0).getSizeInfo());
+    assertEquals(SizeHint.exact(4), s.partition(3).getSizeInfo());
+    assertEquals(SizeHint.exact(13), s.append(l.mk(1, 2, 3)).getSizeInfo());
+    assertEquals(SizeHint.exact(30), s.repeat(3).getSizeInfo());
+    assertEquals(SizeHint.exact(3), s.zip(l.mk(1, 2, 3)).getSizeInfo());
+    assertEquals(SizeHint.exact(3), s.sort(Orders.intNaturalOrder).take(3).getSizeInfo());
+  }
+
+  @Test
+  public void testInfiniteStreams() {
+    assertTrue(ones.getSizeInfo().isInfinite());
+    assertFalse(ones.hasSizeHint());
+    assertTrue(ones.map(Fns.<Integer>id()).getSizeInfo().isInfinite());
+    assertTrue(ones.append($(1)).getSizeInfo().isInfinite());
+    assertEquals(SizeHint.exact(3), ones.take(3).getSizeInfo());
+    assertEquals(SizeHint.exact(2), $(1, 2).zip(ones).getSizeInfo());
+    assertEquals(SizeHint.UNKNOWN, ones.takeWhile(Booleans.lt(5)).getSizeInfo());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCollectInfiniteStream() {
+    ones.toList();
+  }
+}
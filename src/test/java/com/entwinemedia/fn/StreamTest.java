@@ -28,11 +28,13 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import com.entwinemedia.fn.data.ImmutableListWrapper;
+import com.entwinemedia.fn.data.CompactLists;
+import com.entwinemedia.fn.data.ImmutableListArrayAdapter;
 import com.entwinemedia.fn.data.ListBuilder;
 import com.entwinemedia.fn.data.ListBuilders;
 import com.entwinemedia.fn.data.Opt;
@@ -50,6 +52,8 @@ import org.junit.runners.MethodSorters;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -383,7 +387,9 @@ public class StreamTest {
     final List<Integer> list = $(array).toList();
     final List<Integer> listStrict = $(array).toList(ListBuilders.SIA);
     final List<Integer> copy = ListBuilders.SIA.mk(list);
-    assertEquals("The array is copied into an immutable list", ImmutableListWrapper.class, list.getClass());
+    assertEquals("The array is copied into a compact immutable list", CompactLists.class, list.getClass().getEnclosingClass());
+    assertEquals("Larger arrays are copied into an exact-size array",
+                 ImmutableListArrayAdapter.class, $(1, 2, 3, 4, 5).toList().getClass());
     assertArrayEquals(array, list.toArray());
     array[0] = 2;
     assertThat("It is safe to modify the underlying array", array, not(arrayContaining(list.toArray())));
@@ -400,6 +406,26 @@ public class StreamTest {
     assertEquals(l.mk(p.p2("1", 0), p.p2("2", 1), p.p2("3", 2)), r);
   }
 
+  @Test
+  public void testRandomAccessViews() {
+    final List<Integer> src = l.mk(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    assertEquals(l.mk(3, 4, 5, 6), $(src).drop(3).take(4).toList());
+    assertEquals(l.mk(9, 8, 7), $(src).reverse().take(3).toList());
+    assertEquals(l.mk(7, 8, 9), $(src).reverse().take(3).reverse().toList());
+    assertEquals(l.nil(), $(src).drop(20).toList());
+    assertEquals(l.nil(), $(src).take(-1).toList());
+    assertEquals(src, $(src).take(20).toList());
+    assertSame(src, $(src).reverse().reverse().toList());
+    // views are not copied when evaluated
+    final List<Integer> view = $(src).drop(1).reverse().toList();
+    assertSame(view, $(view).toList());
+    assertEquals(l.mk(9, 8, 7, 6, 5, 4, 3, 2, 1), view);
+    assertEquals(9, $(src).drop(1).getSizeHint());
+    final ProductBuilder p = Products.E;
+    assertEquals(l.mk(p.p2(8, 0), p.p2(9, 1)), $(src).drop(8).zipWithIndex().toList());
+    assertEquals(l.mk(2, 3), $(src).sort(Orders.intNaturalOrder).drop(2).take(2).toList());
+  }
+
   @Test
   public void testMkString() {
     assertEquals("0-1-2-3-4", $(0, 1, 2, 3, 4, 5, 6, 7, 8, 9).take(5).mkString("-"));
@@ -484,6 +510,27 @@ public class StreamTest {
 //    assertEquals(l.p4(6, 12, 18), s.p4(op4).list());
   }
 
+  @Test
+  public void testStreamOpFusion() {
+    final Fn<Integer, Integer> nullOdd = new Fn<Integer, Integer>() {
+      @Override public Integer apply(Integer i) {
+        return i % 2 == 0 ? i : null;
+      }
+    };
+    final StreamOp<Integer, Integer> op1 = StreamOp.<Integer>id().fmap(tripleValue).fmap(nullOdd).filter(Booleans.ne(12));
+    final StreamOp<Integer, String> op2 = StreamOp.<Integer>id().fmap(doubleValue).fmap(Numbers.toString);
+    final StreamOp<Integer, String> composed = op2.compose(op1);
+    assertEquals(l.mk(6, 18), $(1, 2, 3, 4, 5, 6).apply(op1).toList());
+    assertEquals(l.mk("12", "36"), $(1, 2, 3, 4, 5, 6).apply(composed).toList());
+    assertEquals("12,36", $(1, 2, 3, 4, 5, 6).apply(composed).mkString(","));
+    assertEquals(l.mk("12", "12", "36", "36"),
+                 $(1, 2, 3, 4, 5, 6).apply(composed.bind(StreamTest.<String>doubleList())).toList());
+    assertEquals(l.mk("12"), $(1, 2, 3, 4, 5, 6).apply(composed.take(1)).toList());
+    assertEquals(l.mk("12", "36"), $(1, 2, 3, 4, 5, 6).map(tripleValue).map(nullOdd).filter(Booleans.ne(12))
+            .map(doubleValue).map(Numbers.toString).toList());
+    assertEquals(l.mk("a", "b c"), $(" a \n b c\n").apply(Strings.soSplitNewLineTrim).toList());
+  }
+
   @Test
   public void testStreamFold() {
     final Stream<Integer> s = $(1, 2, 3);
@@ -617,6 +664,35 @@ public class StreamTest {
     assertTrue(Stream.<Integer>empty().sort(Orders.intNaturalOrder).isEmpty());
   }
 
+  @Test
+  public void testTop() {
+    final List<Integer> src = $(5, 3, 9, 1, 7, 3, 8, 2, 6, 4).toList();
+    assertEquals(l.mk(1, 2, 3), $(src).top(3, Orders.intNaturalOrder).toList());
+    assertEquals($(src).sort(Orders.intNaturalOrder).toList(), $(src).top(20, Orders.intNaturalOrder).toList());
+    assertTrue($(src).top(0, Orders.intNaturalOrder).isEmpty());
+    assertTrue(Stream.<Integer>empty().top(3, Orders.intNaturalOrder).isEmpty());
+    // equal elements keep their order
+    final Comparator<String> byLength = new Comparator<String>() {
+      @Override public int compare(String a, String b) {
+        return a.length() - b.length();
+      }
+    };
+    assertEquals(l.mk("b", "d", "ee", "aa"), $("ccc", "b", "ee", "d", "aa", "fff").top(4, byLength).toList());
+    assertEquals($("ccc", "b", "ee", "d", "aa", "fff").sort(byLength).take(4).toList(),
+                 $("ccc", "b", "ee", "d", "aa", "fff").top(4, byLength).toList());
+  }
+
+  @Test
+  public void testSortTake() {
+    final List<Integer> src = $(5, 3, 9, 1, 7, 3, 8, 2, 6, 4).toList();
+    final Stream<Integer> sorted = $(src).sort(Orders.intNaturalOrder);
+    assertEquals(l.mk(1, 2, 3, 3), sorted.take(4).toList());
+    assertEquals(l.mk(1, 2, 3, 3, 4, 5, 6, 7, 8, 9), sorted.toList());
+    assertEquals(l.mk(1, 2), sorted.take(2).toList());
+    final StreamOp<Integer, Integer> op = StreamOp.<Integer>id().fmap(tripleValue).sort(Orders.intNaturalOrder).take(2);
+    assertEquals(l.mk(3, 6), $(src).apply(op).toList());
+  }
+
   @Test
   public void testStreamFold2() {
     final Map<String, String> map = new HashMap<String, String>();
@@ -629,6 +705,77 @@ public class StreamTest {
     assertEquals(map, fold);
   }
 
+  @Test
+  public void testEvaluationSkipsNulls() {
+    final Fn<Integer, Integer> nullOdd = new Fn<Integer, Integer>() {
+      @Override public Integer apply(Integer i) {
+        return i % 2 == 0 ? i : null;
+      }
+    };
+    final Stream<Integer> s = $(1, 2, 3, 4, 5, 6).map(nullOdd).take(2);
+    assertEquals(l.mk(2, 4), s.toList());
+    assertEquals(l.mk(2, 4), l.mk(s.iterator()));
+    assertEquals("2,4,6", $(1, 2, 3, 4, 5, 6).map(nullOdd).mkString(","));
+  }
+
+  @Test
+  public void testEvaluationStopsEarly() {
+    final int[] calls = new int[]{0};
+    assertEquals(Opt.some(3), $(1, 2, 3, 4, 5).map(countCalls(calls)).find(eq(3)));
+    assertEquals(3, calls[0]);
+    assertTrue($(1, 2).append($(3, 4, 5).map(countCalls(calls))).exists(eq(3)));
+    assertEquals(4, calls[0]);
+    assertEquals(Opt.some(1), $(1, 2, 3).map(countCalls(calls)).head());
+    assertEquals(5, calls[0]);
+  }
+
+  @Test
+  public void testAppendChain() {
+    Stream<Integer> s = Stream.empty();
+    for (int i = 0; i < 100000; i++) {
+      s = s.append($(i));
+    }
+    final List<Integer> list = s.toList();
+    assertEquals(100000, list.size());
+    assertEquals(99999, (int) list.get(99999));
+    int count = 0;
+    for (Integer a : s) {
+      count++;
+    }
+    assertEquals(100000, count);
+    assertEquals(l.mk(1, 2, 3, 4), $(1).append($(2, 3)).append(l.mk(4)).toList());
+  }
+
+  @Test
+  public void testConcat() {
+    final List<Stream<Integer>> ss = new ArrayList<Stream<Integer>>();
+    for (int i = 0; i < 10; i++) {
+      ss.add($(i, i));
+    }
+    assertEquals(20, Stream.concat(ss).toList().size());
+    assertEquals(l.mk(0, 0, 1, 1), Stream.concat(ss).take(4).toList());
+    // lazily concatenate an infinite stream of streams
+    final Stream<Stream<Integer>> infinite = Stream.cont(new P1Lazy<Stream<Integer>>() {
+      @Override public Stream<Integer> get1() {
+        return $(1, 2);
+      }
+    });
+    assertEquals(l.mk(1, 2, 1, 2, 1), Stream.concat(infinite).take(5).toList());
+    assertEquals(l.mk(1, 2, 1), l.mk(Stream.concat(infinite).take(3).iterator()));
+  }
+
+  @Test
+  public void testEvaluationOfInfiniteStream() {
+    final Stream<Integer> ones = Stream.cont(new P1Lazy<Integer>() {
+      @Override public Integer get1() {
+        return 1;
+      }
+    });
+    assertEquals(l.mk(1, 1, 1), ones.take(3).toList());
+    assertEquals(new Integer(4), ones.take(4).sum(Monoids.intAddition));
+    assertEquals(l.mk(1, 1, 1, 1), ones.take(2).repeat(2).toList());
+  }
+
   private static <A, B> Fn2<Map<A, B>, Entry<A, B>, Map<A, B>> mapFold() {
     return new Fn2<Map<A, B>, Entry<A, B>, Map<A, B>>() {
       @Override public Map<A, B> apply(Map<A, B> sum, Entry<A, B> a) {
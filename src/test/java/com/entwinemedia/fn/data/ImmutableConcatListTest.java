@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.entwinemedia.fn.Monoid;
+import com.entwinemedia.fn.Monoids;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ImmutableConcatListTest {
+  private static final ListBuilder l = ListBuilders.SIA;
+
+  @Test
+  public void testConcatView() {
+    final List<Integer> a = l.mk(0, 1, 2, 3, 4);
+    final List<Integer> b = l.mk(5, 6, 7, 8, 9, 10);
+    final List<Integer> c = l.concat2(a, l.<Integer>nil(), b);
+    assertEquals(ImmutableConcatList.class, c.getClass());
+    assertEquals(2, ((ImmutableConcatList) c).getPartCount());
+    assertEquals(11, c.size());
+    for (int i = 0; i < c.size(); i++) {
+      assertEquals(i, (int) c.get(i));
+    }
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), c);
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10).hashCode(), c.hashCode());
+    assertEquals(Arrays.asList(4, 5), c.subList(4, 6));
+    assertSame(a, l.concat2(a, l.<Integer>nil()));
+  }
+
+  @Test
+  public void testMutableInputsAreCopied() {
+    final List<Integer> a = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4, 5));
+    final List<Integer> c = l.concat2(a, l.mk(6, 7, 8, 9, 10));
+    assertNotEquals(ImmutableConcatList.class, c.getClass());
+    a.set(0, 0);
+    assertEquals(1, (int) c.get(0));
+    assertEquals(ArrayList.class, ListBuilders.SMA.concat2(l.mk(1, 2, 3, 4, 5), l.mk(6, 7, 8, 9, 10)).getClass());
+  }
+
+  @Test
+  public void testWrappedInputsAreCopied() {
+    final List<Integer> m = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4, 5));
+    final Integer[] array = {6, 7, 8, 9, 10};
+    final List<Integer> c = l.concat2(ListBuilders.LIA.mk(m), ListBuilders.LIA.mk(array), l.mk(11, 12, 13, 14, 15));
+    assertNotEquals(ImmutableConcatList.class, c.getClass());
+    m.set(0, 99);
+    array[0] = 99;
+    assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15), c);
+  }
+
+  @Test
+  public void testFlattening() {
+    final Monoid<List<Integer>> m = Monoids.list(l);
+    List<Integer> sum = m.identity();
+    final List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < 100; i++) {
+      sum = m.op(sum, l.mk(i, i, i, i, i));
+      for (int n = 0; n < 5; n++) {
+        expected.add(i);
+      }
+      if (sum instanceof ImmutableConcatList) {
+        assertTrue(((ImmutableConcatList) sum).getPartCount() <= ImmutableConcatList.MAX_PARTS);
+      }
+    }
+    assertEquals(expected, sum);
+  }
+}
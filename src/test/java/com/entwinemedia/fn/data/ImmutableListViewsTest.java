@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ImmutableListViewsTest {
+  private static final ListBuilder l = ListBuilders.SIA;
+
+  @Test
+  public void testSlice() {
+    final List<Integer> a = l.mk(0, 1, 2, 3, 4, 5, 6, 7);
+    assertSame(a, ImmutableListViews.slice(a, 0, 8));
+    assertEquals(ImmutableListArraySliceAdapter.class, ImmutableListViews.slice(a, 1, 7).getClass());
+    assertEquals(Arrays.asList(2, 3, 4), ImmutableListViews.slice(ImmutableListViews.slice(a, 1, 7), 1, 4));
+    assertTrue(ImmutableListViews.slice(a, 3, 3).isEmpty());
+    final List<Integer> c = ImmutableConcatList.mk(Arrays.asList(a, a));
+    final List<Integer> s = ImmutableListViews.slice(c, 6, 10);
+    assertTrue(s instanceof Immutable);
+    assertEquals(Arrays.asList(6, 7, 0, 1), s);
+    assertEquals(Arrays.asList(7, 0), s.subList(1, 3));
+    assertEquals(1, s.lastIndexOf(7));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testSliceOutOfBounds() {
+    ImmutableListViews.slice(l.mk(1, 2, 3), 1, 4);
+  }
+
+  @Test
+  public void testReverse() {
+    final List<Integer> a = l.mk(0, 1, 2, 3, 4, 5);
+    final List<Integer> r = ImmutableListViews.reverse(a);
+    assertEquals(Arrays.asList(5, 4, 3, 2, 1, 0), r);
+    assertEquals(Arrays.asList(5, 4, 3, 2, 1, 0).hashCode(), r.hashCode());
+    assertSame(a, ImmutableListViews.reverse(r));
+    assertEquals(Arrays.asList(4, 3, 2), r.subList(1, 4));
+    assertEquals(Arrays.asList(2, 3, 4), ImmutableListViews.reverse(r.subList(1, 4)));
+    assertEquals(0, r.indexOf(5));
+  }
+
+  @Test
+  public void testSliceAdapterLastIndexOf() {
+    final List<Integer> s = l.mk(0, 1, 2, 1, 4, 5).subList(1, 5);
+    assertEquals(2, s.lastIndexOf(1));
+    assertEquals(-1, s.lastIndexOf(5));
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import static com.entwinemedia.fn.Stream.$;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.entwinemedia.fn.DoubleStream;
+import com.entwinemedia.fn.IntStream;
+import com.entwinemedia.fn.LongStream;
+import com.entwinemedia.fn.ToIntFn;
+import org.junit.Test;
+
+public class IntListTest {
+  @Test
+  public void testBuilder() {
+    final IntListBuilder b = new IntListBuilder(2);
+    for (int i = 0; i < 100; i++) {
+      b.add(99 - i);
+    }
+    b.addAll(IntList.mk(-1, -2));
+    final IntList list = b.build();
+    assertEquals(102, list.size());
+    assertEquals(99, list.get(0));
+    assertEquals(-2, list.get(101));
+    assertTrue(list.contains(50));
+    assertFalse(list.contains(100));
+    assertEquals(49, list.indexOf(50));
+    assertSame(IntList.empty(), new IntListBuilder().build());
+  }
+
+  @Test
+  public void testSortAndSearch() {
+    final IntList list = IntList.mk(5, 3, 9, 1);
+    final IntList sorted = list.sort();
+    assertArrayEquals(new int[]{1, 3, 5, 9}, sorted.toArray());
+    assertArrayEquals("The original list is unchanged", new int[]{5, 3, 9, 1}, list.toArray());
+    assertEquals(2, sorted.binarySearch(5));
+    assertTrue(sorted.binarySearch(4) < 0);
+    assertEquals(LongList.mk(1, 2, 3), LongList.mk(3, 1, 2).sort());
+    assertEquals(1, DoubleList.mk(0.5, 1.5).binarySearch(1.5));
+  }
+
+  @Test
+  public void testStreams() {
+    final IntList list = IntStream.range(0, 10).filter(new com.entwinemedia.fn.IntPred() {
+      @Override public boolean apply(int a) {
+        return a % 3 == 0;
+      }
+    }).toList();
+    assertEquals(IntList.mk(0, 3, 6, 9), list);
+    assertEquals(18, list.stream().sum());
+    assertEquals(ListBuilders.SIA.mk(0, 3, 6, 9), list.boxed());
+    assertEquals(list.hashCode(), IntList.mk(0, 3, 6, 9).hashCode());
+    assertEquals("IntList[0, 3, 6, 9]", list.toString());
+    final ToIntFn<String> len = new ToIntFn<String>() {
+      @Override public int apply(String a) {
+        return a.length();
+      }
+    };
+    assertEquals(IntList.mk(1, 2), $("a", "bc").mapToInt(len).toList());
+    assertEquals(LongList.mk(0, 1, 2), LongStream.range(0, 3).toList());
+    assertEquals(DoubleList.mk(0.5), DoubleStream.mk(0.5).toList());
+    assertEquals(3, LongStream.range(0, 3).toList().stream().sum());
+  }
+}
@@ -31,7 +31,18 @@ public class IteratorsTest {
 
   @Test
   public void testJoin() throws Exception {
-
+    final Iterator<Integer> i = Iterators.join(l.mk(1, 2).iterator(), Iterators.<Integer>empty());
+    assertEquals(l.mk(1, 2, 3), l.mk(Iterators.join(i, l.mk(3).iterator())));
+    // a deep chain of joins must not overflow the stack
+    Iterator<Integer> chain = Iterators.empty();
+    for (int n = 0; n < 100000; n++) {
+      chain = Iterators.join(chain, Iterators.singleton(n));
+    }
+    int count = 0;
+    while (chain.hasNext()) {
+      assertEquals(count++, (int) chain.next());
+    }
+    assertEquals(100000, count);
   }
 
   @Test
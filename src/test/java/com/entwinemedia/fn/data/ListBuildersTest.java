@@ -22,19 +22,24 @@ import static org.junit.Assert.assertNotSame;
 
 import org.junit.Test;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 public class ListBuildersTest {
   @Test
   public void testStrictImmutableArrayListBuilder() {
     final ListBuilder l = ListBuilders.SIA;
-    final Integer[] array = new Integer[] {1, 2, 3};
+    final Integer[] array = new Integer[] {1, 2, 3, 4, 5, 6};
     final List<Integer> list = l.mk(array);
     assertEquals("Produced list supports equals", list, l.mk(array));
     assertNotSame("List builder always produces a new list", list, l.mk(array));
-    assertEquals("List builder yields an immutable list", ImmutableListWrapper.class, l.mk(array).getClass());
-    assertEquals("Wrapped class is an ArrayList", ArrayList.class, ((ImmutableListWrapper) l.mk(array)).getWrapped().getClass());
+    assertEquals("List of known size is copied into an array", ImmutableListArrayAdapter.class, l.mk(array).getClass());
+    final List<Integer> fromIterator = l.mk(Arrays.asList(array).iterator());
+    assertEquals("List of unknown size is buffered into an array", ImmutableListArrayAdapter.class, fromIterator.getClass());
+    assertEquals(list, fromIterator);
     array[0] = 2;
     assertNotEquals("Underlying array can be modified safely", list, l.mk(array));
   }
@@ -42,7 +47,7 @@ public class ListBuildersTest {
   @Test
   public void testLooseImmutableArrayListBuilder() {
     final ListBuilder l = ListBuilders.LIA;
-    final Integer[] array = new Integer[] {1, 2, 3};
+    final Integer[] array = new Integer[] {1, 2, 3, 4, 5, 6};
     final List<Integer> list = l.mk(array);
     assertEquals("Produced list supports equals", list, l.mk(array));
     assertNotSame("List builder always produces a new list", list, l.mk(array));
@@ -50,4 +55,31 @@ public class ListBuildersTest {
     array[0] = 2;
     assertEquals("Modifying the underlying array is not safe", list, l.mk(array));
   }
+
+  @Test
+  public void testCompactLists() {
+    for (ListBuilder l : Arrays.<ListBuilder>asList(ListBuilders.SIA, ListBuilders.LIA)) {
+      final Integer[] array = new Integer[] {1, 2, 3};
+      final List<Integer> list = l.mk(array);
+      assertEquals("Small lists are stored in fields", CompactLists.List3.class, list.getClass());
+      assertEquals(Arrays.asList(1, 2, 3), list);
+      assertEquals(Arrays.asList(1, 2, 3).hashCode(), list.hashCode());
+      array[0] = 2;
+      assertEquals("Small lists are copied", Arrays.asList(1, 2, 3), list);
+      assertEquals(CompactLists.List1.class, l.mk(1).getClass());
+      assertEquals(CompactLists.List4.class, l.mk(Arrays.asList(1, 2, 3, 4).iterator()).getClass());
+      assertEquals(Arrays.asList(2, 3), l.mk(1, 2, 3, 4).subList(1, 3));
+      assertEquals(3, l.mk(1, 2, 3, 2).lastIndexOf(2));
+    }
+    assertEquals(LinkedList.class, ((ImmutableListWrapper) ListBuilders.SIL.mk(1, 2)).getWrapped().getClass());
+  }
+
+  @Test
+  public void testCompactSets() {
+    final Set<Integer> set = SetB.IH.mk(1, 2, 2, 3);
+    assertEquals(CompactSets.Set3.class, set.getClass());
+    assertEquals(new HashSet<Integer>(Arrays.asList(1, 2, 3)), set);
+    assertEquals(new HashSet<Integer>(Arrays.asList(1, 2, 3)).hashCode(), set.hashCode());
+    assertEquals(ImmutableSetWrapper.class, SetB.IH.mk(1, 2, 3, 4, 5).getClass());
+  }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentHashMapTest {
+  @Test
+  public void testAgainstHashMap() {
+    final Random random = new Random(42);
+    final Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+    PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+    for (int i = 0; i < 20000; i++) {
+      final int key = random.nextInt(5000);
+      if (random.nextInt(4) == 0) {
+        expected.remove(key);
+        map = map.removed(key);
+      } else {
+        expected.put(key, i);
+        map = map.updated(key, i);
+      }
+    }
+    assertEquals(expected.size(), map.size());
+    assertEquals(expected, map);
+    assertEquals(map, expected);
+    assertEquals(expected.hashCode(), map.hashCode());
+    for (int key = 0; key < 5000; key++) {
+      assertEquals(expected.get(key), map.get(key));
+      assertEquals(expected.containsKey(key), map.containsKey(key));
+    }
+  }
+
+  @Test
+  public void testStructuralSharing() {
+    final PersistentHashMap<String, Integer> a = PersistentHashMap.<String, Integer>empty().updated("a", 1);
+    final PersistentHashMap<String, Integer> b = a.updated("b", 2);
+    final PersistentHashMap<String, Integer> c = b.updated("a", 3).removed("b");
+    assertEquals(1, a.size());
+    assertEquals(1, (int) a.get("a"));
+    assertEquals(2, b.size());
+    assertEquals(1, (int) b.get("a"));
+    assertEquals(1, c.size());
+    assertEquals(3, (int) c.get("a"));
+    assertSame(a, a.removed("x"));
+    assertSame(a, a.updated("a", 1));
+    assertSame(a, PersistentHashMap.mk(a));
+  }
+
+  @Test
+  public void testHashCollisions() {
+    PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+    for (int i = 0; i < 100; i++) {
+      map = map.updated(new Key(i, i % 3), i);
+    }
+    assertEquals(100, map.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, (int) map.get(new Key(i, i % 3)));
+    }
+    for (int i = 0; i < 100; i += 2) {
+      map = map.removed(new Key(i, i % 3));
+    }
+    assertEquals(50, map.size());
+    assertFalse(map.containsKey(new Key(2, 2)));
+    assertTrue(map.containsKey(new Key(3, 0)));
+    int count = 0;
+    for (Map.Entry<Key, Integer> e : map.entrySet()) {
+      assertEquals(1, e.getValue() % 2);
+      count++;
+    }
+    assertEquals(50, count);
+  }
+
+  @Test
+  public void testNulls() {
+    final PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty()
+        .updated(null, "null").updated("a", null);
+    assertEquals(2, map.size());
+    assertEquals("null", map.get(null));
+    assertNull(map.get("a"));
+    assertTrue(map.containsKey("a"));
+    assertFalse(map.containsKey("b"));
+    assertEquals(1, map.removed(null).size());
+    final Map<String, String> expected = new HashMap<String, String>();
+    expected.put(null, "null");
+    expected.put("a", null);
+    assertEquals(expected, map);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() {
+    PersistentHashMap.<String, String>empty().updated("a", "b").put("c", "d");
+  }
+
+  /** Key with a configurable hash code. */
+  private static final class Key {
+    private final int id;
+    private final int hash;
+
+    private Key(int id, int hash) {
+      this.id = id;
+      this.hash = hash;
+    }
+
+    @Override public int hashCode() {
+      return hash;
+    }
+
+    @Override public boolean equals(Object that) {
+      return that instanceof Key && ((Key) that).id == id;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import static com.entwinemedia.fn.Stream.$;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.entwinemedia.fn.Monoids;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class PersistentHashSetTest {
+  @Test
+  public void testAddRemove() {
+    final PersistentHashSet<Integer> a = PersistentHashSet.mk(ListBuilders.SIA.mk(1, 2, 3));
+    final PersistentHashSet<Integer> b = a.added(4).removed(1);
+    assertEquals(SetB.MH.mk(1, 2, 3), a);
+    assertEquals(SetB.MH.mk(2, 3, 4), b);
+    assertSame(a, a.added(2));
+    assertSame(a, a.removed(5));
+    assertTrue(b.contains(4));
+    assertFalse(b.contains(1));
+    assertSame(PersistentHashSet.empty(), a.removed(1).removed(2).removed(3));
+  }
+
+  @Test
+  public void testUnion() {
+    final PersistentHashSet<Integer> large = PersistentHashSet.mk(ListBuilders.SIA.mk(1, 2, 3, 4));
+    final PersistentHashSet<Integer> small = PersistentHashSet.mk(ListBuilders.SIA.mk(4, 5));
+    assertEquals(SetB.MH.mk(1, 2, 3, 4, 5), small.union(large));
+    assertSame(large, PersistentHashSet.<Integer>empty().union(large));
+    assertEquals(SetB.MH.mk(1, 2, 3, 4, 5), SetB.PH.concat(small, large));
+  }
+
+  @Test
+  public void testMonoid() {
+    final Set<Integer> expected = new HashSet<Integer>();
+    final Set<Integer>[] sets = new Set[100];
+    for (int i = 0; i < sets.length; i++) {
+      sets[i] = SetB.PH.mk(i, i + 1, i + 2);
+      expected.add(i);
+      expected.add(i + 1);
+      expected.add(i + 2);
+    }
+    final Set<Integer> sum = $(sets).sum(Monoids.<Integer>set(SetB.PH));
+    assertEquals(expected, sum);
+    assertEquals(PersistentHashSet.class, sum.getClass());
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.entwinemedia.fn.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.entwinemedia.fn.Monoid;
+import com.entwinemedia.fn.Monoids;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PersistentVectorTest {
+  @Test
+  public void testAppended() {
+    // cross the boundaries of the tail and of the first two trie levels
+    final int size = 32 * 32 * 32 + 100;
+    final List<Integer> expected = new ArrayList<Integer>();
+    PersistentVector<Integer> v = PersistentVector.empty();
+    for (int i = 0; i < size; i++) {
+      final PersistentVector<Integer> before = v;
+      v = v.appended(i);
+      expected.add(i);
+      assertEquals(i, before.size());
+      assertEquals(i, (int) v.get(i));
+    }
+    assertEquals(expected, v);
+    assertEquals(v, expected);
+    assertEquals(expected.hashCode(), v.hashCode());
+    assertEquals(v, PersistentVector.mk(expected));
+    assertEquals(v, ListBuilders.SIV.mk(expected));
+  }
+
+  @Test
+  public void testUpdated() {
+    final PersistentVector<Integer> v = PersistentVector.mk(range(1000));
+    final PersistentVector<Integer> w = v.updated(0, -1).updated(500, -1).updated(999, -1);
+    assertEquals(0, (int) v.get(0));
+    assertEquals(500, (int) v.get(500));
+    assertEquals(999, (int) v.get(999));
+    assertEquals(-1, (int) w.get(0));
+    assertEquals(-1, (int) w.get(500));
+    assertEquals(-1, (int) w.get(999));
+    assertEquals(501, (int) w.get(501));
+    try {
+      v.updated(1000, 0);
+      fail();
+    } catch (IndexOutOfBoundsException ignore) {
+    }
+  }
+
+  @Test
+  public void testSlice() {
+    final List<Integer> expected = range(2000);
+    final PersistentVector<Integer> v = PersistentVector.mk(expected);
+    assertEquals(expected.subList(100, 1900), v.slice(100, 1900));
+    assertEquals(expected.subList(1990, 2000), v.subList(1990, 2000));
+    assertSame(PersistentVector.empty(), v.slice(10, 10));
+    assertSame(v, v.slice(0, 2000));
+    // appending to a slice must not modify the original vector
+    final PersistentVector<Integer> s = v.slice(10, 20).appended(-1);
+    assertEquals(11, s.size());
+    assertEquals(-1, (int) s.get(10));
+    assertEquals(20, (int) v.get(20));
+    assertEquals(ListBuilders.SIA.mk(11, 12), s.slice(1, 3));
+    assertEquals(1, s.indexOf(11));
+    assertEquals(-1, s.indexOf(20));
+  }
+
+  @Test
+  public void testMonoid() {
+    final Monoid<List<Integer>> m = Monoids.vector();
+    List<Integer> sum = m.identity();
+    for (int i = 0; i < 100; i++) {
+      sum = m.op(sum, ListBuilders.SIA.mk(i, i));
+    }
+    assertEquals(200, sum.size());
+    assertEquals(PersistentVector.class, sum.getClass());
+    assertEquals(99, (int) sum.get(199));
+  }
+
+  private static List<Integer> range(int n) {
+    final List<Integer> as = new ArrayList<Integer>();
+    for (int i = 0; i < n; i++) {
+      as.add(i);
+    }
+    return as;
+  }
+}
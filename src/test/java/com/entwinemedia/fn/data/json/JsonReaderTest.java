@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data.json;
+
+import static com.entwinemedia.fn.data.json.Jsons.NULL;
+import static com.entwinemedia.fn.data.json.Jsons.arr;
+import static com.entwinemedia.fn.data.json.Jsons.f;
+import static com.entwinemedia.fn.data.json.Jsons.obj;
+import static com.entwinemedia.fn.data.json.Jsons.v;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.entwinemedia.fn.data.json.JsonReader.Event;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+public class JsonReaderTest {
+  private final Utf8Serializer ser = new Utf8Serializer();
+
+  private static byte[] utf8(String s) {
+    try {
+      return s.getBytes("UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testReadTree() {
+    final JValue j = obj(
+        f("string", v("a \"quoted\" \\ / string\r\n\t\u00E4\u20AC\uD83D\uDE00")),
+        f("int", v(10)),
+        f("long", v(10000000000L)),
+        f("double", v(20.34)),
+        f("bool", v(true)),
+        f("null", NULL),
+        f("array", arr(v(1), obj(f("key", v("value"))), arr(), v(false))),
+        f("empty", obj()),
+        f("blank", v("")));
+    final byte[] bytes = utf8(ser.toJson(j));
+    assertEquals(j, JsonReader.read(bytes));
+    assertEquals(j, JsonReader.read(new ByteArrayInputStream(bytes)));
+    assertEquals(j, JsonReader.read(ByteBuffer.wrap(bytes)));
+    // split every token and UTF-8 sequence across buffer boundaries
+    assertEquals(j, JsonReader.read(new ByteArrayInputStream(bytes) {
+      @Override public synchronized int read(byte[] b, int off, int len) {
+        return super.read(b, off, Math.min(len, 1));
+      }
+    }));
+    final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    assertEquals(j, JsonReader.read(direct));
+    assertEquals(0, direct.position());
+    assertEquals(ser.toJson(j), ser.toJson(JsonReader.read(bytes)));
+  }
+
+  @Test
+  public void testScalarDocuments() {
+    assertEquals(v(42), JsonReader.read(utf8(" 42 ")));
+    assertEquals(v("s"), JsonReader.read(utf8("\"s\"")));
+    assertEquals(NULL, JsonReader.read(utf8("null")));
+    assertEquals(v(-1.5e3), JsonReader.read(utf8("-1.5E+3")));
+    assertEquals(v(new BigInteger("123456789012345678901234567890")),
+                 JsonReader.read(utf8("123456789012345678901234567890")));
+  }
+
+  @Test
+  public void testEvents() {
+    final JsonReader r = JsonReader.mk(utf8("{\"a\": [1, 2.50, {\"b\": null}], \"c\": true}"));
+    assertEquals(Event.START_OBJECT, r.next());
+    assertEquals(Event.KEY, r.next());
+    assertEquals("a", r.getString());
+    assertEquals(Event.START_ARRAY, r.next());
+    assertEquals(Event.NUMBER, r.next());
+    assertEquals(1, r.getInt());
+    assertTrue(r.isIntegral());
+    assertEquals(Event.NUMBER, r.next());
+    assertEquals("2.50", r.getNumberText());
+    assertFalse(r.isIntegral());
+    assertEquals(new BigDecimal("2.50"), r.getBigDecimal());
+    assertEquals(2.5, r.getDouble(), 0);
+    assertEquals(Event.START_OBJECT, r.next());
+    r.skipValue();
+    assertEquals(Event.END_OBJECT, r.getEvent());
+    assertEquals(Event.END_ARRAY, r.next());
+    assertEquals(Event.KEY, r.next());
+    assertEquals(Jsons.TRUE, r.readValue());
+    assertEquals(Event.END_OBJECT, r.next());
+    assertEquals(Event.END, r.next());
+  }
+
+  @Test
+  public void testStreamingLargeArray() {
+    final StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < 10000; i++) {
+      sb.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"n\\u00e4me ").append(i).append("\"}");
+    }
+    sb.append("]");
+    final JsonReader r = JsonReader.mk(new ByteArrayInputStream(utf8(sb.toString())));
+    assertEquals(Event.START_ARRAY, r.next());
+    int count = 0;
+    while (r.next() != Event.END_ARRAY) {
+      assertEquals(obj(f("id", v(count)), f("name", v("n\u00E4me " + count))), r.value());
+      count++;
+    }
+    assertEquals(10000, count);
+    assertEquals(Event.END, r.next());
+  }
+
+  @Test
+  public void testMalformed() {
+    for (String s : new String[]{"", "[1,]", "{\"a\" 1}", "{,}", "[1 2]", "01", "1.", "-", "tru", "\"abc", "[1]]",
+            "\"\\x\"", "{\"a\":1,}", "[\"\u0001\"]", "nul"}) {
+      try {
+        JsonReader.read(utf8(s));
+        fail("Parsing " + s + " should fail");
+      } catch (JsonParseException ignore) {
+      }
+    }
+    try {
+      JsonReader.read(new byte[]{'"', (byte) 0xC3, '"'});
+      fail("Invalid UTF-8 should fail");
+    } catch (JsonParseException e) {
+      assertEquals(2, e.getOffset());
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data.json;
+
+import static com.entwinemedia.fn.data.json.Jsons.NULL;
+import static com.entwinemedia.fn.data.json.Jsons.ZERO;
+import static com.entwinemedia.fn.data.json.Jsons.arr;
+import static com.entwinemedia.fn.data.json.Jsons.f;
+import static com.entwinemedia.fn.data.json.Jsons.obj;
+import static com.entwinemedia.fn.data.json.Jsons.raw;
+import static com.entwinemedia.fn.data.json.Jsons.v;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.entwinemedia.fn.Fn;
+import com.entwinemedia.fn.IntStream;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class RawCacheTest {
+  private final Utf8Serializer utf8 = new Utf8Serializer(16);
+  private final SimpleSerializer simple = new SimpleSerializer();
+
+  private final JObject config = obj(
+      f("name", v("r\u00F6w \"config\"")),
+      f("limits", arr(v(1), v(2.5), NULL)),
+      f("enabled", v(true)));
+
+  @Test
+  public void testRawSerializesTheSame() {
+    final JValue doc = obj(f("id", v(1)), f("config", raw(config)), f("list", arr(raw(config), raw(v("x")))));
+    final JValue plain = obj(f("id", v(1)), f("config", config), f("list", arr(config, v("x"))));
+    assertEquals(utf8.toJson(plain), utf8.toJson(doc));
+    assertEquals(simple.toJson(plain), simple.toJson(doc));
+    final ByteBuffer buf = ByteBuffer.allocateDirect(1024);
+    utf8.toJson(buf, doc);
+    buf.flip();
+    final byte[] bytes = new byte[buf.remaining()];
+    buf.get(bytes);
+    assertArrayEquals(utf8.toJson(plain).getBytes(StandardCharsets.UTF_8), bytes);
+    assertEquals(utf8.toJson(config), raw(config).toString());
+    assertSame(ZERO, raw(ZERO));
+    assertEquals("{}", utf8.toJson(obj(f("zero", raw(ZERO)))));
+  }
+
+  @Test
+  public void testNestedRaw() {
+    final RawCache cache = new RawCache(10);
+    final Fn<Integer, JValue> row = new Fn<Integer, JValue>() {
+      @Override public JValue apply(Integer i) {
+        return raw(obj(f("id", v(i)), f("config", cache.raw(config))));
+      }
+    };
+    final JValue lazy = raw(arr(IntStream.range(0, 3).boxed().map(row)));
+    final JValue strict = arr(obj(f("id", v(0)), f("config", config)),
+                              obj(f("id", v(1)), f("config", config)),
+                              obj(f("id", v(2)), f("config", config)));
+    assertEquals(utf8.toJson(strict), lazy.toString());
+    assertEquals(utf8.toJson(strict), utf8.toJson(cache.raw(arr(IntStream.range(0, 3).boxed().map(row)))));
+  }
+
+  @Test
+  public void testUnwrap() {
+    final Map m = (Map) obj(f("config", raw(config))).toMap().get("config");
+    assertEquals(config.toMap().keySet(), m.keySet());
+    assertEquals("r\u00F6w \"config\"", m.get("name"));
+    assertArrayEquals(new Object[]{1, 2.5, null}, (Object[]) m.get("limits"));
+    assertEquals(1, arr(raw(v(1))).toArray()[0]);
+    assertEquals(raw(config), raw(obj(f("name", v("r\u00F6w \"config\"")),
+                                      f("limits", arr(v(1), v(2.5), NULL)),
+                                      f("enabled", v(true)))));
+  }
+
+  @Test
+  public void testMergeRaw() {
+    final JObject extra = obj(f("config", obj(f("level", v(3)))), f("limits", arr(v(4))));
+    final JObject expected = obj(f("config", config), f("limits", arr(v(1), v(2)))).merge(extra);
+    assertEquals(expected, obj(f("config", raw(config)), f("limits", raw(arr(v(1), v(2))))).merge(extra));
+    assertEquals(3, ((Map) expected.toMap().get("config")).get("level"));
+    assertEquals(expected, obj(f("config", config), f("limits", arr(v(1), v(2)))).merge(
+        obj(f("config", raw(obj(f("level", v(3))))), f("limits", raw(arr(v(4)))))));
+  }
+
+  @Test
+  public void testSerializeOnce() {
+    final int[] serialized = {0};
+    final JArray rows = arr(IntStream.range(0, 10).boxed().map(new Fn<Integer, JValue>() {
+      @Override public JValue apply(Integer i) {
+        serialized[0]++;
+        return v(i);
+      }
+    }));
+    final RawCache cache = new RawCache(10);
+    for (int i = 0; i < 5; i++) {
+      assertEquals("{\"rows\":[0,1,2,3,4,5,6,7,8,9]}", utf8.toJson(obj(f("rows", cache.raw(rows)))));
+    }
+    assertEquals(10, serialized[0]);
+    assertEquals(1, cache.size());
+    // lookup is by identity, not by equality
+    cache.raw(arr(v(1)));
+    cache.raw(arr(v(1)));
+    assertEquals(3, cache.size());
+    assertSame(ZERO, cache.raw(ZERO));
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testBounded() {
+    final RawCache cache = new RawCache(2);
+    final JValue a = arr(v("a"));
+    final JValue b = arr(v("b"));
+    final JValue c = arr(v("c"));
+    cache.raw(a);
+    cache.raw(b);
+    // touch a, so that b is the least recently used one
+    cache.raw(a);
+    cache.raw(c);
+    assertEquals(2, cache.size());
+    final int[] serialized = {0};
+    final JValue lazy = arr(IntStream.range(0, 1).boxed().map(new Fn<Integer, JValue>() {
+      @Override public JValue apply(Integer i) {
+        serialized[0]++;
+        return v(i);
+      }
+    }));
+    cache.raw(lazy);
+    cache.raw(lazy);
+    assertEquals(1, serialized[0]);
+    assertEquals(2, cache.size());
+  }
+}
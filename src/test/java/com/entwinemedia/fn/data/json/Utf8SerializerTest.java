@@ -0,0 +1,245 @@
+/*
+ * Copyright 2015 Entwine AG, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.entwinemedia.fn.data.json;
+
+import static com.entwinemedia.fn.data.json.Jsons.NULL;
+import static com.entwinemedia.fn.data.json.Jsons.ZERO;
+import static com.entwinemedia.fn.data.json.Jsons.arr;
+import static com.entwinemedia.fn.data.json.Jsons.f;
+import static com.entwinemedia.fn.data.json.Jsons.obj;
+import static com.entwinemedia.fn.data.json.Jsons.v;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.entwinemedia.fn.Fn;
+import com.entwinemedia.fn.IntStream;
+import com.entwinemedia.fn.P1Lazy;
+import com.entwinemedia.fn.Stream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+public class Utf8SerializerTest {
+  private final Utf8Serializer ser = new Utf8Serializer();
+
+  @Test
+  public void testSameOutputAsSimpleSerializer() {
+    final JValue j = obj(
+        f("string", v("a \"quoted\" \\ / string\r\n\t\b\f\u0001\u007F")),
+        f("number", v(10)),
+        f("double", v(20.34)),
+        f("bool", v(true)),
+        f("null", NULL),
+        f("zero", ZERO),
+        f("array", arr(v(1), ZERO, obj(f("key", v("value"))), arr())),
+        f("empty", obj()));
+    assertEquals(new SimpleSerializer().toJson(j), ser.toJson(j));
+    assertEquals("", ser.toJson(ZERO));
+    assertEquals("[]", ser.toJson(arr(ZERO)));
+    assertEquals("[\"one\",\"two\"]", ser.toJson(arr(ZERO, v("one"), ZERO, v("two"), ZERO)));
+  }
+
+  @Test
+  public void testUtf8() throws UnsupportedEncodingException {
+    final String s = "\u00E4\u00F6 \u0800 \uD83D\uDE00 \u20AC \u0085";
+    assertArrayEquals(
+        "\"\u00E4\u00F6 \u0800 \uD83D\uDE00 \\u20AC \\u0085\"".getBytes("UTF-8"),
+        toBytes(ser, v(s)));
+    assertEquals("\"?\"", ser.toJson(v("\uD800")));
+  }
+
+  @Test
+  public void testSmallBuffer() {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("abcdefg\"\u00E4\u0800\uD83D\uDE00");
+    }
+    final JValue j = arr(v(sb.toString()), v(sb.toString()));
+    assertArrayEquals(toBytes(new Utf8Serializer(), j), toBytes(new Utf8Serializer(16), j));
+  }
+
+  @Test
+  public void testStreamingArray() {
+    final int[] pulled = {0};
+    final JArray a = arr(IntStream.range(0, 100000).boxed().map(new Fn<Integer, JValue>() {
+      @Override public JValue apply(Integer i) {
+        pulled[0]++;
+        return obj(f("id", v(i)), f("name", v("row " + i)));
+      }
+    }));
+    final CountingOutputStream out = new CountingOutputStream(Long.MAX_VALUE);
+    new Utf8Serializer(1024, 64 * 1024).toJson(out, a);
+    assertEquals(100000, pulled[0]);
+    // flushed roughly every 64k plus once at the end
+    assertTrue(out.flushes > out.bytes / (65 * 1024));
+    assertTrue(out.flushes < out.bytes / (63 * 1024) + 2);
+  }
+
+  @Test
+  public void testStopOnDisconnect() {
+    final int[] pulled = {0};
+    final JArray a = arr(Stream.cont(new P1Lazy<JValue>() {
+      @Override public JValue get1() {
+        pulled[0]++;
+        return v("an endless stream of rows");
+      }
+    }));
+    try {
+      new Utf8Serializer(1024, 4096).toJson(new CountingOutputStream(100000), a);
+      fail("Writing to a closed connection must fail");
+    } catch (Exception e) {
+      assertTrue(e instanceof IOException);
+    }
+    // no more than a buffer's worth of elements are pulled after the connection is gone
+    assertTrue(pulled[0] < 100000 / 28 + 1024 / 28 + 1);
+  }
+
+  @Test
+  public void testNestedSerialization() {
+    final Utf8Serializer small = new Utf8Serializer(16);
+    final JArray a = arr(IntStream.range(0, 100).boxed().map(new Fn<Integer, JValue>() {
+      @Override public JValue apply(Integer i) {
+        // serialize on the same thread while the outer serialization is still running
+        return v(small.toJson(obj(f("id", v(i)))));
+      }
+    }));
+    final String json = small.toJson(a);
+    assertEquals(new SimpleSerializer().toJson(a), json);
+    assertTrue(json.startsWith("[\"{\\\"id\\\":0}\",\"{\\\"id\\\":1}\""));
+  }
+
+  @Test
+  public void testChannel() throws IOException {
+    final JValue j = bigArray();
+    final byte[] expected = toBytes(ser, j);
+    // plain channel
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new Utf8Serializer(64).toJson(Channels.newChannel(out), j);
+    assertArrayEquals(expected, out.toByteArray());
+    // gathering channel
+    final File file = File.createTempFile("json", ".json");
+    try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      final FileChannel ch = raf.getChannel();
+      new Utf8Serializer(64).toJson(ch, j);
+      assertEquals(expected.length, ch.size());
+      final byte[] written = new byte[expected.length];
+      raf.seek(0);
+      raf.readFully(written);
+      assertArrayEquals(expected, written);
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testByteBuffer() {
+    final JValue j = bigArray();
+    final byte[] expected = toBytes(ser, j);
+    for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.allocate(expected.length + 10),
+                                           ByteBuffer.allocateDirect(expected.length + 10)}) {
+      buf.position(5);
+      ser.toJson(buf, j);
+      assertEquals(expected.length + 5, buf.position());
+      final byte[] written = new byte[expected.length];
+      buf.position(5);
+      buf.get(written);
+      assertArrayEquals(expected, written);
+    }
+  }
+
+  @Test
+  public void testByteBufferOverflow() {
+    for (Serializer s : new Serializer[]{ser, new SimpleSerializer()}) {
+      final ByteBuffer buf = ByteBuffer.allocate(100);
+      buf.position(3);
+      try {
+        s.toJson(buf, bigArray());
+        fail("Output must not fit");
+      } catch (BufferOverflowException e) {
+        assertEquals(3, buf.position());
+      }
+    }
+  }
+
+  @Test
+  public void testDefaultChannelAndBufferOutput() {
+    // a serializer that only implements the output stream method
+    final Serializer streamOnly = new Serializer() {
+      @Override public void toJson(OutputStream out, JValue j) {
+        ser.toJson(out, j);
+      }
+    };
+    final JValue j = bigArray();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    streamOnly.toJson(Channels.newChannel(out), j);
+    assertArrayEquals(toBytes(ser, j), out.toByteArray());
+    final ByteBuffer buf = ByteBuffer.allocate(out.size());
+    streamOnly.toJson(buf, j);
+    assertArrayEquals(out.toByteArray(), buf.array());
+  }
+
+  private static JValue bigArray() {
+    return arr(IntStream.range(0, 2000).boxed().map(new Fn<Integer, JValue>() {
+      @Override public JValue apply(Integer i) {
+        return obj(f("id", v(i)), f("name", v("r\u00F6w \"" + i + "\"")));
+      }
+    }));
+  }
+
+  /** Output stream that counts bytes and flushes and fails once <code>capacity</code> bytes have been written. */
+  private static final class CountingOutputStream extends OutputStream {
+    private final long capacity;
+    private long bytes;
+    private int flushes;
+
+    private CountingOutputStream(long capacity) {
+      this.capacity = capacity;
+    }
+
+    @Override public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException {
+      if (bytes + len > capacity) {
+        throw new IOException("Connection reset by peer");
+      }
+      bytes += len;
+    }
+
+    @Override public void flush() {
+      flushes++;
+    }
+  }
+
+  private static byte[] toBytes(Serializer ser, JValue j) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ser.toJson(out, j);
+    return out.toByteArray();
+  }
+}
@@ -16,12 +16,21 @@
 
 package com.entwinemedia.fn.fns;
 
+import static com.entwinemedia.fn.Stream.$;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import com.entwinemedia.fn.Fn;
+import com.entwinemedia.fn.Pred;
+import com.entwinemedia.fn.data.ListBuilder;
+import com.entwinemedia.fn.data.ListBuilders;
 import org.junit.Test;
 
 public class BooleansTest {
+  private static final ListBuilder l = ListBuilders.SIA;
+
   @Test
   public void test() throws Exception {
     assertTrue(Booleans.<Integer, Integer>lt().apply(10, 20));
@@ -53,4 +62,45 @@ public class BooleansTest {
     assertFalse(Booleans.<Object>isInstanceOf(String.class).apply(new Object()));
     assertFalse(Booleans.<Object>isInstanceOf().apply(new Object(), String.class));
   }
+
+  @Test
+  public void testPredicateCombinators() throws Exception {
+    final Fn<Integer, Boolean> even = new Fn<Integer, Boolean>() {
+      @Override public Boolean apply(Integer a) {
+        return a % 2 == 0;
+      }
+    };
+    final Pred<Integer> small = Booleans.lt(10);
+    assertTrue(Booleans.and(small, even).test(4));
+    assertFalse(Booleans.and(small, even).test(12));
+    assertTrue(Booleans.or(small, even).test(12));
+    assertFalse(Booleans.or(small, even).apply(13));
+    assertTrue(Booleans.not(even).test(3));
+    assertTrue(Booleans.all(small, even, Booleans.gt(0)).test(8));
+    assertFalse(Booleans.all(small, even, Booleans.gt(0)).test(-2));
+    assertTrue(Booleans.one(small, even).test(100));
+    assertFalse(Booleans.<Integer>no().test(1));
+    assertTrue(Pred.mk(even).test(2));
+    assertSame(small, Pred.mk(small));
+  }
+
+  @Test
+  public void testPrimitivePathThroughCombinators() throws Exception {
+    final int[] tested = {0};
+    final Pred<Integer> even = new Pred<Integer>() {
+      @Override public boolean test(Integer a) {
+        tested[0]++;
+        return a % 2 == 0;
+      }
+
+      @Override public Boolean apply(Integer a) {
+        throw new AssertionError("apply must not be called");
+      }
+    };
+    assertEquals(l.mk(2, 4), $(1, 2, 3, 4).filter(even).toList());
+    assertEquals(l.mk(2), $(1, 2, 3, 4).filter(even.and(Booleans.lt(3))).toList());
+    assertEquals(l.mk(1, 3), $(1, 2, 3, 4).filter(even.not()).toList());
+    assertEquals(l.mk(1, 2, 4), $(1, 2, 3, 4).filter(Booleans.one(even, Booleans.lt(2))).toList());
+    assertEquals(16, tested[0]);
+  }
 }